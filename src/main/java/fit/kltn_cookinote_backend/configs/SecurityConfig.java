@@ -48,7 +48,10 @@ public class SecurityConfig {
                         .requestMatchers(HttpMethod.GET, "/recipes/categories/*").permitAll()
                         .requestMatchers(HttpMethod.GET, "/recipes/public").permitAll()
                         .requestMatchers(HttpMethod.GET, "/recipes/search").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/recipes/autocomplete").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/recipes/browse").permitAll()
                         .requestMatchers(HttpMethod.GET, "/recipes/popular").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/recipes/trending").permitAll()
                         .requestMatchers(HttpMethod.GET, "/recipes/easy-to-cook").permitAll()
                         .requestMatchers(HttpMethod.GET, "/posts").permitAll()
                         .requestMatchers(HttpMethod.GET, "/posts/**").permitAll()
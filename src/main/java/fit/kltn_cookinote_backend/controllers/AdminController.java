@@ -16,6 +16,7 @@ import fit.kltn_cookinote_backend.dtos.response.*;
 import fit.kltn_cookinote_backend.services.ExcelExportService;
 import fit.kltn_cookinote_backend.services.LogStreamService;
 import fit.kltn_cookinote_backend.services.LoginHistoryService;
+import fit.kltn_cookinote_backend.services.RecipeVectorIndexService;
 import fit.kltn_cookinote_backend.services.UserService;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
@@ -43,6 +44,7 @@ public class AdminController {
     private final ExcelExportService excelExportService;
     private final LoginHistoryService loginHistoryService;
     private final LogStreamService logStreamService;
+    private final RecipeVectorIndexService recipeVectorIndexService;
 
     @GetMapping("/users")
     @PreAuthorize("hasRole('ADMIN')")
@@ -177,4 +179,19 @@ public class AdminController {
     public SseEmitter streamLogs() {
         return logStreamService.createEmitter();
     }
-}
\ No newline at end of file
+
+    /**
+     * API Admin: Đo recall/độ trễ của chỉ mục vector gợi ý so với tìm kiếm chính xác.
+     * GET /admin/vector-index/recall?samples=100&k=10
+     */
+    @GetMapping("/vector-index/recall")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<VectorRecallReport>> getVectorIndexRecall(
+            @RequestParam(value = "samples", defaultValue = "100") int samples,
+            @RequestParam(value = "k", defaultValue = "10") int k,
+            HttpServletRequest httpReq) {
+
+        VectorRecallReport data = recipeVectorIndexService.evaluateRecall(Math.max(samples, 1), Math.max(k, 1));
+        return ResponseEntity.ok(ApiResponse.success("Đo recall chỉ mục vector thành công", data, httpReq.getRequestURI()));
+    }
+}
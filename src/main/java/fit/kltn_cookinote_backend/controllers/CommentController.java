@@ -13,6 +13,7 @@ import fit.kltn_cookinote_backend.dtos.request.CreateCommentRequest;
 import fit.kltn_cookinote_backend.dtos.request.UpdateCommentRequest;
 import fit.kltn_cookinote_backend.dtos.response.ApiResponse;
 import fit.kltn_cookinote_backend.dtos.response.CommentResponse;
+import fit.kltn_cookinote_backend.dtos.response.PageResult;
 import fit.kltn_cookinote_backend.entities.User;
 import fit.kltn_cookinote_backend.services.CommentService;
 import jakarta.servlet.http.HttpServletRequest;
@@ -48,6 +49,23 @@ public class CommentController {
         return ResponseEntity.ok(ApiResponse.success("Lấy danh sách bình luận thành công", data, httpReq.getRequestURI()));
     }
 
+    /**
+     * API để lấy trả lời trực tiếp của một bình luận theo trang (cũ nhất trước), mỗi trả lời kèm replyCount.
+     * Endpoint: GET /comments/{commentId}/replies?cursor=&size=10
+     */
+    @GetMapping("/{commentId}/replies")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<ApiResponse<PageResult<CommentResponse>>> getReplies(
+            @PathVariable Long commentId,
+            @AuthenticationPrincipal User authUser,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", required = false, defaultValue = "10") int size,
+            HttpServletRequest httpReq
+    ) {
+        PageResult<CommentResponse> data = commentService.getReplies(commentId, authUser.getUserId(), cursor, size);
+        return ResponseEntity.ok(ApiResponse.success("Lấy danh sách trả lời thành công", data, httpReq.getRequestURI()));
+    }
+
     /**
      * API để tạo bình luận mới (gốc hoặc trả lời).
      * Endpoint: POST /recipes/{recipeId}
@@ -14,6 +14,8 @@ import fit.kltn_cookinote_backend.dtos.request.*;
 import fit.kltn_cookinote_backend.dtos.response.*;
 import fit.kltn_cookinote_backend.entities.Recipe;
 import fit.kltn_cookinote_backend.entities.User;
+import fit.kltn_cookinote_backend.enums.Difficulty;
+import fit.kltn_cookinote_backend.enums.MealType;
 import fit.kltn_cookinote_backend.enums.Privacy;
 import fit.kltn_cookinote_backend.repositories.RecipeRepository;
 import fit.kltn_cookinote_backend.services.*;
@@ -30,8 +32,10 @@ import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.multipart.MultipartHttpServletRequest;
 
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @RestController
@@ -46,6 +50,8 @@ public class RecipeController {
     private final RecipeImportService recipeImportService;
     private final AiRecipeService aiRecipeService;
     private final RecipeRepository recipeRepository;
+    private final RecipeAutocompleteService recipeAutocompleteService;
+    private final CommentService commentService;
 
     @PostMapping("/import-from-url")
     @PreAuthorize("hasAnyRole('USER','ADMIN')")
@@ -126,14 +132,35 @@ public class RecipeController {
         return ResponseEntity.ok(ApiResponse.success("Lấy chi tiết công thức thành công", data, httpReq.getRequestURI()));
     }
 
+    /**
+     * Bình luận gốc của công thức theo trang (cũ nhất trước), mỗi bình luận kèm replyCount và vài trả lời đầu tiên.
+     * GET /recipes/{recipeId}/comments?cursor=&size=10 (gửi lại nextCursor để lấy trang sau;
+     * trả lời còn lại: GET /comments/{commentId}/replies?cursor={repliesCursor})
+     */
+    @GetMapping("/{recipeId}/comments")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<ApiResponse<PageResult<CommentResponse>>> listComments(
+            @AuthenticationPrincipal User authUser,
+            @PathVariable Long recipeId,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", required = false, defaultValue = "10") int size,
+            HttpServletRequest httpReq
+    ) {
+        PageResult<CommentResponse> data = commentService.getCommentThreads(recipeId, authUser.getUserId(), cursor, size);
+        return ResponseEntity.ok(ApiResponse.success("Lấy danh sách bình luận thành công", data, httpReq.getRequestURI()));
+    }
+
     @GetMapping("/categories/{categoryId}")
     public ResponseEntity<ApiResponse<PageResult<RecipeCardResponse>>> listByCategory(
             @PathVariable Long categoryId,
             @RequestParam(value = "page", required = false, defaultValue = "0") int page,
             @RequestParam(value = "size", required = false, defaultValue = "12") int size,
+            @RequestParam(value = "cursor", required = false) String cursor, // Có (kể cả rỗng) => phân trang keyset
             HttpServletRequest httpReq
     ) {
-        PageResult<RecipeCardResponse> data = recipeService.listPublicByCategory(categoryId, page, size);
+        PageResult<RecipeCardResponse> data = cursor != null
+                ? recipeService.listPublicByCategory(categoryId, cursor, size)
+                : recipeService.listPublicByCategory(categoryId, page, size);
         return ResponseEntity.ok(ApiResponse.success("Lấy danh sách công thức theo danh mục thành công", data, httpReq.getRequestURI()));
     }
 
@@ -141,9 +168,12 @@ public class RecipeController {
     public ResponseEntity<ApiResponse<PageResult<RecipeCardResponse>>> listPublic(
             @RequestParam(value = "page", required = false, defaultValue = "0") int page,
             @RequestParam(value = "size", required = false, defaultValue = "12") int size,
+            @RequestParam(value = "cursor", required = false) String cursor, // Có (kể cả rỗng) => phân trang keyset
             HttpServletRequest httpReq
     ) {
-        PageResult<RecipeCardResponse> data = recipeService.listPublic(page, size);
+        PageResult<RecipeCardResponse> data = cursor != null
+                ? recipeService.listPublic(cursor, size)
+                : recipeService.listPublic(page, size);
         return ResponseEntity.ok(ApiResponse.success("Lấy danh sách công thức công khai thành công", data, httpReq.getRequestURI()));
     }
 
@@ -152,6 +182,7 @@ public class RecipeController {
      * - Nếu viewer == owner ⇒ trả PRIVATE + SHARED + PUBLIC
      * - Nếu viewer != owner hoặc ẩn danh ⇒ trả SHARED + PUBLIC
      * GET /recipes/users/{ownerId}?page=0&size=12
+     * GET /recipes/users/{ownerId}?cursor=&size=12 (cuộn vô hạn: gửi lại nextCursor để lấy trang sau, không đếm tổng)
      */
     @GetMapping("/users/{ownerId}")
     public ResponseEntity<ApiResponse<PageResult<RecipeCardResponse>>> listByOwner(
@@ -160,11 +191,14 @@ public class RecipeController {
             @RequestParam(value = "categoryId", required = false) Long categoryId, // [NEW]
             @RequestParam(value = "page", required = false, defaultValue = "0") int page,
             @RequestParam(value = "size", required = false, defaultValue = "12") int size,
+            @RequestParam(value = "cursor", required = false) String cursor, // Có (kể cả rỗng) => phân trang keyset
             HttpServletRequest httpReq
     ) {
         Long viewerId = (authUser != null) ? authUser.getUserId() : null;
         // Truyền categoryId vào service
-        PageResult<RecipeCardResponse> data = recipeService.listByOwner(ownerId, viewerId, categoryId, page, size);
+        PageResult<RecipeCardResponse> data = cursor != null
+                ? recipeService.listByOwner(ownerId, viewerId, categoryId, cursor, size)
+                : recipeService.listByOwner(ownerId, viewerId, categoryId, page, size);
         return ResponseEntity.ok(ApiResponse.success("Lấy danh sách công thức theo chủ sở hữu thành công", data, httpReq.getRequestURI()));
     }
 
@@ -178,10 +212,13 @@ public class RecipeController {
             @RequestParam(value = "categoryId", required = false) Long categoryId, // [NEW]
             @RequestParam(value = "page", required = false, defaultValue = "0") int page,
             @RequestParam(value = "size", required = false, defaultValue = "12") int size,
+            @RequestParam(value = "cursor", required = false) String cursor, // Có (kể cả rỗng) => phân trang keyset
             HttpServletRequest httpReq
     ) {
         // Truyền categoryId vào service
-        PageResult<RecipeCardResponse> data = recipeService.listByOwner(authUser.getUserId(), authUser.getUserId(), categoryId, page, size);
+        PageResult<RecipeCardResponse> data = cursor != null
+                ? recipeService.listByOwner(authUser.getUserId(), authUser.getUserId(), categoryId, cursor, size)
+                : recipeService.listByOwner(authUser.getUserId(), authUser.getUserId(), categoryId, page, size);
         return ResponseEntity.ok(ApiResponse.success("Lấy danh sách công thức của tôi thành công", data, httpReq.getRequestURI()));
     }
 
@@ -427,6 +464,51 @@ public class RecipeController {
         return ResponseEntity.ok(ApiResponse.success("Tìm kiếm công thức thành công", data, httpReq.getRequestURI()));
     }
 
+    /**
+     * Duyệt công thức công khai theo facet, kèm số đếm từng giá trị facet.
+     * Nhiều giá trị trong cùng một tham số là OR, giữa các tham số là AND.
+     * GET /recipes/browse?categoryId=1,2&difficulty=EASY&prepTime=0-15&cookTime=15-30&calories=300-500&mealType=DINNER
+     * Khoảng thời gian (phút): 0-15, 15-30, 30-60, 60-max; khoảng calo: 0-300, 300-500, 500-800, 800-max
+     */
+    @GetMapping("/browse")
+    public ResponseEntity<ApiResponse<RecipeBrowseResponse>> browseRecipes(
+            @RequestParam(value = "categoryId", required = false) List<Long> categoryIds,
+            @RequestParam(value = "difficulty", required = false) List<Difficulty> difficulties,
+            @RequestParam(value = "prepTime", required = false) List<String> prepTimes,
+            @RequestParam(value = "cookTime", required = false) List<String> cookTimes,
+            @RequestParam(value = "calories", required = false) List<String> calories,
+            @RequestParam(value = "mealType", required = false) List<MealType> mealTypes,
+            @RequestParam(value = "page", required = false, defaultValue = "0") int page,
+            @RequestParam(value = "size", required = false, defaultValue = "12") int size,
+            HttpServletRequest httpReq
+    ) {
+        Map<String, Set<String>> filters = new HashMap<>();
+        putFilter(filters, RecipeFacetService.CATEGORY, categoryIds);
+        putFilter(filters, RecipeFacetService.DIFFICULTY, difficulties);
+        putFilter(filters, RecipeFacetService.PREP_TIME, prepTimes);
+        putFilter(filters, RecipeFacetService.COOK_TIME, cookTimes);
+        putFilter(filters, RecipeFacetService.CALORIES, calories);
+        putFilter(filters, RecipeFacetService.MEAL_TYPE, mealTypes);
+
+        RecipeBrowseResponse data = recipeService.browsePublicRecipes(filters, page, size);
+        return ResponseEntity.ok(ApiResponse.success("Duyệt công thức thành công", data, httpReq.getRequestURI()));
+    }
+
+    private static void putFilter(Map<String, Set<String>> filters, String facet, List<?> values) {
+        if (values == null || values.isEmpty()) return;
+        filters.put(facet, values.stream().map(String::valueOf).collect(Collectors.toSet()));
+    }
+
+    @GetMapping("/autocomplete")
+    public ResponseEntity<ApiResponse<List<AutocompleteItem>>> autocomplete(
+            @RequestParam(value = "q", required = false) String q,
+            @RequestParam(value = "limit", required = false, defaultValue = "8") int limit,
+            HttpServletRequest httpReq
+    ) {
+        List<AutocompleteItem> data = recipeAutocompleteService.complete(q, limit);
+        return ResponseEntity.ok(ApiResponse.success("Lấy gợi ý tìm kiếm thành công", data, httpReq.getRequestURI()));
+    }
+
     @GetMapping("/{recipeId}/images/history")
     @PreAuthorize("hasAnyRole('USER','ADMIN')")
     public ResponseEntity<ApiResponse<AllRecipeImagesResponse>> getAllRecipeImages(
@@ -442,12 +524,25 @@ public class RecipeController {
     public ResponseEntity<ApiResponse<PageResult<RecipeCardResponse>>> listPopular(
             @RequestParam(value = "page", required = false, defaultValue = "0") int page,
             @RequestParam(value = "size", required = false, defaultValue = "12") int size,
+            @RequestParam(value = "cursor", required = false) String cursor, // Có (kể cả rỗng) => phân trang keyset
             HttpServletRequest httpReq
     ) {
-        PageResult<RecipeCardResponse> data = recipeService.listPopular(page, size);
+        PageResult<RecipeCardResponse> data = cursor != null
+                ? recipeService.listPopular(cursor, size)
+                : recipeService.listPopular(page, size);
         return ResponseEntity.ok(ApiResponse.success("Lấy danh sách công thức phổ biến thành công", data, httpReq.getRequestURI()));
     }
 
+    @GetMapping("/trending")
+    public ResponseEntity<ApiResponse<PageResult<RecipeCardResponse>>> listTrending(
+            @RequestParam(value = "page", required = false, defaultValue = "0") int page,
+            @RequestParam(value = "size", required = false, defaultValue = "12") int size,
+            HttpServletRequest httpReq
+    ) {
+        PageResult<RecipeCardResponse> data = recipeService.listTrending(page, size);
+        return ResponseEntity.ok(ApiResponse.success("Lấy danh sách công thức thịnh hành thành công", data, httpReq.getRequestURI()));
+    }
+
     @GetMapping("/easy-to-cook")
     public ResponseEntity<ApiResponse<PageResult<RecipeCardResponse>>> listEasyToCook(
             @RequestParam(value = "page", required = false, defaultValue = "0") int page,
@@ -602,13 +697,16 @@ public class RecipeController {
             @RequestParam(value = "deleted", required = false) Boolean deleted,
             @RequestParam(value = "page", required = false, defaultValue = "0") int page,
             @RequestParam(value = "size", required = false, defaultValue = "12") int size,
+            @RequestParam(value = "cursor", required = false) String cursor, // Có (kể cả rỗng) => phân trang keyset
             HttpServletRequest httpReq
     ) {
         // Nếu không truyền deleted, mặc định là false (chỉ lấy active) trừ khi là Admin muốn xem tất cả
         // Tuy nhiên để linh hoạt, Service đã xử lý logic mặc định.
         // Ở đây ta truyền nguyên bản null nếu client không gửi.
 
-        PageResult<RecipeCardResponse> data = recipeService.filterRecipes(authUser, userId, privacy, deleted, page, size);
+        PageResult<RecipeCardResponse> data = cursor != null
+                ? recipeService.filterRecipes(authUser, userId, privacy, deleted, cursor, size)
+                : recipeService.filterRecipes(authUser, userId, privacy, deleted, page, size);
 
         return ResponseEntity.ok(ApiResponse.success("Lấy danh sách công thức thành công", data, httpReq.getRequestURI()));
     }
@@ -0,0 +1,24 @@
+/*
+ * @ (#) AutocompleteItem.java    1.0    30/12/2025
+ * Copyright (c) 2025 IUH. All rights reserved.
+ */
+package fit.kltn_cookinote_backend.dtos.response;/*
+ * @description:
+ * @author: Bao Thong
+ * @date: 30/12/2025
+ * @version: 1.0
+ */
+
+import fit.kltn_cookinote_backend.enums.AutocompleteType;
+
+/**
+ * Một gợi ý khi gõ: tiêu đề công thức, tên nguyên liệu hoặc tên danh mục.
+ *
+ * @param id recipeId / categoryId; null với nguyên liệu
+ */
+public record AutocompleteItem(
+        String text,
+        AutocompleteType type,
+        Long id
+) {
+}
@@ -14,7 +14,10 @@ import fit.kltn_cookinote_backend.entities.User;
 import lombok.Builder;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Builder
@@ -28,7 +31,10 @@ public record CommentResponse(
         String authorAvatar,
         LocalDateTime createdAt,
         LocalDateTime updatedAt,
-        List<CommentResponse> replies
+        List<CommentResponse> replies,
+        // Chỉ có ở API phân trang: số trả lời trực tiếp và cursor để tải tiếp các trả lời chưa kèm theo
+        Long replyCount,
+        String repliesCursor
 ) {
     /**
      * Phương thức đệ quy để chuyển đổi Entity sang DTO,
@@ -39,8 +45,6 @@ public record CommentResponse(
             return null;
         }
 
-        User author = comment.getUser();
-
         // Chuyển đổi đệ quy các replies
         List<CommentResponse> replyDtos = comment.getReplies() != null
                 ? comment.getReplies().stream()
@@ -48,6 +52,54 @@ public record CommentResponse(
                 .collect(Collectors.toList())
                 : List.of(); // Trả về danh sách rỗng nếu không có replies
 
+        return node(comment, replyDtos);
+    }
+
+    /**
+     * Dựng cây bình luận từ danh sách phẳng mọi cấp (đã sắp theo thời gian tạo) mà không chạm tới
+     * collection 'replies' của entity: map id -> node, rồi gắn từng node vào danh sách replies của cha.
+     *
+     * @return Các bình luận gốc; replies của mỗi node giữ thứ tự của danh sách đầu vào
+     */
+    public static List<CommentResponse> treeOf(List<RecipeComment> comments) {
+        Map<Long, CommentResponse> byId = new HashMap<>(comments.size() * 2);
+        for (RecipeComment comment : comments) {
+            byId.put(comment.getId(), node(comment, new ArrayList<>()));
+        }
+
+        List<CommentResponse> roots = new ArrayList<>();
+        for (RecipeComment comment : comments) {
+            CommentResponse node = byId.get(comment.getId());
+            if (node.parentId() == null) {
+                roots.add(node);
+                continue;
+            }
+            CommentResponse parent = byId.get(node.parentId());
+            if (parent != null) {
+                parent.replies().add(node);
+            }
+        }
+        return roots;
+    }
+
+    /**
+     * Một bình luận trong API phân trang: kèm số trả lời trực tiếp và một phần trả lời (không đệ quy).
+     */
+    public static CommentResponse thread(RecipeComment comment, long replyCount, List<CommentResponse> replies,
+                                         String repliesCursor) {
+        return base(comment)
+                .replies(replies)
+                .replyCount(replyCount)
+                .repliesCursor(repliesCursor)
+                .build();
+    }
+
+    private static CommentResponse node(RecipeComment comment, List<CommentResponse> replies) {
+        return base(comment).replies(replies).build();
+    }
+
+    private static CommentResponseBuilder base(RecipeComment comment) {
+        User author = comment.getUser();
         return CommentResponse.builder()
                 .id(comment.getId())
                 .recipeId(comment.getRecipe() != null ? comment.getRecipe().getId() : null)
@@ -57,8 +109,6 @@ public record CommentResponse(
                 .authorName(author != null ? author.getDisplayName() : "Người dùng ẩn")
                 .authorAvatar(author != null ? author.getAvatarUrl() : null)
                 .createdAt(comment.getCreatedAt())
-                .updatedAt(comment.getUpdatedAt())
-                .replies(replyDtos)
-                .build();
+                .updatedAt(comment.getUpdatedAt());
     }
 }
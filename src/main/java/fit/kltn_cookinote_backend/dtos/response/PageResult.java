@@ -20,8 +20,20 @@ public record PageResult<T>(
         long totalElements,
         int totalPages,
         boolean hasNext,
-        List<T> items
+        List<T> items,
+        String nextCursor  // chỉ có ở chế độ cursor (keyset); null nếu hết dữ liệu hoặc phân trang theo page
 ) {
+    public PageResult(int page, int size, long totalElements, int totalPages, boolean hasNext, List<T> items) {
+        this(page, size, totalElements, totalPages, hasNext, items, null);
+    }
+
+    /**
+     * Trang theo cursor: không chạy count(*) nên totalElements/totalPages = -1 (không xác định).
+     */
+    public static <T> PageResult<T> ofCursor(int size, List<T> items, String nextCursor) {
+        return new PageResult<>(0, size, -1, -1, nextCursor != null, items, nextCursor);
+    }
+
     public static <T> PageResult<T> of(org.springframework.data.domain.Page<T> p) {
         return new PageResult<>(
                 p.getNumber(),
@@ -0,0 +1,24 @@
+/*
+ * @ (#) RecipeBrowseResponse.java    1.0    30/12/2025
+ * Copyright (c) 2025 IUH. All rights reserved.
+ */
+package fit.kltn_cookinote_backend.dtos.response;/*
+ * @description:
+ * @author: Bao Thong
+ * @date: 30/12/2025
+ * @version: 1.0
+ */
+
+import java.util.Map;
+
+/**
+ * Kết quả duyệt công thức theo facet.
+ *
+ * @param facets Key: facet (category, difficulty, prepTime, cookTime, calories, mealType),
+ *               Value: số công thức theo từng giá trị (đã áp dụng bộ lọc của các facet khác)
+ */
+public record RecipeBrowseResponse(
+        PageResult<RecipeCardResponse> recipes,
+        Map<String, Map<String, Integer>> facets
+) {
+}
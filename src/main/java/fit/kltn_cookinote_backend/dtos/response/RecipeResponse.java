@@ -19,7 +19,7 @@ import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 
-@Builder
+@Builder(toBuilder = true)
 public record RecipeResponse(
         Long id,
         Long ownerId,
@@ -33,6 +33,9 @@ public record RecipeResponse(
         Difficulty difficulty,
         String imageUrl,
         Long view,
+        // Số người xem khác nhau (ước lượng HyperLogLog), chỉ có ở API chi tiết
+        Long uniqueViewers,
+        Long uniqueViewersToday,
         LocalDateTime createdAt,
         Boolean isFavorited,
         Double averageRating,
@@ -43,7 +46,9 @@ public record RecipeResponse(
         Integer servings,
         List<IngredientDto> ingredients,
         List<StepDto> steps,
-        List<CommentResponse> comments
+        // Chỉ là trang bình luận đầu tiên; trang sau: GET /recipes/{id}/comments?cursor={commentsCursor}
+        List<CommentResponse> comments,
+        String commentsCursor
 ) {
     @Builder
     public record IngredientDto(Long id, String name, String quantity) {
@@ -0,0 +1,26 @@
+/*
+ * @ (#) VectorRecallReport.java    1.0    24/12/2025
+ * Copyright (c) 2025 IUH. All rights reserved.
+ */
+package fit.kltn_cookinote_backend.dtos.response;/*
+ * @description:
+ * @author: Bao Thong
+ * @date: 24/12/2025
+ * @version: 1.0
+ */
+
+import lombok.Builder;
+
+@Builder
+public record VectorRecallReport(
+        String indexType,
+        int indexSize,
+        int sampleQueries,
+        int k,
+        double recall,              // Tỉ lệ kết quả trùng với tìm kiếm chính xác (0..1)
+        double avgApproxLatencyMs,  // Độ trễ trung bình của chỉ mục đang dùng
+        double avgExactLatencyMs,   // Độ trễ trung bình khi quét toàn bộ
+        Double quantizedOnlyRecall,       // Chỉ với chỉ mục int8: recall khi không xếp hạng lại
+        Double avgQuantizedOnlyLatencyMs  // Chỉ với chỉ mục int8: độ trễ của riêng bước quét lượng tử
+) {
+}
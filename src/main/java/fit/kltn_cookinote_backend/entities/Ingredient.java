@@ -0,0 +1,35 @@
+/*
+ * @ (#) Ingredient.java    1.0    30/12/2025
+ * Copyright (c) 2025 IUH. All rights reserved.
+ */
+package fit.kltn_cookinote_backend.entities;/*
+ * @description:
+ * @author: Bao Thong
+ * @date: 30/12/2025
+ * @version: 1.0
+ */
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Từ điển nguyên liệu chuẩn: mỗi tên chuẩn (đã normalize và quy về tên gốc qua IngredientSynonymService)
+ * có một id số nguyên, được recipe_ingredient và shopping_list tham chiếu qua cột ingredient_id.
+ */
+@Entity
+@Table(name = "ingredient",
+        uniqueConstraints = @UniqueConstraint(name = "uk_ingredient_name", columnNames = "name"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class Ingredient {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Tên chuẩn không dấu, chữ thường, ví dụ "bot mi"
+    @Column(length = 100, nullable = false)
+    private String name;
+}
@@ -9,7 +9,6 @@ package fit.kltn_cookinote_backend.entities;/*
  * @version: 1.0
  */
 
-import com.fasterxml.jackson.annotation.JsonIgnore;
 import fit.kltn_cookinote_backend.enums.Difficulty;
 import fit.kltn_cookinote_backend.enums.Privacy;
 import jakarta.persistence.*;
@@ -26,7 +25,12 @@ import java.util.*;
 
 @Entity
 @Table(name = "recipe", indexes = {
-        @Index(name = "idx_recipe_title", columnList = "title")
+        @Index(name = "idx_recipe_title", columnList = "title"),
+        // Phân trang keyset: điều kiện lọc + khóa sắp xếp (created_at/view, id) nằm trọn trong index
+        @Index(name = "idx_recipe_privacy_created", columnList = "privacy, deleted, created_at, id"),
+        @Index(name = "idx_recipe_category_created", columnList = "category_id, privacy, deleted, created_at, id"),
+        @Index(name = "idx_recipe_user_created", columnList = "user_id, deleted, created_at, id"),
+        @Index(name = "idx_recipe_privacy_view", columnList = "privacy, deleted, view, id")
 })
 @Getter
 @Setter
@@ -108,10 +112,10 @@ public class Recipe {
     @Column(name = "servings")
     private Integer servings;
 
-    // Lưu vector embedding dưới dạng chuỗi JSON (ví dụ: "[0.01, -0.2, ...]")
-    @JsonIgnore // Không trả về frontend
-    @Column(name = "embedding_vector", columnDefinition = "json")
-    private String embeddingVector;
+    // Tên nguyên liệu ghép sẵn, phục vụ chỉ mục FULLTEXT (title, description, ingredient_text).
+    // Chỉ được ghi bằng RecipeRepository.syncIngredientText để Hibernate không ghi đè giá trị cũ.
+    @Column(name = "ingredient_text", columnDefinition = "TEXT", insertable = false, updatable = false)
+    private String ingredientText;
 
     // children
     @OneToMany(mappedBy = "recipe", cascade = CascadeType.ALL, orphanRemoval = true)
@@ -21,7 +21,11 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "recipe_comment")
+@Table(name = "recipe_comment", indexes = {
+        // Phân trang keyset: bình luận gốc của recipe và trả lời của một bình luận, theo (created_at, id)
+        @Index(name = "idx_comment_recipe_parent_created", columnList = "recipe_id, parent_id, created_at, id"),
+        @Index(name = "idx_comment_parent_created", columnList = "parent_id, created_at, id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
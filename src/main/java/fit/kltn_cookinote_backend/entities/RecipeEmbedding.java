@@ -0,0 +1,63 @@
+/*
+ * @ (#) RecipeEmbedding.java    1.0    23/12/2025
+ * Copyright (c) 2025 IUH. All rights reserved.
+ */
+package fit.kltn_cookinote_backend.entities;/*
+ * @description:
+ * @author: Bao Thong
+ * @date: 23/12/2025
+ * @version: 1.0
+ */
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Vector embedding của recipe, tách riêng khỏi bảng recipe
+ * để các truy vấn danh sách không phải đọc/hydrate dữ liệu vector nặng.
+ */
+@Entity
+@Table(name = "recipe_embedding")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RecipeEmbedding {
+    @Id
+    @Column(name = "recipe_id")
+    private Long recipeId;
+
+    @MapsId
+    @OneToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "recipe_id")
+    @OnDelete(action = OnDeleteAction.CASCADE) // Xóa cứng recipe thì xóa luôn embedding
+    private Recipe recipe;
+
+    // Nhị phân float32 little-endian (xem VectorCodec)
+    @Column(name = "vector", nullable = false, columnDefinition = "blob")
+    private byte[] vector;
+
+    // SHA-256 của chuỗi ngữ nghĩa đã dùng để tạo vector (bỏ qua gọi API nếu nội dung không đổi)
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    // Tăng mỗi khi nội dung recipe bị sửa; vector cần tạo lại khi embeddedVersion < contentVersion
+    @Column(name = "content_version", nullable = false, columnDefinition = "bigint not null default 0")
+    @Builder.Default
+    private long contentVersion = 0;
+
+    // contentVersion tại thời điểm đọc nội dung để tạo vector hiện tại
+    @Column(name = "embedded_version", nullable = false, columnDefinition = "bigint not null default 0")
+    @Builder.Default
+    private long embeddedVersion = 0;
+
+    @Column(name = "updated_at")
+    @UpdateTimestamp
+    private LocalDateTime updatedAt;
+}
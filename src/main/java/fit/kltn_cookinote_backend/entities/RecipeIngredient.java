@@ -33,4 +33,9 @@ public class RecipeIngredient {
 
     @Column(length = 50)
     private String quantity;
+
+    // Nguyên liệu chuẩn tương ứng với name (null nếu chưa được liên kết, job backfill sẽ bổ sung)
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "ingredient_id")
+    private Ingredient canonicalIngredient;
 }
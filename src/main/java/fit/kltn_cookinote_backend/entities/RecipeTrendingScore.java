@@ -0,0 +1,38 @@
+/*
+ * @ (#) RecipeTrendingScore.java    1.0    30/12/2025
+ * Copyright (c) 2025 IUH. All rights reserved.
+ */
+package fit.kltn_cookinote_backend.entities;/*
+ * @description:
+ * @author: Bao Thong
+ * @date: 30/12/2025
+ * @version: 1.0
+ */
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Checkpoint điểm xu hướng (đã suy giảm theo thời gian) của recipe, để khởi động lại không mất trạng thái.
+ * Bảng được ghi đè toàn bộ bởi RecipeTrendingService, không cập nhật theo từng tương tác.
+ */
+@Entity
+@Table(name = "recipe_trending_score")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RecipeTrendingScore {
+    @Id
+    @Column(name = "recipe_id")
+    private Long recipeId;
+
+    // Điểm tại thời điểm checkpoint
+    @Column(nullable = false)
+    private Double score;
+
+    // Thời điểm checkpoint (epoch millis, không phụ thuộc múi giờ)
+    @Column(name = "checkpoint_at_ms", nullable = false)
+    private Long checkpointAtMs;
+}
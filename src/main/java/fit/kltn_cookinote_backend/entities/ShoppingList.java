@@ -38,6 +38,11 @@ public class ShoppingList {
     @Column(length = 50)
     private String quantity;
 
+    // Nguyên liệu chuẩn tương ứng với ingredient (null nếu chưa được liên kết, job backfill sẽ bổ sung)
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "ingredient_id")
+    private Ingredient canonicalIngredient;
+
     @Builder.Default
     @Column
     private Boolean checked = false;
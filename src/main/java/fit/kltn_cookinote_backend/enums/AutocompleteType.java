@@ -0,0 +1,7 @@
+package fit.kltn_cookinote_backend.enums;
+
+public enum AutocompleteType {
+    RECIPE,
+    INGREDIENT,
+    CATEGORY
+}
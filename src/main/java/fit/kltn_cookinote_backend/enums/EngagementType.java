@@ -0,0 +1,20 @@
+package fit.kltn_cookinote_backend.enums;
+
+// Trọng số của mỗi loại tương tác khi tính điểm xu hướng (trending)
+public enum EngagementType {
+    VIEW(1.0),
+    COMMENT(2.0),
+    RATING(3.0),
+    FAVORITE(4.0),
+    COOKED(5.0);
+
+    private final double weight;
+
+    EngagementType(double weight) {
+        this.weight = weight;
+    }
+
+    public double getWeight() {
+        return weight;
+    }
+}
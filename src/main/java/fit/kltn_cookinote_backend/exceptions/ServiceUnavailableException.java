@@ -0,0 +1,25 @@
+/*
+ * @ (#) ServiceUnavailableException.java    1.0    30/12/2025
+ * Copyright (c) 2025 IUH. All rights reserved.
+ */
+package fit.kltn_cookinote_backend.exceptions;/*
+ * @description:
+ * @author: Bao Thong
+ * @date: 30/12/2025
+ * @version: 1.0
+ */
+
+import lombok.Getter;
+
+/**
+ * Tính năng tạm thời chưa phục vụ được (vd. chỉ mục trong bộ nhớ chưa nạp xong), client nên thử lại sau.
+ */
+@Getter
+public class ServiceUnavailableException extends RuntimeException {
+    private final long retryAfterSeconds;
+
+    public ServiceUnavailableException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
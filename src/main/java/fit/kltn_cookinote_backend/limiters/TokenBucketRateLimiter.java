@@ -0,0 +1,60 @@
+/*
+ * @ (#) TokenBucketRateLimiter.java    1.0    28/12/2025
+ * Copyright (c) 2025 IUH. All rights reserved.
+ */
+package fit.kltn_cookinote_backend.limiters;/*
+ * @description:
+ * @author: Bao Thong
+ * @date: 28/12/2025
+ * @version: 1.0
+ */
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket trong bộ nhớ (một JVM), dùng để điều tiết lời gọi ra API ngoài theo quota.
+ * - Token được nạp đều với tốc độ permitsPerSecond, tích tối đa capacity token (cho phép burst).
+ * - acquire() đặt trước token rồi ngủ bên ngoài khóa cho đến khi tới lượt, nên nhiều luồng
+ * cùng chờ vẫn được phục vụ theo thứ tự và tổng tốc độ không vượt quota.
+ */
+public class TokenBucketRateLimiter {
+
+    private final double permitsPerNano;
+    private final double capacity;
+
+    private double available;
+    private long lastRefillNanos;
+
+    public TokenBucketRateLimiter(double permitsPerSecond, double capacity) {
+        if (permitsPerSecond <= 0) throw new IllegalArgumentException("permitsPerSecond phải > 0");
+        this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.capacity = Math.max(capacity, 1);
+        this.available = this.capacity;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Chặn cho đến khi đủ permits token.
+     *
+     * @return Thời gian đã chờ (nano giây)
+     */
+    public long acquire(int permits) throws InterruptedException {
+        long waitNanos = reserve(permits);
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+        return waitNanos;
+    }
+
+    /**
+     * Trừ token ngay (cho phép âm) và trả về thời gian phải chờ để bù phần thiếu.
+     */
+    private synchronized long reserve(int permits) {
+        long now = System.nanoTime();
+        available = Math.min(capacity, available + (now - lastRefillNanos) * permitsPerNano);
+        lastRefillNanos = now;
+
+        available -= permits;
+        return available >= 0 ? 0 : (long) Math.ceil(-available / permitsPerNano);
+    }
+}
@@ -0,0 +1,20 @@
+/*
+ * @ (#) LegacyEmbeddingInfo.java    1.0    22/12/2025
+ * Copyright (c) 2025 IUH. All rights reserved.
+ */
+package fit.kltn_cookinote_backend.projections;/*
+ * @description:
+ * @author: Bao Thong
+ * @date: 22/12/2025
+ * @version: 1.0
+ */
+
+/**
+ * Projection cho embedding còn nằm trên bảng recipe (định dạng JSON hoặc BLOB cũ),
+ * chờ được chuyển sang bảng recipe_embedding.
+ */
+public interface LegacyEmbeddingInfo {
+    Long getId();
+    byte[] getEmbedding();
+    String getEmbeddingVector();
+}
@@ -0,0 +1,18 @@
+/*
+ * @ (#) RecipeAutocompleteInfo.java    1.0    30/12/2025
+ * Copyright (c) 2025 IUH. All rights reserved.
+ */
+package fit.kltn_cookinote_backend.projections;/*
+ * @description:
+ * @author: Bao Thong
+ * @date: 30/12/2025
+ * @version: 1.0
+ */
+
+public interface RecipeAutocompleteInfo {
+    Long getId();
+    String getTitle();
+    Long getView();
+    Double getAverageRating();
+    Long getCategoryId();
+}
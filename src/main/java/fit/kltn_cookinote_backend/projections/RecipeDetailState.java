@@ -0,0 +1,27 @@
+/*
+ * @ (#) RecipeDetailState.java    1.0    30/12/2025
+ * Copyright (c) 2025 IUH. All rights reserved.
+ */
+package fit.kltn_cookinote_backend.projections;/*
+ * @description:
+ * @author: Bao Thong
+ * @date: 30/12/2025
+ * @version: 1.0
+ */
+
+import fit.kltn_cookinote_backend.enums.Privacy;
+
+import java.time.LocalDateTime;
+
+public interface RecipeDetailState {
+    Long getId();
+    Long getOwnerId();
+    Privacy getPrivacy();
+    Long getView();
+    LocalDateTime getUpdatedAt();
+    Double getAverageRating();
+    Integer getRatingCount();
+    Integer getCommentCount();
+    Integer getCalories();
+    Integer getServings();
+}
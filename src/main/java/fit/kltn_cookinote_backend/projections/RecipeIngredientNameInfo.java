@@ -0,0 +1,15 @@
+/*
+ * @ (#) RecipeIngredientNameInfo.java    1.0    29/12/2025
+ * Copyright (c) 2025 IUH. All rights reserved.
+ */
+package fit.kltn_cookinote_backend.projections;/*
+ * @description:
+ * @author: Bao Thong
+ * @date: 29/12/2025
+ * @version: 1.0
+ */
+
+public interface RecipeIngredientNameInfo {
+    Long getRecipeId();
+    String getName();
+}
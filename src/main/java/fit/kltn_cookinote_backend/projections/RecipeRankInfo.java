@@ -0,0 +1,21 @@
+/*
+ * @ (#) RecipeRankInfo.java    1.0    30/12/2025
+ * Copyright (c) 2025 IUH. All rights reserved.
+ */
+package fit.kltn_cookinote_backend.projections;/*
+ * @description:
+ * @author: Bao Thong
+ * @date: 30/12/2025
+ * @version: 1.0
+ */
+
+import fit.kltn_cookinote_backend.enums.Difficulty;
+
+public interface RecipeRankInfo {
+    Long getId();
+    Long getView();
+    Difficulty getDifficulty();
+    Integer getPrepareTime();
+    Integer getCookTime();
+    Long getIngredientCount();
+}
@@ -15,5 +15,5 @@ public interface RecipeVectorInfo {
     Long getId();
     Long getOwnerId(); // Alias từ r.user.userId
     Privacy getPrivacy();
-    String getEmbeddingVector();
+    byte[] getEmbedding(); // float32 LE, giải mã bằng VectorCodec
 }
@@ -10,22 +10,65 @@ package fit.kltn_cookinote_backend.repositories;/*
  */
 
 import fit.kltn_cookinote_backend.entities.RecipeComment;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface RecipeCommentRepository extends JpaRepository<RecipeComment, Long> {
 
     /**
-     * Tìm tất cả bình luận gốc (parent is null) cho một công thức,
+     * Tìm tất cả bình luận (mọi cấp, cả gốc lẫn trả lời) của một công thức trong một truy vấn,
      * sắp xếp theo thời gian tạo cũ nhất trước (để hiển thị đúng thứ tự).
-     * Sử dụng JOIN FETCH để tải luôn thông tin User (tác giả).
+     * Sử dụng JOIN FETCH để tải luôn thông tin User (tác giả); cây cha/con được dựng trong bộ nhớ (CommentResponse.treeOf).
      */
-    @Query("SELECT c FROM RecipeComment c LEFT JOIN FETCH c.user WHERE c.recipe.id = :recipeId AND c.parent IS NULL ORDER BY c.createdAt ASC")
-    List<RecipeComment> findTopLevelCommentsByRecipeId(@Param("recipeId") Long recipeId);
+    @Query("SELECT c FROM RecipeComment c LEFT JOIN FETCH c.user WHERE c.recipe.id = :recipeId ORDER BY c.createdAt ASC, c.id ASC")
+    List<RecipeComment> findAllByRecipeIdWithUser(@Param("recipeId") Long recipeId);
+
+    /**
+     * Trang bình luận gốc của một công thức (keyset theo createdAt, id tăng dần), kèm tác giả.
+     */
+    @Query("SELECT c FROM RecipeComment c LEFT JOIN FETCH c.user WHERE c.recipe.id = :recipeId AND c.parent IS NULL " +
+            "AND (c.createdAt > :createdAt OR (c.createdAt = :createdAt AND c.id > :id)) " +
+            "ORDER BY c.createdAt ASC, c.id ASC")
+    List<RecipeComment> findTopLevelAfter(@Param("recipeId") Long recipeId,
+                                          @Param("createdAt") LocalDateTime createdAt,
+                                          @Param("id") Long id,
+                                          Pageable pageable);
+
+    /**
+     * Trang trả lời trực tiếp của một bình luận (keyset theo createdAt, id tăng dần), kèm tác giả.
+     */
+    @Query("SELECT c FROM RecipeComment c LEFT JOIN FETCH c.user WHERE c.parent.id = :parentId " +
+            "AND (c.createdAt > :createdAt OR (c.createdAt = :createdAt AND c.id > :id)) " +
+            "ORDER BY c.createdAt ASC, c.id ASC")
+    List<RecipeComment> findRepliesAfter(@Param("parentId") Long parentId,
+                                         @Param("createdAt") LocalDateTime createdAt,
+                                         @Param("id") Long id,
+                                         Pageable pageable);
+
+    /**
+     * Id của tối đa perParent trả lời đầu tiên (cũ nhất) của mỗi bình luận cha, trong một truy vấn (ROW_NUMBER, MySQL 8).
+     */
+    @Query(value = "SELECT t.id FROM (" +
+            "SELECT c.id, ROW_NUMBER() OVER (PARTITION BY c.parent_id ORDER BY c.created_at, c.id) AS rn " +
+            "FROM recipe_comment c WHERE c.parent_id IN (:parentIds)) t " +
+            "WHERE t.rn <= :perParent", nativeQuery = true)
+    List<Long> findFirstReplyIds(@Param("parentIds") Collection<Long> parentIds, @Param("perParent") int perParent);
+
+    @Query("SELECT c FROM RecipeComment c LEFT JOIN FETCH c.user WHERE c.id IN :ids ORDER BY c.createdAt ASC, c.id ASC")
+    List<RecipeComment> findAllWithUserByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Số trả lời trực tiếp của từng bình luận: mỗi dòng là [parentId, count].
+     */
+    @Query("SELECT c.parent.id, COUNT(c) FROM RecipeComment c WHERE c.parent.id IN :parentIds GROUP BY c.parent.id")
+    List<Object[]> countRepliesByParentIds(@Param("parentIds") Collection<Long> parentIds);
 
     /**
      * Tải một bình luận và tất cả các trả lời của nó (một cách đệ quy)
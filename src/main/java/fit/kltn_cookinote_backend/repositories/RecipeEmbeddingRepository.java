@@ -0,0 +1,83 @@
+/*
+ * @ (#) RecipeEmbeddingRepository.java    1.0    23/12/2025
+ * Copyright (c) 2025 IUH. All rights reserved.
+ */
+package fit.kltn_cookinote_backend.repositories;/*
+ * @description:
+ * @author: Bao Thong
+ * @date: 23/12/2025
+ * @version: 1.0
+ */
+
+import fit.kltn_cookinote_backend.entities.RecipeEmbedding;
+import fit.kltn_cookinote_backend.projections.EmbeddingStateInfo;
+import fit.kltn_cookinote_backend.projections.LegacyEmbeddingInfo;
+import fit.kltn_cookinote_backend.projections.RecipeAccessInfo;
+import fit.kltn_cookinote_backend.projections.RecipeVectorInfo;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface RecipeEmbeddingRepository extends JpaRepository<RecipeEmbedding, Long> {
+
+    // Chỉ lấy các trường cần thiết để nạp chỉ mục vector (không hydrate entity Recipe)
+    @Query("SELECT r.id as id, r.user.userId as ownerId, r.privacy as privacy, e.vector as embedding " +
+            "FROM RecipeEmbedding e JOIN e.recipe r " +
+            "WHERE r.deleted = false")
+    List<RecipeVectorInfo> findAllVectorProjections();
+
+    // Projection vector của một recipe (dùng để cập nhật từng phần chỉ mục vector trong bộ nhớ)
+    @Query("SELECT r.id as id, r.user.userId as ownerId, r.privacy as privacy, e.vector as embedding " +
+            "FROM RecipeEmbedding e JOIN e.recipe r " +
+            "WHERE r.id = :id AND r.deleted = false")
+    Optional<RecipeVectorInfo> findVectorProjectionById(@Param("id") Long id);
+
+    // --- Đồng bộ bù khi khởi động từ snapshot ---
+
+    // Owner/quyền riêng tư của mọi recipe còn sống có embedding (không kèm vector)
+    @Query("SELECT r.id as id, r.user.userId as ownerId, r.privacy as privacy " +
+            "FROM RecipeEmbedding e JOIN e.recipe r " +
+            "WHERE r.deleted = false")
+    List<RecipeAccessInfo> findAllAccessInfo();
+
+    @Query("SELECT r.id as id, r.user.userId as ownerId, r.privacy as privacy, e.vector as embedding " +
+            "FROM RecipeEmbedding e JOIN e.recipe r " +
+            "WHERE r.deleted = false AND e.updatedAt > :since")
+    List<RecipeVectorInfo> findVectorProjectionsUpdatedSince(@Param("since") LocalDateTime since);
+
+    @Query("SELECT r.id as id, r.user.userId as ownerId, r.privacy as privacy, e.vector as embedding " +
+            "FROM RecipeEmbedding e JOIN e.recipe r " +
+            "WHERE r.deleted = false AND r.id IN :ids")
+    List<RecipeVectorInfo> findVectorProjectionsByIds(@Param("ids") Collection<Long> ids);
+
+    // --- Tạo lại embedding khi nội dung recipe thay đổi ---
+
+    // Đánh dấu vector đã cũ; job embedding sẽ so content hash và chỉ gọi API nếu chuỗi ngữ nghĩa thật sự đổi
+    @Modifying
+    @Query("UPDATE RecipeEmbedding e SET e.contentVersion = e.contentVersion + 1 WHERE e.recipeId = :recipeId")
+    int markContentChanged(@Param("recipeId") Long recipeId);
+
+    @Query("SELECT e.recipeId as id, e.contentHash as contentHash, e.contentVersion as contentVersion " +
+            "FROM RecipeEmbedding e WHERE e.recipeId IN :ids")
+    List<EmbeddingStateInfo> findEmbeddingStates(@Param("ids") Collection<Long> ids);
+
+    // --- Chuyển dữ liệu cũ: các cột embedding_vector (JSON) / embedding (BLOB) trên bảng recipe ---
+    // Các cột này không còn được map trong entity nên phải dùng native query.
+
+    @Query(value = "SELECT r.id AS id, r.embedding AS embedding, " +
+            "CAST(r.embedding_vector AS CHAR) AS embeddingVector " +
+            "FROM recipe r " +
+            "WHERE r.embedding IS NOT NULL OR r.embedding_vector IS NOT NULL " +
+            "ORDER BY r.id ASC LIMIT :limit", nativeQuery = true)
+    List<LegacyEmbeddingInfo> findLegacyEmbeddings(@Param("limit") int limit);
+
+    @Modifying
+    @Query(value = "UPDATE recipe SET embedding = NULL, embedding_vector = NULL WHERE id IN (:ids)", nativeQuery = true)
+    int clearLegacyEmbeddings(@Param("ids") Collection<Long> ids);
+}
@@ -10,10 +10,21 @@ package fit.kltn_cookinote_backend.repositories;/*
  */
 
 import fit.kltn_cookinote_backend.entities.RecipeIngredient;
+import fit.kltn_cookinote_backend.projections.RecipeIngredientNameInfo;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 
 public interface RecipeIngredientRepository extends JpaRepository<RecipeIngredient, Long> {
     List<RecipeIngredient> findByRecipe_IdOrderByIdAsc(Long recipeId);
+
+    // Tên nguyên liệu của mọi recipe PUBLIC chưa xóa (nạp chỉ mục tìm kiếm)
+    @Query("SELECT i.recipe.id as recipeId, i.name as name FROM RecipeIngredient i " +
+            "WHERE i.recipe.privacy = 'PUBLIC' AND i.recipe.deleted = false")
+    List<RecipeIngredientNameInfo> findAllPublicIngredientNames();
+
+    @Query("SELECT i.name FROM RecipeIngredient i WHERE i.recipe.id = :recipeId")
+    List<String> findNamesByRecipeId(@Param("recipeId") Long recipeId);
 }
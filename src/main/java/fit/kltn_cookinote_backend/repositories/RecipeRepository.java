@@ -10,8 +10,12 @@ package fit.kltn_cookinote_backend.repositories;/*
  */
 
 import fit.kltn_cookinote_backend.entities.Recipe;
+import fit.kltn_cookinote_backend.entities.RecipeStep;
 import fit.kltn_cookinote_backend.enums.Privacy;
-import fit.kltn_cookinote_backend.projections.RecipeVectorInfo;
+import fit.kltn_cookinote_backend.projections.RecipeAutocompleteInfo;
+import fit.kltn_cookinote_backend.projections.RecipeDetailState;
+import fit.kltn_cookinote_backend.projections.RecipeRankInfo;
+import fit.kltn_cookinote_backend.projections.RecipeSearchInfo;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -19,6 +23,7 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
@@ -37,9 +42,42 @@ public interface RecipeRepository extends JpaRepository<Recipe, Long> {
             """)
     Optional<Recipe> findDetailById(@Param("id") Long id);
 
-    @Modifying
-    @Query("update Recipe r set r.view = coalesce(r.view,0) + 1 where r.id = :id AND r.deleted = false")
-    void incrementViewById(@Param("id") Long id);
+    /**
+     * Tải recipe kèm chủ sở hữu, danh mục, các bước + ảnh của bước và nguyên liệu trong đúng 3 truy vấn,
+     * không phụ thuộc số bước/số ảnh (chỉ join fetch một collection mỗi truy vấn để tránh tích Đề-các và MultipleBagFetchException).
+     * Phải gọi trong transaction: truy vấn 2 và 3 khởi tạo collection của các entity đã được truy vấn 1 đưa vào persistence context.
+     */
+    default Optional<Recipe> findDetailGraphById(Long id) {
+        Optional<Recipe> recipe = findDetailWithStepsById(id);
+        if (recipe.isPresent()) {
+            fetchStepImagesByRecipeId(id);
+            fetchIngredientsById(id);
+        }
+        return recipe;
+    }
+
+    @Query("""
+               select r
+               from Recipe r
+               left join fetch r.user
+               left join fetch r.category
+               left join fetch r.steps
+               where r.id = :id AND r.deleted = false
+            """)
+    Optional<Recipe> findDetailWithStepsById(@Param("id") Long id);
+
+    @Query("select distinct s from RecipeStep s left join fetch s.images where s.recipe.id = :recipeId")
+    List<RecipeStep> fetchStepImagesByRecipeId(@Param("recipeId") Long recipeId);
+
+    @Query("select r from Recipe r left join fetch r.ingredients where r.id = :id")
+    Optional<Recipe> fetchIngredientsById(@Param("id") Long id);
+
+    // Các cột trên dòng recipe mà trang chi tiết cần đọc mới mỗi request (quyền xem, bộ đếm) — không join bảng con
+    @Query("SELECT r.id as id, r.user.userId as ownerId, r.privacy as privacy, r.view as view, r.updatedAt as updatedAt, " +
+            "r.averageRating as averageRating, r.ratingCount as ratingCount, r.commentCount as commentCount, " +
+            "r.calories as calories, r.servings as servings " +
+            "FROM Recipe r WHERE r.id = :id AND r.deleted = false")
+    Optional<RecipeDetailState> findDetailStateById(@Param("id") Long id);
 
     @Query("SELECT r FROM Recipe r WHERE r.category.id = :categoryId AND r.privacy = :privacy AND r.deleted = false")
     Page<Recipe> findByCategory_IdAndPrivacy(@Param("categoryId") Long categoryId, @Param("privacy") Privacy privacy, Pageable pageable);
@@ -79,34 +117,105 @@ public interface RecipeRepository extends JpaRepository<Recipe, Long> {
             """)
     Page<Recipe> searchPublicRecipes(@Param("query") String query, Pageable pageable);
 
+    // --- Tìm kiếm FULLTEXT (ngram parser) trên title, description, ingredient_text ---
+
+    @Query(value = """
+            SELECT r.* FROM recipe r
+            WHERE r.privacy = 'PUBLIC' AND r.deleted = false
+            AND MATCH(r.title, r.description, r.ingredient_text) AGAINST (:query IN NATURAL LANGUAGE MODE)
+            ORDER BY MATCH(r.title, r.description, r.ingredient_text) AGAINST (:query IN NATURAL LANGUAGE MODE) DESC,
+                     r.id DESC
+            """,
+            countQuery = """
+                    SELECT COUNT(*) FROM recipe r
+                    WHERE r.privacy = 'PUBLIC' AND r.deleted = false
+                    AND MATCH(r.title, r.description, r.ingredient_text) AGAINST (:query IN NATURAL LANGUAGE MODE)
+                    """,
+            nativeQuery = true)
+    Page<Recipe> searchPublicRecipesFullText(@Param("query") String query, Pageable pageable);
+
+    /**
+     * Ghép lại tên nguyên liệu của một recipe vào cột ingredient_text (gọi sau khi thêm/sửa/xóa nguyên liệu, trong transaction).
+     */
+    default int syncIngredientText(Long id) {
+        raiseGroupConcatMaxLen();
+        return updateIngredientText(id);
+    }
+
+    /**
+     * Điền ingredient_text cho dữ liệu cũ theo từng lô (trong transaction).
+     */
+    default int backfillIngredientText(int limit) {
+        raiseGroupConcatMaxLen();
+        return updateMissingIngredientText(limit);
+    }
+
+    // GROUP_CONCAT mặc định cắt ở 1024 byte mà không báo lỗi -> nâng bằng sức chứa của cột TEXT (65535 byte)
+    // cho session hiện tại; phải chạy trong cùng transaction (cùng connection) với câu UPDATE
+    @Modifying
+    @Query(value = "SET SESSION group_concat_max_len = 65535", nativeQuery = true)
+    void raiseGroupConcatMaxLen();
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE recipe r SET r.ingredient_text = " +
+            "(SELECT COALESCE(GROUP_CONCAT(i.name ORDER BY i.id SEPARATOR ', '), '') " +
+            "FROM recipe_ingredient i WHERE i.recipe_id = r.id) " +
+            "WHERE r.id = :id", nativeQuery = true)
+    int updateIngredientText(@Param("id") Long id);
+
+    @Modifying
+    @Query(value = "UPDATE recipe r SET r.ingredient_text = " +
+            "(SELECT COALESCE(GROUP_CONCAT(i.name ORDER BY i.id SEPARATOR ', '), '') " +
+            "FROM recipe_ingredient i WHERE i.recipe_id = r.id) " +
+            "WHERE r.ingredient_text IS NULL ORDER BY r.id LIMIT :limit", nativeQuery = true)
+    int updateMissingIngredientText(@Param("limit") int limit);
+
+    // --- Nạp chỉ mục tìm kiếm trong bộ nhớ (chỉ recipe PUBLIC, chưa xóa) ---
+
+    @Query("SELECT r.id as id, r.title as title, r.description as description " +
+            "FROM Recipe r WHERE r.privacy = 'PUBLIC' AND r.deleted = false")
+    List<RecipeSearchInfo> findAllPublicSearchInfo();
+
+    // Dữ liệu dựng trie gợi ý khi gõ (tiêu đề + độ phổ biến)
+    @Query("SELECT r.id as id, r.title as title, r.view as view, r.averageRating as averageRating, " +
+            "r.category.id as categoryId " +
+            "FROM Recipe r WHERE r.privacy = 'PUBLIC' AND r.deleted = false")
+    List<RecipeAutocompleteInfo> findAllPublicAutocompleteInfo();
+
+    @Query("SELECT r.id as id, r.title as title, r.description as description " +
+            "FROM Recipe r WHERE r.id = :id AND r.privacy = 'PUBLIC' AND r.deleted = false")
+    Optional<RecipeSearchInfo> findPublicSearchInfoById(@Param("id") Long id);
+
     Page<Recipe> findByPrivacyAndDeletedFalseOrderByViewDesc(Privacy privacy, Pageable pageable);
 
-    @Query(value = "SELECT r FROM Recipe r LEFT JOIN r.ingredients i WHERE r.deleted = false AND r.privacy = 'PUBLIC' GROUP BY r.id ORDER BY r.difficulty ASC, COUNT(i.id) ASC, r.prepareTime ASC, r.cookTime ASC",
+    // Độ khó xếp theo thứ tự enum (null < EASY < MEDIUM < HARD), khớp với RecipeRankingService.easeScore;
+    // ORDER BY r.difficulty sẽ so sánh chuỗi (EASY < HARD < MEDIUM)
+    @Query(value = "SELECT r FROM Recipe r LEFT JOIN r.ingredients i WHERE r.deleted = false AND r.privacy = 'PUBLIC' GROUP BY r.id " +
+            "ORDER BY CASE WHEN r.difficulty IS NULL THEN 0 WHEN r.difficulty = 'EASY' THEN 1 WHEN r.difficulty = 'MEDIUM' THEN 2 ELSE 3 END ASC, " +
+            "COUNT(i.id) ASC, r.prepareTime ASC, r.cookTime ASC",
             countQuery = "SELECT count(r) FROM Recipe r WHERE r.deleted = false and r.privacy = 'PUBLIC'")
     Page<Recipe> findEasyToCook(Pageable pageable);
 
-    /**
-     * Tìm các công thức công khai (PUBLIC) chứa ít nhất một trong các nguyên liệu
-     * được cung cấp, sắp xếp theo số lượng nguyên liệu khớp nhiều nhất.
-     *
-     * @param ingredientNames Danh sách tên nguyên liệu (từ shopping list).
-     * @param pageable        Giới hạn số lượng trả về (ví dụ: PageRequest.of(0, 20)).
-     * @return Một trang các Recipe ứng viên.
-     */
-    @Query(value = """
-                SELECT r
-                FROM Recipe r
-                JOIN r.ingredients i
-                WHERE r.deleted = false
-                  AND r.privacy = 'PUBLIC'
-                  AND LOWER(i.name) IN :ingredientNames
-                GROUP BY r.id
-                ORDER BY COUNT(DISTINCT i.id) DESC
-            """)
-    Page<Recipe> findCandidateRecipesByIngredients(
-            @Param("ingredientNames") List<String> ingredientNames,
-            Pageable pageable
-    );
+    // Khóa xếp hạng (lượt xem, độ khó, số nguyên liệu, thời gian) của công thức PUBLIC để dựng bảng xếp hạng
+    @Query("SELECT r.id as id, r.view as view, r.difficulty as difficulty, r.prepareTime as prepareTime, " +
+            "r.cookTime as cookTime, COUNT(i.id) as ingredientCount " +
+            "FROM Recipe r LEFT JOIN r.ingredients i " +
+            "WHERE r.deleted = false AND r.privacy = 'PUBLIC' GROUP BY r.id")
+    List<RecipeRankInfo> findAllPublicRankInfo();
+
+    @Query("SELECT r.id as id, r.view as view, r.difficulty as difficulty, r.prepareTime as prepareTime, " +
+            "r.cookTime as cookTime, COUNT(i.id) as ingredientCount " +
+            "FROM Recipe r LEFT JOIN r.ingredients i " +
+            "WHERE r.id = :id AND r.deleted = false AND r.privacy = 'PUBLIC' GROUP BY r.id")
+    Optional<RecipeRankInfo> findPublicRankInfoById(@Param("id") Long id);
+
+    // Id các công thức đang hiển thị công khai (nạp chỉ mục gợi ý theo nguyên liệu)
+    @Query("SELECT r.id FROM Recipe r WHERE r.deleted = false AND r.privacy = 'PUBLIC'")
+    List<Long> findAllPublicIds();
+
+    // Lọc các id còn hiển thị công khai (giữ nguyên thứ tự phải làm ở nơi gọi)
+    @Query("SELECT r.id FROM Recipe r WHERE r.id IN :ids AND r.deleted = false AND r.privacy = 'PUBLIC'")
+    List<Long> findPublicIdsIn(@Param("ids") Collection<Long> ids);
 
     /**
      * Tải tất cả công thức (không bị xóa) cùng với User và Category
@@ -115,6 +224,12 @@ public interface RecipeRepository extends JpaRepository<Recipe, Long> {
     @Query("SELECT r FROM Recipe r LEFT JOIN FETCH r.user u LEFT JOIN FETCH r.category c WHERE r.deleted = false and r.privacy = 'PUBLIC' ORDER BY r.category.id ASC")
     List<Recipe> findAllWithUserAndCategory();
 
+    /**
+     * Như findAllWithUserAndCategory nhưng sắp theo thời gian tạo (cũ nhất trước), dùng để nạp chỉ mục facet
+     */
+    @Query("SELECT r FROM Recipe r LEFT JOIN FETCH r.user u LEFT JOIN FETCH r.category c WHERE r.deleted = false and r.privacy = 'PUBLIC' ORDER BY r.createdAt ASC, r.id ASC")
+    List<Recipe> findAllPublicOrderByCreatedAt();
+
     /**
      * Truy vấn lọc tổng hợp.
      * Các tham số là optional (nếu null sẽ bỏ qua điều kiện đó).
@@ -135,15 +250,24 @@ public interface RecipeRepository extends JpaRepository<Recipe, Long> {
     @Query("SELECT r FROM Recipe r WHERE r.deleted = false AND (r.calories IS NULL OR r.servings IS NULL)")
     List<Recipe> findRecipesMissingNutrition(Pageable pageable);
 
-    // Tìm các recipe chưa được vector hóa (chưa xóa)
-    @Query("SELECT r FROM Recipe r WHERE r.deleted = false AND r.embeddingVector IS NULL")
-    List<Recipe> findRecipesMissingEmbedding(Pageable pageable);
+    // Tìm id các recipe (chưa xóa) chưa có vector hoặc có vector đã cũ, duyệt tăng dần theo id (keyset)
+    @Query("SELECT r.id FROM Recipe r LEFT JOIN RecipeEmbedding e ON e.recipeId = r.id " +
+            "WHERE r.deleted = false AND r.id > :afterId " +
+            "AND (e.recipeId IS NULL OR e.embeddedVersion < e.contentVersion) " +
+            "ORDER BY r.id ASC")
+    List<Long> findIdsNeedingEmbedding(@Param("afterId") Long afterId, Pageable pageable);
 
-    // [TỐI ƯU 1] Chỉ lấy các trường cần thiết để tính toán Vector (Projection)
-    @Query("SELECT r.id as id, r.user.userId as ownerId, r.privacy as privacy, r.embeddingVector as embeddingVector " +
-            "FROM Recipe r " +
-            "WHERE r.deleted = false AND r.embeddingVector IS NOT NULL")
-    List<RecipeVectorInfo> findAllVectorProjections();
+    @Query("SELECT COUNT(r) FROM Recipe r LEFT JOIN RecipeEmbedding e ON e.recipeId = r.id " +
+            "WHERE r.deleted = false " +
+            "AND (e.recipeId IS NULL OR e.embeddedVersion < e.contentVersion)")
+    long countRecipesNeedingEmbedding();
+
+    // Lấy recipe kèm tác giả và nguyên liệu trong một truy vấn (dựng chuỗi ngữ nghĩa cho embedding)
+    @Query("SELECT DISTINCT r FROM Recipe r " +
+            "JOIN FETCH r.user " +
+            "LEFT JOIN FETCH r.ingredients " +
+            "WHERE r.id IN :ids")
+    List<Recipe> findAllWithIngredientsByIds(@Param("ids") Collection<Long> ids);
 
     @Query("SELECT DISTINCT r FROM Recipe r " +
             "LEFT JOIN FETCH r.user " +
@@ -166,6 +290,58 @@ public interface RecipeRepository extends JpaRepository<Recipe, Long> {
                                                     @Param("privacies") Collection<Privacy> privacies,
                                                     Pageable pageable);
 
+    // --- Phân trang keyset (cursor): lấy các bản ghi "sau" khóa (createdAt, id) / (view, id) của trang trước ---
+    // Pageable chỉ dùng để giới hạn số dòng (page 0, size + 1), không chạy count(*)
+
+    @Query("SELECT r FROM Recipe r WHERE r.privacy = :privacy AND r.deleted = false " +
+            "AND (r.createdAt < :createdAt OR (r.createdAt = :createdAt AND r.id < :id)) " +
+            "ORDER BY r.createdAt DESC, r.id DESC")
+    List<Recipe> findByPrivacyAfter(@Param("privacy") Privacy privacy,
+                                    @Param("createdAt") LocalDateTime createdAt,
+                                    @Param("id") Long id,
+                                    Pageable pageable);
+
+    @Query("SELECT r FROM Recipe r WHERE r.category.id = :categoryId AND r.privacy = :privacy AND r.deleted = false " +
+            "AND (r.createdAt < :createdAt OR (r.createdAt = :createdAt AND r.id < :id)) " +
+            "ORDER BY r.createdAt DESC, r.id DESC")
+    List<Recipe> findByCategoryAndPrivacyAfter(@Param("categoryId") Long categoryId,
+                                               @Param("privacy") Privacy privacy,
+                                               @Param("createdAt") LocalDateTime createdAt,
+                                               @Param("id") Long id,
+                                               Pageable pageable);
+
+    @Query("SELECT r FROM Recipe r WHERE r.user.userId = :ownerId AND (:categoryId IS NULL OR r.category.id = :categoryId) " +
+            "AND r.privacy IN :privacies AND r.deleted = false " +
+            "AND (r.createdAt < :createdAt OR (r.createdAt = :createdAt AND r.id < :id)) " +
+            "ORDER BY r.createdAt DESC, r.id DESC")
+    List<Recipe> findByOwnerAndCategoryAfter(@Param("ownerId") Long ownerId,
+                                             @Param("categoryId") Long categoryId,
+                                             @Param("privacies") Collection<Privacy> privacies,
+                                             @Param("createdAt") LocalDateTime createdAt,
+                                             @Param("id") Long id,
+                                             Pageable pageable);
+
+    @Query("SELECT r FROM Recipe r WHERE r.privacy = :privacy AND r.deleted = false " +
+            "AND (r.view < :view OR (r.view = :view AND r.id < :id)) " +
+            "ORDER BY r.view DESC, r.id DESC")
+    List<Recipe> findPopularAfter(@Param("privacy") Privacy privacy,
+                                  @Param("view") Long view,
+                                  @Param("id") Long id,
+                                  Pageable pageable);
+
+    @Query("SELECT r FROM Recipe r WHERE " +
+            "(:userId IS NULL OR r.user.userId = :userId) AND " +
+            "(:privacy IS NULL OR r.privacy = :privacy) AND " +
+            "(:deleted IS NULL OR r.deleted = :deleted) " +
+            "AND (r.createdAt < :createdAt OR (r.createdAt = :createdAt AND r.id < :id)) " +
+            "ORDER BY r.createdAt DESC, r.id DESC")
+    List<Recipe> findRecipesWithFilterAfter(@Param("userId") Long userId,
+                                            @Param("privacy") Privacy privacy,
+                                            @Param("deleted") Boolean deleted,
+                                            @Param("createdAt") LocalDateTime createdAt,
+                                            @Param("id") Long id,
+                                            Pageable pageable);
+
     // [MỚI] Tìm các recipe đã xóa, hỗ trợ lọc theo User và Category
     // Logic:
     // - deleted = true
@@ -0,0 +1,16 @@
+/*
+ * @ (#) RecipeTrendingScoreRepository.java    1.0    30/12/2025
+ * Copyright (c) 2025 IUH. All rights reserved.
+ */
+package fit.kltn_cookinote_backend.repositories;/*
+ * @description:
+ * @author: Bao Thong
+ * @date: 30/12/2025
+ * @version: 1.0
+ */
+
+import fit.kltn_cookinote_backend.entities.RecipeTrendingScore;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface RecipeTrendingScoreRepository extends JpaRepository<RecipeTrendingScore, Long> {
+}
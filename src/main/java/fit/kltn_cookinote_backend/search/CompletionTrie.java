@@ -0,0 +1,183 @@
+/*
+ * @ (#) CompletionTrie.java    1.0    30/12/2025
+ * Copyright (c) 2025 IUH. All rights reserved.
+ */
+package fit.kltn_cookinote_backend.search;/*
+ * @description:
+ * @author: Bao Thong
+ * @date: 30/12/2025
+ * @version: 1.0
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Trie tiền tố nén (radix trie) bất biến cho gợi ý khi gõ.
+ * - Key là chuỗi đã gấp chữ (TextAnalyzer), các nhánh chỉ có một con được gộp thành một nhãn.
+ * - Mỗi node lưu sẵn top-K gợi ý điểm cao nhất của cả nhánh con -> tra cứu chỉ tốn O(độ dài tiền tố).
+ * - Dựng một lần bằng Builder rồi chỉ đọc, nên có thể hoán đổi nguyên khối giữa các luồng.
+ */
+public final class CompletionTrie<T> {
+
+    private final Node<T> root;
+    private final int keyCount;
+
+    private CompletionTrie(Node<T> root, int keyCount) {
+        this.root = root;
+        this.keyCount = keyCount;
+    }
+
+    public static <T> CompletionTrie<T> empty() {
+        return new CompletionTrie<>(null, 0);
+    }
+
+    public static <T> Builder<T> builder(int topK) {
+        return new Builder<>(topK);
+    }
+
+    public int keyCount() {
+        return keyCount;
+    }
+
+    /**
+     * Lấy tối đa limit gợi ý (điểm giảm dần) cho các key bắt đầu bằng prefix đã gấp chữ.
+     */
+    public List<T> complete(String prefix, int limit) {
+        if (root == null || prefix == null || prefix.isEmpty() || limit <= 0) return List.of();
+
+        Node<T> node = root;
+        int i = 0;
+        while (true) {
+            String label = node.label;
+            int m = Math.min(label.length(), prefix.length() - i);
+            if (!label.regionMatches(0, prefix, i, m)) return List.of();
+            i += m;
+            if (i == prefix.length()) break;
+
+            node = node.child(prefix.charAt(i));
+            if (node == null) return List.of();
+        }
+
+        int n = Math.min(limit, node.top.length);
+        List<T> result = new ArrayList<>(n);
+        for (int k = 0; k < n; k++) {
+            result.add(node.top[k].value);
+        }
+        return result;
+    }
+
+    // --- Cấu trúc nội bộ ---
+
+    private record Scored<T>(T value, double score) {
+    }
+
+    private static final class Node<T> {
+        private final String label;
+        private final char[] firstChars; // Ký tự đầu nhãn của các con, tăng dần (tìm nhị phân)
+        private final Node<T>[] children;
+        private final Scored<T>[] top;
+
+        private Node(String label, char[] firstChars, Node<T>[] children, Scored<T>[] top) {
+            this.label = label;
+            this.firstChars = firstChars;
+            this.children = children;
+            this.top = top;
+        }
+
+        private Node<T> child(char c) {
+            int idx = Arrays.binarySearch(firstChars, c);
+            return idx < 0 ? null : children[idx];
+        }
+    }
+
+    public static final class Builder<T> {
+        private final int topK;
+        private final TreeMap<String, List<Scored<T>>> entries = new TreeMap<>();
+
+        private Builder(int topK) {
+            this.topK = Math.max(1, topK);
+        }
+
+        /**
+         * Thêm một gợi ý dưới key đã gấp chữ; một key có thể mang nhiều gợi ý, một gợi ý có thể nằm dưới nhiều key.
+         */
+        public Builder<T> add(String key, T value, double score) {
+            if (key == null || key.isEmpty() || value == null) return this;
+            entries.computeIfAbsent(key, k -> new ArrayList<>()).add(new Scored<>(value, score));
+            return this;
+        }
+
+        public CompletionTrie<T> build() {
+            if (entries.isEmpty()) return empty();
+
+            String[] keys = new String[entries.size()];
+            List<List<Scored<T>>> values = new ArrayList<>(entries.size());
+            int idx = 0;
+            for (Map.Entry<String, List<Scored<T>>> e : entries.entrySet()) {
+                keys[idx++] = e.getKey();
+                values.add(e.getValue());
+            }
+            return new CompletionTrie<>(build(keys, values, 0, keys.length, 0, true), keys.length);
+        }
+
+        /**
+         * Dựng node cho các key [lo, hi) đã sắp xếp, cùng chung tiền tố tới vị trí depth.
+         */
+        @SuppressWarnings("unchecked")
+        private Node<T> build(String[] keys, List<List<Scored<T>>> values, int lo, int hi, int depth, boolean root) {
+            // Key đã sắp xếp nên tiền tố chung của cả khoảng = tiền tố chung của key đầu và key cuối
+            String first = keys[lo];
+            String last = keys[hi - 1];
+            int end = depth;
+            // Node gốc luôn có nhãn rỗng để mọi tiền tố đều bắt đầu từ cùng một điểm
+            if (!root) {
+                int max = Math.min(first.length(), last.length());
+                while (end < max && first.charAt(end) == last.charAt(end)) end++;
+            }
+
+            List<Scored<T>> candidates = new ArrayList<>();
+            int from = lo;
+            if (first.length() == end) {
+                // Key kết thúc đúng tại node này (chỉ có thể là key đầu tiên của khoảng)
+                candidates.addAll(values.get(lo));
+                from++;
+            }
+
+            List<Node<T>> children = new ArrayList<>();
+            while (from < hi) {
+                char c = keys[from].charAt(end);
+                int to = from + 1;
+                while (to < hi && keys[to].charAt(end) == c) to++;
+                Node<T> child = build(keys, values, from, to, end, false);
+                children.add(child);
+                candidates.addAll(Arrays.asList(child.top));
+                from = to;
+            }
+
+            char[] firstChars = new char[children.size()];
+            for (int i = 0; i < firstChars.length; i++) {
+                firstChars[i] = children.get(i).label.charAt(0);
+            }
+            return new Node<>(first.substring(depth, end), firstChars,
+                    (Node<T>[]) children.toArray(new Node<?>[0]), selectTop(candidates));
+        }
+
+        @SuppressWarnings("unchecked")
+        private Scored<T>[] selectTop(List<Scored<T>> candidates) {
+            candidates.sort((a, b) -> Double.compare(b.score, a.score));
+            List<Scored<T>> top = new ArrayList<>(Math.min(topK, candidates.size()));
+            Set<T> seen = new HashSet<>();
+            for (Scored<T> s : candidates) {
+                if (top.size() >= topK) break;
+                if (seen.add(s.value)) top.add(s);
+            }
+            return (Scored<T>[]) top.toArray(new Scored<?>[0]);
+        }
+    }
+}
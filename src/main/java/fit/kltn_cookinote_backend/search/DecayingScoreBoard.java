@@ -0,0 +1,114 @@
+/*
+ * @ (#) DecayingScoreBoard.java    1.0    30/12/2025
+ * Copyright (c) 2025 IUH. All rights reserved.
+ */
+package fit.kltn_cookinote_backend.search;/*
+ * @description:
+ * @author: Bao Thong
+ * @date: 30/12/2025
+ * @version: 1.0
+ */
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Điểm suy giảm theo hàm mũ (exponential decay) cho từng id, dùng kỹ thuật "forward decay":
+ * sự kiện trọng số w tại thời điểm t được cộng dồn dưới dạng w * e^(λ(t - L)) với L là mốc (landmark) chung.
+ * - Điểm tại thời điểm now = tổng * e^(-λ(now - L)); mọi id dùng chung hệ số nên thứ hạng chỉ cần so tổng,
+ * không phải tính lại điểm từng id khi thời gian trôi.
+ * - Cộng điểm không khóa nhau (DoubleAdder, khóa đọc); rebase() dời mốc về hiện tại để số mũ không tràn
+ * và bỏ các id có điểm quá nhỏ (khóa ghi).
+ */
+public class DecayingScoreBoard {
+
+    private final double lambdaPerMillis;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, DoubleAdder> sums = new ConcurrentHashMap<>();
+    private volatile long landmarkMillis;
+
+    public DecayingScoreBoard(long halfLifeMillis, long nowMillis) {
+        this.lambdaPerMillis = Math.log(2) / Math.max(1L, halfLifeMillis);
+        this.landmarkMillis = nowMillis;
+    }
+
+    public record Entry(long id, double score) {
+    }
+
+    /**
+     * Ghi nhận một sự kiện trọng số weight xảy ra tại atMillis.
+     */
+    public void add(long id, double weight, long atMillis) {
+        lock.readLock().lock();
+        try {
+            sums.computeIfAbsent(id, k -> new DoubleAdder())
+                    .add(weight * Math.exp(lambdaPerMillis * (atMillis - landmarkMillis)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.readLock().lock();
+        try {
+            sums.remove(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        return sums.size();
+    }
+
+    /**
+     * limit id có điểm cao nhất, kèm điểm đã suy giảm tới nowMillis.
+     */
+    public List<Entry> top(int limit, long nowMillis) {
+        lock.readLock().lock();
+        try {
+            double factor = Math.exp(-lambdaPerMillis * (nowMillis - landmarkMillis));
+            List<Entry> entries = new ArrayList<>(sums.size());
+            sums.forEach((id, sum) -> entries.add(new Entry(id, sum.sum() * factor)));
+            entries.sort((a, b) -> Double.compare(b.score(), a.score()));
+            return entries.size() > limit ? new ArrayList<>(entries.subList(0, limit)) : entries;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Dời mốc về nowMillis (quy tổng về điểm tại nowMillis), bỏ id có điểm dưới minScore.
+     *
+     * @return Điểm của mọi id còn lại tại nowMillis (dùng để checkpoint)
+     */
+    public Map<Long, Double> rebase(long nowMillis, double minScore) {
+        lock.writeLock().lock();
+        try {
+            double factor = Math.exp(-lambdaPerMillis * (nowMillis - landmarkMillis));
+            Map<Long, Double> scores = new HashMap<>(sums.size() * 2);
+            Iterator<Map.Entry<Long, DoubleAdder>> it = sums.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<Long, DoubleAdder> e = it.next();
+                double score = e.getValue().sum() * factor;
+                if (score < minScore) {
+                    it.remove();
+                    continue;
+                }
+                e.getValue().reset();
+                e.getValue().add(score);
+                scores.put(e.getKey(), score);
+            }
+            landmarkMillis = nowMillis;
+            return scores;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * @ (#) FacetIndex.java    1.0    30/12/2025
+ * Copyright (c) 2025 IUH. All rights reserved.
+ */
+package fit.kltn_cookinote_backend.search;/*
+ * @description:
+ * @author: Bao Thong
+ * @date: 30/12/2025
+ * @version: 1.0
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Bộ lọc facet trong bộ nhớ: mỗi giá trị facet (vd. difficulty=EASY) là một bitmap trên slot nội bộ của recipe.
+ * - Slot được cấp liên tục và tăng dần nên bitmap luôn dày đặc (1 bit/recipe/giá trị facet);
+ * slot bị gỡ để trống và được dọn khi vượt ngưỡng (giống InvertedIndex).
+ * - Lọc: các giá trị trong cùng một facet là OR, giữa các facet là AND.
+ * - Đếm facet kiểu "disjunctive": số đếm của một facet áp dụng bộ lọc của mọi facet KHÁC,
+ * để người dùng thấy được nếu chọn thêm giá trị khác trong cùng facet thì còn bao nhiêu kết quả.
+ * - Kết quả trả theo slot giảm dần (recipe được thêm vào chỉ mục gần nhất trước).
+ */
+public class FacetIndex {
+
+    private static final int COMPACT_MIN_FREED = 1000;
+    private static final double COMPACT_FREED_RATIO = 0.3;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Key: facet, Value: (giá trị -> bitmap slot)
+    private final Map<String, Map<String, BitSet>> bitmaps = new LinkedHashMap<>();
+    private final BitSet live = new BitSet();
+    // Key: recipeId, Value: slot hiện tại
+    private final Map<Long, Integer> slotOf = new HashMap<>();
+
+    private long[] recipeIds = new long[256];
+    private List<Map<String, String>> slotValues = new ArrayList<>();
+    private int nextSlot;
+    private int freedCount;
+
+    public FacetIndex(List<String> facets) {
+        for (String facet : facets) {
+            bitmaps.put(facet, new HashMap<>());
+        }
+    }
+
+    /**
+     * Thêm hoặc cập nhật giá trị facet của một recipe (facet không có giá trị thì bỏ qua).
+     * Recipe đã có trong chỉ mục giữ nguyên slot, chỉ đổi bit của các facet thay đổi.
+     */
+    public void upsert(long recipeId, Map<String, String> values) {
+        lock.writeLock().lock();
+        try {
+            Integer slot = slotOf.get(recipeId);
+            if (slot == null) {
+                slot = nextSlot++;
+                ensureCapacity(slot + 1);
+                recipeIds[slot] = recipeId;
+                slotValues.add(null);
+                slotOf.put(recipeId, slot);
+                live.set(slot);
+            } else {
+                clearBits(slot);
+            }
+
+            Map<String, String> kept = new HashMap<>();
+            for (Map.Entry<String, String> e : values.entrySet()) {
+                Map<String, BitSet> byValue = bitmaps.get(e.getKey());
+                if (byValue == null || e.getValue() == null) continue;
+                byValue.computeIfAbsent(e.getValue(), v -> new BitSet()).set(slot);
+                kept.put(e.getKey(), e.getValue());
+            }
+            slotValues.set(slot, kept);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean remove(long recipeId) {
+        lock.writeLock().lock();
+        try {
+            Integer slot = slotOf.remove(recipeId);
+            if (slot == null) return false;
+            clearBits(slot);
+            slotValues.set(slot, null);
+            live.clear(slot);
+            freedCount++;
+            compactIfNeeded();
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slotOf.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Lọc và đếm facet.
+     *
+     * @param filters Key: facet, Value: các giá trị được chọn (rỗng/null = không lọc facet đó)
+     */
+    public FacetResult query(Map<String, Set<String>> filters, int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            // Bitmap OR của từng facet có lọc
+            Map<String, BitSet> selected = new LinkedHashMap<>();
+            for (Map.Entry<String, Map<String, BitSet>> facet : bitmaps.entrySet()) {
+                Set<String> wanted = filters.get(facet.getKey());
+                if (wanted == null || wanted.isEmpty()) continue;
+                BitSet union = new BitSet();
+                for (String value : wanted) {
+                    BitSet bits = facet.getValue().get(value);
+                    if (bits != null) union.or(bits);
+                }
+                selected.put(facet.getKey(), union);
+            }
+
+            BitSet matched = intersect(selected, null);
+
+            Map<String, Map<String, Integer>> counts = new LinkedHashMap<>();
+            for (Map.Entry<String, Map<String, BitSet>> facet : bitmaps.entrySet()) {
+                // Facet không lọc thì mask chính là kết quả cuối, khỏi tính lại
+                BitSet mask = selected.containsKey(facet.getKey()) ? intersect(selected, facet.getKey()) : matched;
+                Map<String, Integer> byValue = new TreeMap<>();
+                for (Map.Entry<String, BitSet> value : facet.getValue().entrySet()) {
+                    int count = andCardinality(value.getValue(), mask);
+                    if (count > 0) byValue.put(value.getKey(), count);
+                }
+                counts.put(facet.getKey(), byValue);
+            }
+
+            int total = matched.cardinality();
+            List<Long> page = new ArrayList<>(Math.max(0, Math.min(limit, total - offset)));
+            int skipped = 0;
+            for (int slot = matched.previousSetBit(nextSlot - 1); slot >= 0 && page.size() < limit;
+                 slot = matched.previousSetBit(slot - 1)) {
+                if (skipped++ < offset) continue;
+                page.add(recipeIds[slot]);
+            }
+            return new FacetResult(page, total, counts);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // --- Helpers ---
+
+    /**
+     * Giao của các facet đã chọn (bỏ qua facet excluded) với tập recipe còn sống.
+     */
+    private BitSet intersect(Map<String, BitSet> selected, String excluded) {
+        BitSet result = (BitSet) live.clone();
+        for (Map.Entry<String, BitSet> e : selected.entrySet()) {
+            if (!e.getKey().equals(excluded)) result.and(e.getValue());
+        }
+        return result;
+    }
+
+    private static int andCardinality(BitSet a, BitSet b) {
+        BitSet copy = (BitSet) a.clone();
+        copy.and(b);
+        return copy.cardinality();
+    }
+
+    private void clearBits(int slot) {
+        Map<String, String> old = slotValues.get(slot);
+        if (old == null) return;
+        old.forEach((facet, value) -> {
+            BitSet bits = bitmaps.get(facet).get(value);
+            if (bits != null) bits.clear(slot);
+        });
+    }
+
+    /**
+     * Dồn slot: cấp lại slot liên tục (giữ thứ tự cũ) và dựng lại bitmap.
+     */
+    private void compactIfNeeded() {
+        if (freedCount < COMPACT_MIN_FREED || freedCount < nextSlot * COMPACT_FREED_RATIO) return;
+
+        long[] ids = new long[Math.max(256, slotOf.size())];
+        List<Map<String, String>> values = new ArrayList<>(slotOf.size());
+        int n = 0;
+        for (int slot = live.nextSetBit(0); slot >= 0; slot = live.nextSetBit(slot + 1)) {
+            ids[n++] = recipeIds[slot];
+            values.add(slotValues.get(slot));
+        }
+
+        bitmaps.values().forEach(Map::clear);
+        live.clear();
+        slotOf.clear();
+        for (int slot = 0; slot < n; slot++) {
+            slotOf.put(ids[slot], slot);
+            live.set(slot);
+            int s = slot;
+            values.get(slot).forEach((facet, value) ->
+                    bitmaps.get(facet).computeIfAbsent(value, v -> new BitSet()).set(s));
+        }
+
+        recipeIds = ids;
+        slotValues = values;
+        nextSlot = n;
+        freedCount = 0;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= recipeIds.length) return;
+        recipeIds = Arrays.copyOf(recipeIds, Math.max(required, recipeIds.length << 1));
+    }
+}
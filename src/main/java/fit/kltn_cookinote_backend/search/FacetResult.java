@@ -0,0 +1,19 @@
+/*
+ * @ (#) FacetResult.java    1.0    30/12/2025
+ * Copyright (c) 2025 IUH. All rights reserved.
+ */
+package fit.kltn_cookinote_backend.search;/*
+ * @description:
+ * @author: Bao Thong
+ * @date: 30/12/2025
+ * @version: 1.0
+ */
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Kết quả lọc facet: một trang recipeId, tổng số khớp và số đếm theo từng giá trị facet.
+ */
+public record FacetResult(List<Long> recipeIds, long totalHits, Map<String, Map<String, Integer>> facetCounts) {
+}
@@ -0,0 +1,149 @@
+/*
+ * @ (#) IngredientBitmapIndex.java    1.0    30/12/2025
+ * Copyright (c) 2025 IUH. All rights reserved.
+ */
+package fit.kltn_cookinote_backend.search;/*
+ * @description:
+ * @author: Bao Thong
+ * @date: 30/12/2025
+ * @version: 1.0
+ */
+
+import fit.kltn_cookinote_backend.enums.IngredientType;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Chỉ mục nguyên liệu -> bitmap công thức, dựng từ dữ liệu phân loại MAIN/SECONDARY.
+ * - Mỗi công thức đã phân loại có một slot cố định (theo recipeId tăng dần); mỗi tên nguyên liệu chuẩn
+ * có hai bitmap: công thức dùng nó làm nguyên liệu chính và làm nguyên liệu phụ.
+ * - Dữ liệu phân loại không đổi lúc chạy nên các bitmap là bất biến; chỉ tập "live" (công thức PUBLIC, chưa xóa)
+ * được thay theo kiểu copy-on-write, truy vấn đọc không cần khóa.
+ * - Chấm điểm cả catalog trong một lượt: ứng viên = OR các bitmap MAIN của giỏ hàng AND live,
+ * số khớp của từng công thức đếm qua giao bitmap của từng nguyên liệu với tập ứng viên.
+ */
+public class IngredientBitmapIndex {
+
+    private static final Comparator<IngredientMatch> RANKING =
+            Comparator.comparingDouble(IngredientMatch::mainScore).reversed()
+                    .thenComparing(Comparator.comparingDouble(IngredientMatch::overallScore).reversed())
+                    .thenComparing(Comparator.comparingLong(IngredientMatch::recipeId).reversed());
+
+    private final long[] recipeIds;
+    // Key: recipeId, Value: slot
+    private final Map<Long, Integer> slotOf;
+    // Key: tên nguyên liệu chuẩn, Value: bitmap slot
+    private final Map<String, BitSet> mainBits = new HashMap<>();
+    private final Map<String, BitSet> secondaryBits = new HashMap<>();
+    private final int[] mainTotals;
+    private final int[] secondaryTotals;
+
+    private volatile BitSet live = new BitSet();
+
+    /**
+     * @param classifications Key: recipeId, Value: (tên nguyên liệu đã chuẩn hóa đồng nghĩa -> loại)
+     */
+    public IngredientBitmapIndex(Map<Long, Map<String, IngredientType>> classifications) {
+        List<Long> ids = new ArrayList<>(classifications.keySet());
+        ids.sort(null);
+
+        int n = ids.size();
+        recipeIds = new long[n];
+        slotOf = new HashMap<>(n * 2);
+        mainTotals = new int[n];
+        secondaryTotals = new int[n];
+
+        for (int slot = 0; slot < n; slot++) {
+            long recipeId = ids.get(slot);
+            recipeIds[slot] = recipeId;
+            slotOf.put(recipeId, slot);
+            for (Map.Entry<String, IngredientType> e : classifications.get(recipeId).entrySet()) {
+                if (e.getValue() == IngredientType.MAIN) {
+                    mainBits.computeIfAbsent(e.getKey(), k -> new BitSet(n)).set(slot);
+                    mainTotals[slot]++;
+                } else {
+                    secondaryBits.computeIfAbsent(e.getKey(), k -> new BitSet(n)).set(slot);
+                    secondaryTotals[slot]++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Thay toàn bộ tập công thức đang hiển thị (id không có dữ liệu phân loại bị bỏ qua).
+     */
+    public synchronized void replaceLive(Collection<Long> visibleRecipeIds) {
+        BitSet next = new BitSet(recipeIds.length);
+        for (Long id : visibleRecipeIds) {
+            Integer slot = slotOf.get(id);
+            if (slot != null) next.set(slot);
+        }
+        live = next;
+    }
+
+    public synchronized void setLive(long recipeId, boolean visible) {
+        Integer slot = slotOf.get(recipeId);
+        if (slot == null || live.get(slot) == visible) return;
+        BitSet next = (BitSet) live.clone();
+        next.set(slot, visible);
+        live = next;
+    }
+
+    public int size() {
+        return recipeIds.length;
+    }
+
+    public int liveCount() {
+        return live.cardinality();
+    }
+
+    /**
+     * Mọi công thức đang hiển thị có khớp ít nhất một nguyên liệu CHÍNH,
+     * xếp theo điểm nguyên liệu chính rồi điểm tổng (giảm dần).
+     *
+     * @param keys tên nguyên liệu đã chuẩn hóa đồng nghĩa
+     */
+    public List<IngredientMatch> match(Set<String> keys) {
+        BitSet candidates = new BitSet(recipeIds.length);
+        for (String key : keys) {
+            BitSet bits = mainBits.get(key);
+            if (bits != null) candidates.or(bits);
+        }
+        candidates.and(live);
+        if (candidates.isEmpty()) return List.of();
+
+        int[] mainMatched = new int[recipeIds.length];
+        int[] secondaryMatched = new int[recipeIds.length];
+        for (String key : keys) {
+            countHits(mainBits.get(key), candidates, mainMatched);
+            countHits(secondaryBits.get(key), candidates, secondaryMatched);
+        }
+
+        List<IngredientMatch> matches = new ArrayList<>(candidates.cardinality());
+        for (int slot = candidates.nextSetBit(0); slot >= 0; slot = candidates.nextSetBit(slot + 1)) {
+            matches.add(new IngredientMatch(recipeIds[slot],
+                    mainMatched[slot], mainTotals[slot],
+                    secondaryMatched[slot], secondaryTotals[slot]));
+        }
+        matches.sort(RANKING);
+        return matches;
+    }
+
+    // --- Helpers ---
+
+    private static void countHits(BitSet bits, BitSet candidates, int[] counts) {
+        if (bits == null || !bits.intersects(candidates)) return;
+        BitSet hits = (BitSet) bits.clone();
+        hits.and(candidates);
+        for (int slot = hits.nextSetBit(0); slot >= 0; slot = hits.nextSetBit(slot + 1)) {
+            counts[slot]++;
+        }
+    }
+}
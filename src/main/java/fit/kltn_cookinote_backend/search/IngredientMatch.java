@@ -0,0 +1,31 @@
+/*
+ * @ (#) IngredientMatch.java    1.0    30/12/2025
+ * Copyright (c) 2025 IUH. All rights reserved.
+ */
+package fit.kltn_cookinote_backend.search;/*
+ * @description:
+ * @author: Bao Thong
+ * @date: 30/12/2025
+ * @version: 1.0
+ */
+
+/**
+ * Mức khớp giữa danh sách nguyên liệu (đã chuẩn hóa đồng nghĩa) và một công thức đã được phân loại MAIN/SECONDARY.
+ */
+public record IngredientMatch(long recipeId, int mainMatched, int mainTotal, int secondaryMatched, int secondaryTotal) {
+
+    /**
+     * Tỉ lệ nguyên liệu chính khớp, thang điểm 10.
+     */
+    public double mainScore() {
+        return mainTotal > 0 ? (double) mainMatched / mainTotal * 10.0 : 0.0;
+    }
+
+    /**
+     * Tỉ lệ toàn bộ nguyên liệu (chính + phụ) khớp, thang điểm 10.
+     */
+    public double overallScore() {
+        int total = mainTotal + secondaryTotal;
+        return total > 0 ? (double) (mainMatched + secondaryMatched) / total * 10.0 : 0.0;
+    }
+}
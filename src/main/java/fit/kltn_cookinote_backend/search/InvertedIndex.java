@@ -0,0 +1,348 @@
+/*
+ * @ (#) InvertedIndex.java    1.0    29/12/2025
+ * Copyright (c) 2025 IUH. All rights reserved.
+ */
+package fit.kltn_cookinote_backend.search;/*
+ * @description:
+ * @author: Bao Thong
+ * @date: 29/12/2025
+ * @version: 1.0
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Chỉ mục đảo ngược trong bộ nhớ cho tìm kiếm công thức, chấm điểm BM25.
+ * - Ba trường: tiêu đề (trọng số 3), nguyên liệu (2), mô tả (1); tf của một term là tổng có trọng số.
+ * - Mỗi lần thêm/sửa recipe được cấp docId nội bộ mới (tăng dần) để posting chỉ cần ghi nối;
+ * docId cũ bị đánh dấu xóa (tombstone) và được dọn khi số tombstone vượt ngưỡng.
+ * - Truy vấn: mọi từ đều phải khớp (AND); từ cuối được khớp theo tiền tố để hỗ trợ gõ dở.
+ */
+public class InvertedIndex {
+
+    static final float K1 = 1.2f;
+    static final float B = 0.75f;
+    static final int TITLE_WEIGHT = 3;
+    static final int INGREDIENT_WEIGHT = 2;
+    static final int DESCRIPTION_WEIGHT = 1;
+
+    // Số term tối đa được mở rộng từ tiền tố của từ cuối
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+    private static final int COMPACT_MIN_DELETED = 1000;
+    private static final double COMPACT_DELETED_RATIO = 0.3;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final TreeMap<String, PostingList> postings = new TreeMap<>();
+    // Key: recipeId, Value: docId nội bộ hiện tại
+    private final Map<Long, Integer> docOf = new HashMap<>();
+
+    private long[] recipeIds = new long[256];
+    private int[] docLengths = new int[256];
+    private final BitSet deleted = new BitSet();
+    private int nextDocId;
+    private int deletedCount;
+    private long totalLength; // Tổng độ dài (có trọng số) của các doc còn sống
+
+    /**
+     * Thêm hoặc thay thế nội dung tìm kiếm của một recipe.
+     */
+    public void upsert(long recipeId, String title, String description, List<String> ingredientNames) {
+        Map<String, Integer> tf = new HashMap<>();
+        int length = addTokens(tf, title, TITLE_WEIGHT);
+        length += addTokens(tf, description, DESCRIPTION_WEIGHT);
+        if (ingredientNames != null) {
+            for (String name : ingredientNames) {
+                length += addTokens(tf, name, INGREDIENT_WEIGHT);
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            removeLocked(recipeId);
+            if (tf.isEmpty()) return;
+
+            int docId = nextDocId++;
+            ensureCapacity(docId + 1);
+            recipeIds[docId] = recipeId;
+            docLengths[docId] = length;
+            totalLength += length;
+            docOf.put(recipeId, docId);
+
+            for (Map.Entry<String, Integer> e : tf.entrySet()) {
+                postings.computeIfAbsent(e.getKey(), k -> new PostingList()).append(docId, e.getValue());
+            }
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean remove(long recipeId) {
+        lock.writeLock().lock();
+        try {
+            boolean removed = removeLocked(recipeId);
+            if (removed) compactIfNeeded();
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean contains(long recipeId) {
+        lock.readLock().lock();
+        try {
+            return docOf.containsKey(recipeId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docOf.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Tìm kiếm và trả về một trang kết quả (điểm BM25 giảm dần, hòa điểm thì recipeId mới hơn trước).
+     */
+    public SearchHits search(String query, int offset, int limit) {
+        List<String> tokens = TextAnalyzer.tokenize(query);
+        if (tokens.isEmpty() || limit <= 0) return new SearchHits(List.of(), 0);
+
+        lock.readLock().lock();
+        try {
+            int live = docOf.size();
+            if (live == 0) return new SearchHits(List.of(), 0);
+            float avgLength = (float) totalLength / live;
+
+            // Danh sách posting của từng từ; AND: có từ không khớp thì không có kết quả
+            List<List<PostingList>> slots = new ArrayList<>(tokens.size());
+            for (int slot = 0; slot < tokens.size(); slot++) {
+                List<PostingList> lists = termsFor(tokens.get(slot), slot == tokens.size() - 1);
+                if (lists.isEmpty()) return new SearchHits(List.of(), 0);
+                slots.add(lists);
+            }
+            // Từ hiếm nhất đi trước: tập ứng viên chỉ nhỏ dần, không cấp phát/quét theo kích thước catalog
+            slots.sort(Comparator.comparingLong(InvertedIndex::postingCount));
+
+            Candidates candidates = seed(slots.get(0), avgLength, live);
+            for (int i = 1; i < slots.size() && candidates.size > 0; i++) {
+                candidates = intersect(candidates, slots.get(i), avgLength, live);
+            }
+
+            Candidates matched = candidates;
+            List<Integer> matches = new ArrayList<>(matched.size);
+            for (int i = 0; i < matched.size; i++) {
+                matches.add(i);
+            }
+            matches.sort((a, b) -> {
+                int cmp = Float.compare(matched.scores[b], matched.scores[a]);
+                return cmp != 0 ? cmp : Long.compare(recipeIds[matched.docs[b]], recipeIds[matched.docs[a]]);
+            });
+
+            int from = Math.min(Math.max(offset, 0), matches.size());
+            int to = (int) Math.min((long) from + limit, matches.size());
+            List<Long> page = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                page.add(recipeIds[matched.docs[matches.get(i)]]);
+            }
+            return new SearchHits(page, matches.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // --- Helpers ---
+
+    /**
+     * Các doc (docId tăng dần) còn khớp mọi từ đã xét, kèm tổng điểm.
+     */
+    private static final class Candidates {
+        final int[] docs;
+        final float[] scores;
+        final int size;
+
+        Candidates(int[] docs, float[] scores, int size) {
+            this.docs = docs;
+            this.scores = scores;
+            this.size = size;
+        }
+    }
+
+    private static long postingCount(List<PostingList> lists) {
+        long total = 0;
+        for (PostingList list : lists) {
+            total += list.count();
+        }
+        return total;
+    }
+
+    /**
+     * Tập ứng viên ban đầu từ từ hiếm nhất. Với từ mở rộng tiền tố, một doc chỉ lấy điểm của term khớp tốt nhất.
+     */
+    private Candidates seed(List<PostingList> lists, float avgLength, int live) {
+        Map<Integer, Float> best = new HashMap<>();
+        for (PostingList list : lists) {
+            float idf = idf(list.count(), live);
+            PostingList.Cursor c = list.cursor();
+            while (c.next()) {
+                int doc = c.docId();
+                if (deleted.get(doc)) continue;
+                best.merge(doc, bm25(c.tf(), docLengths[doc], avgLength, idf), Math::max);
+            }
+        }
+        int[] docs = new int[best.size()];
+        int n = 0;
+        for (Integer doc : best.keySet()) {
+            docs[n++] = doc;
+        }
+        Arrays.sort(docs);
+        float[] scores = new float[n];
+        for (int i = 0; i < n; i++) {
+            scores[i] = best.get(docs[i]);
+        }
+        return new Candidates(docs, scores, n);
+    }
+
+    /**
+     * Giữ lại các ứng viên có khớp từ tiếp theo: trộn tuần tự posting (docId tăng dần) với ứng viên,
+     * bộ nhớ chỉ tỉ lệ với số ứng viên.
+     */
+    private Candidates intersect(Candidates in, List<PostingList> lists, float avgLength, int live) {
+        float[] slotBest = new float[in.size];
+        boolean[] hit = new boolean[in.size];
+        for (PostingList list : lists) {
+            float idf = idf(list.count(), live);
+            PostingList.Cursor c = list.cursor();
+            int i = 0;
+            while (i < in.size && c.next()) {
+                int doc = c.docId();
+                while (i < in.size && in.docs[i] < doc) i++;
+                if (i < in.size && in.docs[i] == doc) {
+                    float score = bm25(c.tf(), docLengths[doc], avgLength, idf);
+                    if (!hit[i] || score > slotBest[i]) slotBest[i] = score;
+                    hit[i] = true;
+                }
+            }
+        }
+
+        int[] docs = new int[in.size];
+        float[] scores = new float[in.size];
+        int n = 0;
+        for (int i = 0; i < in.size; i++) {
+            if (!hit[i]) continue;
+            docs[n] = in.docs[i];
+            scores[n] = in.scores[i] + slotBest[i];
+            n++;
+        }
+        return new Candidates(docs, scores, n);
+    }
+
+    private List<PostingList> termsFor(String token, boolean prefix) {
+        if (!prefix) {
+            PostingList list = postings.get(token);
+            return list == null ? List.of() : List.of(list);
+        }
+        NavigableMap<String, PostingList> range = postings.subMap(token, true, token + Character.MAX_VALUE, false);
+        List<PostingList> lists = new ArrayList<>(Math.min(range.size(), MAX_PREFIX_EXPANSIONS));
+        // Term khớp chính xác luôn được giữ (đứng đầu range), sau đó tới các term dài hơn
+        Iterator<PostingList> it = range.values().iterator();
+        while (it.hasNext() && lists.size() < MAX_PREFIX_EXPANSIONS) {
+            lists.add(it.next());
+        }
+        return lists;
+    }
+
+    static float idf(int df, int docCount) {
+        return (float) Math.log(1 + (docCount - df + 0.5) / (df + 0.5));
+    }
+
+    static float bm25(int tf, int docLength, float avgLength, float idf) {
+        float norm = K1 * (1 - B + B * docLength / avgLength);
+        return idf * (tf * (K1 + 1)) / (tf + norm);
+    }
+
+    private static int addTokens(Map<String, Integer> tf, String text, int weight) {
+        List<String> tokens = TextAnalyzer.tokenize(text);
+        for (String token : tokens) {
+            tf.merge(token, weight, Integer::sum);
+        }
+        return tokens.size() * weight;
+    }
+
+    private boolean removeLocked(long recipeId) {
+        Integer docId = docOf.remove(recipeId);
+        if (docId == null) return false;
+        deleted.set(docId);
+        deletedCount++;
+        totalLength -= docLengths[docId];
+        return true;
+    }
+
+    /**
+     * Dọn tombstone: cấp lại docId liên tục cho các doc còn sống và mã hóa lại mọi posting list.
+     */
+    private void compactIfNeeded() {
+        if (deletedCount < COMPACT_MIN_DELETED || deletedCount < nextDocId * COMPACT_DELETED_RATIO) return;
+
+        int[] remap = new int[nextDocId];
+        int live = 0;
+        for (int doc = 0; doc < nextDocId; doc++) {
+            if (deleted.get(doc)) {
+                remap[doc] = -1;
+            } else {
+                remap[doc] = live;
+                recipeIds[live] = recipeIds[doc];
+                docLengths[live] = docLengths[doc];
+                docOf.put(recipeIds[live], live);
+                live++;
+            }
+        }
+
+        Iterator<Map.Entry<String, PostingList>> it = postings.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, PostingList> e = it.next();
+            PostingList remapped = e.getValue().remap(remap);
+            if (remapped == null) {
+                it.remove();
+            } else {
+                e.setValue(remapped);
+            }
+        }
+
+        nextDocId = live;
+        deleted.clear();
+        deletedCount = 0;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= recipeIds.length) return;
+        int newCapacity = Math.max(required, recipeIds.length << 1);
+        recipeIds = Arrays.copyOf(recipeIds, newCapacity);
+        docLengths = Arrays.copyOf(docLengths, newCapacity);
+    }
+}
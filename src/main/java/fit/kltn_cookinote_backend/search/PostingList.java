@@ -0,0 +1,110 @@
+/*
+ * @ (#) PostingList.java    1.0    29/12/2025
+ * Copyright (c) 2025 IUH. All rights reserved.
+ */
+package fit.kltn_cookinote_backend.search;/*
+ * @description:
+ * @author: Bao Thong
+ * @date: 29/12/2025
+ * @version: 1.0
+ */
+
+import java.util.Arrays;
+
+/**
+ * Danh sách posting nén của một term: các cặp (docId, tf) với docId tăng dần,
+ * lưu dạng varint của khoảng cách docId (delta) và tf -> thường 2 byte/posting thay vì 8.
+ * docId nội bộ luôn được cấp tăng dần nên thêm mới chỉ cần ghi nối vào cuối.
+ */
+final class PostingList {
+
+    private byte[] bytes = new byte[8];
+    private int length;
+    private int lastDocId = -1;
+    private int count;
+
+    int count() {
+        return count;
+    }
+
+    void append(int docId, int tf) {
+        if (docId <= lastDocId) {
+            throw new IllegalArgumentException("docId phải tăng dần: " + docId + " <= " + lastDocId);
+        }
+        ensureCapacity(length + 10);
+        writeVarint(lastDocId < 0 ? docId : docId - lastDocId);
+        writeVarint(tf);
+        lastDocId = docId;
+        count++;
+    }
+
+    Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Mã hóa lại với docId mới sau khi nén chỉ mục (remap[docId] = -1 nghĩa là doc đã bị xóa).
+     *
+     * @return Danh sách mới, hoặc null nếu không còn posting nào
+     */
+    PostingList remap(int[] remap) {
+        PostingList result = new PostingList();
+        Cursor c = cursor();
+        while (c.next()) {
+            int newId = remap[c.docId()];
+            if (newId >= 0) result.append(newId, c.tf());
+        }
+        return result.count == 0 ? null : result;
+    }
+
+    private void writeVarint(int value) {
+        while ((value & ~0x7F) != 0) {
+            bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[length++] = (byte) value;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(required, bytes.length + (bytes.length >> 1)));
+        }
+    }
+
+    /**
+     * Duyệt tuần tự các posting (không thread-safe, dùng dưới khóa đọc của chỉ mục).
+     */
+    final class Cursor {
+        private int pos;
+        private int docId = -1;
+        private int tf;
+
+        boolean next() {
+            if (pos >= length) return false;
+            int delta = readVarint();
+            docId = docId < 0 ? delta : docId + delta;
+            tf = readVarint();
+            return true;
+        }
+
+        int docId() {
+            return docId;
+        }
+
+        int tf() {
+            return tf;
+        }
+
+        private int readVarint() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = bytes[pos++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+/*
+ * @ (#) SearchHits.java    1.0    29/12/2025
+ * Copyright (c) 2025 IUH. All rights reserved.
+ */
+package fit.kltn_cookinote_backend.search;/*
+ * @description:
+ * @author: Bao Thong
+ * @date: 29/12/2025
+ * @version: 1.0
+ */
+
+import java.util.List;
+
+/**
+ * Một trang kết quả tìm kiếm: recipeId theo thứ tự điểm giảm dần và tổng số recipe khớp.
+ */
+public record SearchHits(List<Long> recipeIds, long totalHits) {
+}
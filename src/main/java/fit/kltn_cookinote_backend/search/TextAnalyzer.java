@@ -0,0 +1,45 @@
+/*
+ * @ (#) TextAnalyzer.java    1.0    29/12/2025
+ * Copyright (c) 2025 IUH. All rights reserved.
+ */
+package fit.kltn_cookinote_backend.search;/*
+ * @description:
+ * @author: Bao Thong
+ * @date: 29/12/2025
+ * @version: 1.0
+ */
+
+import fit.kltn_cookinote_backend.utils.ShoppingListUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tách từ cho tìm kiếm: gấp chữ giống ShoppingListUtils (lowercase + bỏ dấu tiếng Việt)
+ * rồi cắt theo ký tự không phải chữ/số. "Phở bò tái (Hà Nội)" -> [pho, bo, tai, ha, noi]
+ */
+public final class TextAnalyzer {
+
+    private static final int MAX_TOKEN_LENGTH = 40;
+
+    private TextAnalyzer() {
+    }
+
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isBlank()) return tokens;
+
+        String folded = ShoppingListUtils.fold(text);
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean wordChar = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (wordChar) {
+                if (start < 0) start = i;
+            } else if (start >= 0) {
+                if (i - start <= MAX_TOKEN_LENGTH) tokens.add(folded.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+}
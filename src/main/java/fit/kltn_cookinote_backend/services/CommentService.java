@@ -12,6 +12,7 @@ package fit.kltn_cookinote_backend.services;/*
 import fit.kltn_cookinote_backend.dtos.request.CreateCommentRequest;
 import fit.kltn_cookinote_backend.dtos.request.UpdateCommentRequest;
 import fit.kltn_cookinote_backend.dtos.response.CommentResponse;
+import fit.kltn_cookinote_backend.dtos.response.PageResult;
 import fit.kltn_cookinote_backend.entities.User;
 
 import java.util.List;
@@ -23,6 +24,17 @@ public interface CommentService {
      */
     List<CommentResponse> getCommentsByRecipe(Long recipeId, Long viewerUserId);
 
+    /**
+     * Một trang bình luận gốc (cũ nhất trước, phân trang theo cursor), mỗi bình luận kèm số trả lời
+     * và vài trả lời đầu tiên; trả lời còn lại tải qua getReplies.
+     */
+    PageResult<CommentResponse> getCommentThreads(Long recipeId, Long viewerUserId, String cursor, int size);
+
+    /**
+     * Một trang trả lời trực tiếp của một bình luận (cũ nhất trước, phân trang theo cursor), mỗi trả lời kèm số trả lời của nó.
+     */
+    PageResult<CommentResponse> getReplies(Long commentId, Long viewerUserId, String cursor, int size);
+
     /**
      * Tạo một bình luận mới (gốc hoặc trả lời).
      */
@@ -0,0 +1,387 @@
+/*
+ * @ (#) EmbeddingBackfillService.java    1.0    28/12/2025
+ * Copyright (c) 2025 IUH. All rights reserved.
+ */
+package fit.kltn_cookinote_backend.services;/*
+ * @description:
+ * @author: Bao Thong
+ * @date: 28/12/2025
+ * @version: 1.0
+ */
+
+import fit.kltn_cookinote_backend.entities.Recipe;
+import fit.kltn_cookinote_backend.enums.Privacy;
+import fit.kltn_cookinote_backend.limiters.TokenBucketRateLimiter;
+import fit.kltn_cookinote_backend.projections.EmbeddingStateInfo;
+import fit.kltn_cookinote_backend.repositories.RecipeEmbeddingRepository;
+import fit.kltn_cookinote_backend.repositories.RecipeRepository;
+import fit.kltn_cookinote_backend.vectors.VectorCodec;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Pipeline vector hóa hàng loạt các recipe chưa có embedding hoặc có embedding đã cũ.
+ * - Luồng đọc duyệt id theo keyset, mỗi lô batch-size recipe được dựng chuỗi ngữ nghĩa trong một truy vấn.
+ * - workers luồng gọi batchEmbedContents song song, cùng chia một token bucket theo quota (văn bản/phút)
+ * thay cho Thread.sleep cố định.
+ * - Recipe bị sửa nhưng chuỗi ngữ nghĩa có cùng content hash với lần trước thì không gọi lại API.
+ * - Kết quả được ghi bằng một lệnh JDBC batch (INSERT ... ON DUPLICATE KEY UPDATE) cho cả lô.
+ * - Job định kỳ chỉ khởi động (startRefresh) trên luồng riêng rồi trả về, không giữ luồng của scheduler
+ * trong suốt lần backfill (có thể kéo dài hàng chục phút theo quota).
+ * - Metric: cookinote.embedding.backfill.{embedded,unchanged,failed,remaining,batch}.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class EmbeddingBackfillService {
+
+    private static final String UPSERT_SQL =
+            "INSERT INTO recipe_embedding " +
+                    "(recipe_id, vector, content_hash, content_version, embedded_version, updated_at) " +
+                    "VALUES (?, ?, ?, ?, ?, ?) " +
+                    "ON DUPLICATE KEY UPDATE vector = VALUES(vector), content_hash = VALUES(content_hash), " +
+                    "embedded_version = GREATEST(embedded_version, VALUES(embedded_version)), " +
+                    "updated_at = VALUES(updated_at)";
+
+    // Nội dung sửa nhưng chuỗi ngữ nghĩa không đổi -> chỉ cần ghi nhận version, giữ nguyên vector
+    private static final String MARK_UNCHANGED_SQL =
+            "UPDATE recipe_embedding SET embedded_version = GREATEST(embedded_version, ?) WHERE recipe_id = ?";
+
+    private final RecipeRepository recipeRepository;
+    private final RecipeEmbeddingRepository recipeEmbeddingRepository;
+    private final GeminiApiClient geminiApiClient;
+    private final RecipeVectorIndexService recipeVectorIndexService;
+    private final PlatformTransactionManager transactionManager;
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+
+    // Số văn bản trong một lời gọi batchEmbedContents (tối đa 100)
+    @Value("${app.embedding-backfill.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.embedding-backfill.workers:3}")
+    private int workers;
+
+    // Quota embedding của Gemini tính theo số văn bản
+    @Value("${app.embedding-backfill.texts-per-minute:1500}")
+    private int textsPerMinute;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final AtomicLong remaining = new AtomicLong();
+    private TokenBucketRateLimiter rateLimiter;
+    // Luồng điều phối của lần backfill chạy nền (đọc lô, giao cho worker, chờ xong)
+    private ExecutorService coordinator;
+    private Counter embedded;
+    private Counter failed;
+    private Counter unchanged;
+    private Timer batchTimer;
+
+    @PostConstruct
+    void init() {
+        this.batchSize = Math.max(1, Math.min(batchSize, 100));
+        // Cho phép burst tối đa một lô cho mỗi worker
+        this.rateLimiter = new TokenBucketRateLimiter(textsPerMinute / 60.0, (double) batchSize * Math.max(workers, 1));
+        this.embedded = Counter.builder("cookinote.embedding.backfill.embedded")
+                .description("Số recipe đã được vector hóa bởi job backfill")
+                .register(meterRegistry);
+        this.failed = Counter.builder("cookinote.embedding.backfill.failed")
+                .description("Số recipe vector hóa thất bại (sẽ thử lại ở lần chạy sau)")
+                .register(meterRegistry);
+        this.unchanged = Counter.builder("cookinote.embedding.backfill.unchanged")
+                .description("Số recipe đã sửa nhưng chuỗi ngữ nghĩa không đổi (không gọi API)")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("cookinote.embedding.backfill.batch")
+                .description("Thời gian xử lý một lô: gọi API và ghi DB")
+                .register(meterRegistry);
+        meterRegistry.gauge("cookinote.embedding.backfill.remaining", remaining);
+        this.coordinator = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "embedding-backfill");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        coordinator.shutdownNow();
+    }
+
+    /**
+     * Khởi động backfill trên luồng riêng rồi trả về ngay (dùng cho job định kỳ).
+     * Bỏ qua nếu lần chạy trước chưa xong.
+     *
+     * @return true nếu đã khởi động một lần chạy mới
+     */
+    public boolean startRefresh() {
+        if (!running.compareAndSet(false, true)) {
+            log.info("Job backfill embedding đang chạy, bỏ qua lần kích hoạt này.");
+            return false;
+        }
+        try {
+            coordinator.execute(this::runBackfill);
+            return true;
+        } catch (RejectedExecutionException e) {
+            running.set(false);
+            return false;
+        }
+    }
+
+    /**
+     * Vector hóa toàn bộ recipe còn thiếu embedding hoặc có embedding đã cũ (nội dung bị sửa).
+     * Bỏ qua nếu lần chạy trước chưa xong.
+     *
+     * @return Số recipe đã vector hóa (gọi API) thành công
+     */
+    public int refreshEmbeddings() {
+        if (!running.compareAndSet(false, true)) {
+            log.info("Job backfill embedding đang chạy, bỏ qua lần kích hoạt này.");
+            return 0;
+        }
+        return runBackfill();
+    }
+
+    // --- Helpers ---
+
+    /**
+     * Một lần backfill; nơi gọi đã giữ cờ running, cờ được nhả khi mọi worker đã dừng.
+     */
+    private int runBackfill() {
+        int workerCount = Math.max(workers, 1);
+        ExecutorService pool = Executors.newFixedThreadPool(workerCount);
+        // Giới hạn số lô đang chờ/đang xử lý để không đọc trước quá nhiều recipe vào bộ nhớ
+        Semaphore inFlight = new Semaphore(workerCount * 2);
+        AtomicInteger succeeded = new AtomicInteger();
+        long start = System.currentTimeMillis();
+
+        try {
+            remaining.set(recipeRepository.countRecipesNeedingEmbedding());
+            if (remaining.get() == 0) return 0;
+            log.info("Bắt đầu backfill embedding cho {} recipe ({} worker, {} văn bản/phút)",
+                    remaining.get(), workerCount, textsPerMinute);
+
+            TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+            readOnly.setReadOnly(true);
+
+            long afterId = 0;
+            while (true) {
+                List<Long> ids = recipeRepository.findIdsNeedingEmbedding(afterId, PageRequest.of(0, batchSize));
+                if (ids.isEmpty()) break;
+                afterId = ids.get(ids.size() - 1);
+
+                List<EmbeddingTask> tasks = readOnly.execute(status -> buildTasks(ids));
+                if (tasks == null || tasks.isEmpty()) continue;
+
+                inFlight.acquire();
+                pool.execute(() -> {
+                    try {
+                        succeeded.addAndGet(processBatch(tasks));
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+
+            pool.shutdown();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.error("Lỗi backfill embedding: {}", e.getMessage(), e);
+        } finally {
+            // Dừng hẳn worker trước khi nhả cờ, để lần chạy sau không chồng lên các lô còn dở
+            if (!pool.isTerminated()) pool.shutdownNow();
+            awaitWorkers(pool);
+            running.set(false);
+        }
+
+        long elapsedMs = Math.max(System.currentTimeMillis() - start, 1);
+        log.info("Backfill embedding xong: {} recipe trong {}ms (~{} recipe/phút)",
+                succeeded.get(), elapsedMs, succeeded.get() * 60_000L / elapsedMs);
+        return succeeded.get();
+    }
+
+    private static void awaitWorkers(ExecutorService pool) {
+        try {
+            while (!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+                log.warn("Đang chờ worker backfill embedding dừng...");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private List<EmbeddingTask> buildTasks(List<Long> ids) {
+        // Đọc version trước nội dung: lần sửa xen giữa sẽ có version lớn hơn và được xử lý ở lần chạy sau
+        Map<Long, EmbeddingStateInfo> states = new HashMap<>();
+        for (EmbeddingStateInfo state : recipeEmbeddingRepository.findEmbeddingStates(ids)) {
+            states.put(state.getId(), state);
+        }
+
+        List<EmbeddingTask> tasks = new ArrayList<>(ids.size());
+        for (Recipe r : recipeRepository.findAllWithIngredientsByIds(ids)) {
+            String text = buildSemanticString(r);
+            EmbeddingStateInfo state = states.get(r.getId());
+            tasks.add(new EmbeddingTask(r.getId(), r.getUser().getUserId(), r.getPrivacy(), text, contentHash(text),
+                    state != null ? state.getContentVersion() : 0L,
+                    state != null ? state.getContentHash() : null));
+        }
+        return tasks;
+    }
+
+    /**
+     * Bỏ qua recipe có chuỗi ngữ nghĩa không đổi, phần còn lại lấy đủ token rồi gọi API và ghi bằng JDBC batch.
+     */
+    private int processBatch(List<EmbeddingTask> tasks) {
+        long start = System.nanoTime();
+        try {
+            List<EmbeddingTask> toEmbed = new ArrayList<>(tasks.size());
+            List<Object[]> unchangedRows = new ArrayList<>();
+            for (EmbeddingTask task : tasks) {
+                if (task.contentHash().equals(task.storedHash())) {
+                    unchangedRows.add(new Object[]{task.contentVersion(), task.recipeId()});
+                } else {
+                    toEmbed.add(task);
+                }
+            }
+
+            if (!unchangedRows.isEmpty()) {
+                jdbcTemplate.batchUpdate(MARK_UNCHANGED_SQL, unchangedRows);
+                unchanged.increment(unchangedRows.size());
+                remaining.addAndGet(-unchangedRows.size());
+            }
+            if (toEmbed.isEmpty()) return 0;
+
+            rateLimiter.acquire(toEmbed.size());
+            return embedAndStore(toEmbed);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        } catch (RuntimeException e) {
+            log.error("Lỗi xử lý lô embedding ({} recipe): {}", tasks.size(), e.getMessage());
+            return 0;
+        } finally {
+            batchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private int embedAndStore(List<EmbeddingTask> tasks) {
+        List<List<Double>> vectors = geminiApiClient.getEmbeddings(
+                tasks.stream().map(EmbeddingTask::semanticText).toList());
+
+        List<Object[]> rows = new ArrayList<>(tasks.size());
+        List<float[]> values = new ArrayList<>(tasks.size());
+        List<EmbeddingTask> done = new ArrayList<>(tasks.size());
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < tasks.size(); i++) {
+            List<Double> vector = vectors.get(i);
+            if (vector.isEmpty()) continue;
+            float[] v = new float[vector.size()];
+            for (int j = 0; j < v.length; j++) {
+                v[j] = vector.get(j).floatValue();
+            }
+            EmbeddingTask task = tasks.get(i);
+            rows.add(new Object[]{task.recipeId(), VectorCodec.encode(v), task.contentHash(),
+                    task.contentVersion(), task.contentVersion(), now});
+            values.add(v);
+            done.add(task);
+        }
+
+        try {
+            if (!rows.isEmpty()) {
+                jdbcTemplate.batchUpdate(UPSERT_SQL, rows);
+            }
+        } catch (RuntimeException e) {
+            log.error("Lỗi ghi lô embedding ({} recipe): {}", rows.size(), e.getMessage());
+            failed.increment(tasks.size());
+            remaining.addAndGet(-tasks.size());
+            return 0;
+        }
+
+        // Ghi DB xong mới cập nhật chỉ mục trong bộ nhớ (không có transaction -> áp dụng ngay)
+        for (int i = 0; i < done.size(); i++) {
+            EmbeddingTask task = done.get(i);
+            recipeVectorIndexService.upsert(task.recipeId(), task.ownerId(), task.privacy(), values.get(i));
+        }
+
+        embedded.increment(done.size());
+        failed.increment(tasks.size() - done.size());
+        remaining.addAndGet(-tasks.size());
+        return done.size();
+    }
+
+    /**
+     * Dấu vân tay nội dung: SHA-256 (hex) của chuỗi ngữ nghĩa.
+     */
+    static String contentHash(String semanticText) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(semanticText.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 không khả dụng", e);
+        }
+    }
+
+    // Helper tạo chuỗi mô tả ngữ nghĩa cho AI hiểu
+    private String buildSemanticString(Recipe r) {
+        // 1. Lấy danh sách nguyên liệu KÈM ĐỊNH LƯỢNG
+        // Format: "Thịt bò (200g), Bánh phở (500g), Hạt nêm (1 muỗng)"
+        String ingredients = r.getIngredients().stream()
+                .map(i -> {
+                    String qty = (i.getQuantity() != null && !i.getQuantity().isBlank())
+                            ? " (" + i.getQuantity() + ")"
+                            : "";
+                    return i.getName() + qty;
+                })
+                .collect(Collectors.joining(", "));
+
+        // 2. Xử lý dữ liệu số (tránh null)
+        String caloriesInfo = r.getCalories() != null ? r.getCalories() + " kcal" : "chưa rõ calo";
+        String servingsInfo = r.getServings() != null ? r.getServings() + " người ăn" : "chưa rõ khẩu phần";
+
+        // 3. Tạo chuỗi ngữ nghĩa đầy đủ
+        // Format: "Món ăn: [Tên]. Mô tả: [Desc]. Nguyên liệu: [Tên (Định lượng)]. Dinh dưỡng gốc:..."
+        return String.format(
+                "Món ăn: %s. Mô tả: %s. Nguyên liệu: %s. Độ khó: %s. Dinh dưỡng gốc: %s cho %s.",
+                r.getTitle(),
+                (r.getDescription() != null ? r.getDescription() : ""),
+                ingredients,
+                (r.getDifficulty() != null ? r.getDifficulty().name() : ""),
+                caloriesInfo,
+                servingsInfo
+        );
+    }
+
+    private record EmbeddingTask(Long recipeId, Long ownerId, Privacy privacy, String semanticText,
+                                 String contentHash, long contentVersion, String storedHash) {
+    }
+}
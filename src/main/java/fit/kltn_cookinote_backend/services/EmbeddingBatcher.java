@@ -0,0 +1,190 @@
+/*
+ * @ (#) EmbeddingBatcher.java    1.0    28/12/2025
+ * Copyright (c) 2025 IUH. All rights reserved.
+ */
+package fit.kltn_cookinote_backend.services;/*
+ * @description:
+ * @author: Bao Thong
+ * @date: 28/12/2025
+ * @version: 1.0
+ */
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Gom các yêu cầu embedding đồng thời thành một lời gọi batchEmbedContents.
+ * - Yêu cầu đầu tiên của một lô mở cửa sổ chờ window-ms; lô được gửi khi hết cửa sổ
+ * hoặc khi đủ max-batch-size văn bản (văn bản trùng nhau trong cùng lô chỉ gửi một lần).
+ * - Lô được gửi trên luồng riêng, kết quả trả về cho từng người gọi qua CompletableFuture.
+ * - window-ms <= 0 hoặc max-batch-size <= 1 thì gọi embedContent trực tiếp như trước.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class EmbeddingBatcher {
+
+    // Giới hạn số request trong một lời gọi batchEmbedContents của Gemini
+    private static final int GEMINI_MAX_BATCH = 100;
+
+    private final GeminiApiClient geminiApiClient;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.embedding-batch.window-ms:10}")
+    private long windowMs;
+
+    @Value("${app.embedding-batch.max-batch-size:32}")
+    private int maxBatchSize;
+
+    @Value("${app.embedding-batch.timeout-ms:15000}")
+    private long timeoutMs;
+
+    @Value("${app.embedding-batch.sender-threads:2}")
+    private int senderThreads;
+
+    private final Object lock = new Object();
+    // Key: văn bản, Value: future của những người gọi đang chờ văn bản đó
+    private Map<String, CompletableFuture<List<Double>>> pending = new LinkedHashMap<>();
+    private long generation; // Tăng mỗi khi lô hiện tại được tách ra để gửi
+
+    private ScheduledExecutorService scheduler;
+    private ExecutorService senders;
+    private DistributionSummary batchSizes;
+
+    @PostConstruct
+    void init() {
+        this.maxBatchSize = Math.min(maxBatchSize, GEMINI_MAX_BATCH);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(daemonThreads("embedding-batch-timer"));
+        this.senders = Executors.newFixedThreadPool(Math.max(senderThreads, 1), daemonThreads("embedding-batch-sender"));
+        this.batchSizes = DistributionSummary.builder("cookinote.embedding.batch.size")
+                .description("Số văn bản trong mỗi lời gọi batchEmbedContents")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdownNow();
+        senders.shutdownNow();
+        synchronized (lock) {
+            pending.values().forEach(f -> f.complete(List.of()));
+            pending = new LinkedHashMap<>();
+        }
+    }
+
+    /**
+     * Lấy embedding cho một văn bản, có thể được gộp chung lô với các yêu cầu đồng thời khác.
+     *
+     * @return Vector embedding, hoặc danh sách rỗng nếu lỗi/quá thời gian chờ
+     */
+    public List<Double> embed(String text) {
+        if (windowMs <= 0 || maxBatchSize <= 1) {
+            return geminiApiClient.getEmbedding(text);
+        }
+
+        CompletableFuture<List<Double>> future;
+        Map<String, CompletableFuture<List<Double>>> full = null;
+        synchronized (lock) {
+            future = pending.get(text);
+            if (future == null) {
+                future = new CompletableFuture<>();
+                pending.put(text, future);
+                if (pending.size() == 1) {
+                    long batchGeneration = generation;
+                    scheduler.schedule(() -> flushIfStill(batchGeneration), windowMs, TimeUnit.MILLISECONDS);
+                }
+                if (pending.size() >= maxBatchSize) {
+                    full = detachLocked();
+                }
+            }
+        }
+        if (full != null) send(full);
+
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return List.of();
+        } catch (ExecutionException | TimeoutException e) {
+            log.warn("Không lấy được embedding qua batch: {}", e.toString());
+            return List.of();
+        }
+    }
+
+    // --- Helpers ---
+
+    /**
+     * Gửi lô khi hết cửa sổ chờ, trừ khi lô đó đã được gửi sớm vì đủ kích thước.
+     */
+    private void flushIfStill(long batchGeneration) {
+        Map<String, CompletableFuture<List<Double>>> batch = null;
+        synchronized (lock) {
+            if (generation == batchGeneration && !pending.isEmpty()) {
+                batch = detachLocked();
+            }
+        }
+        if (batch != null) send(batch);
+    }
+
+    private Map<String, CompletableFuture<List<Double>>> detachLocked() {
+        Map<String, CompletableFuture<List<Double>>> batch = pending;
+        pending = new LinkedHashMap<>();
+        generation++;
+        return batch;
+    }
+
+    private void send(Map<String, CompletableFuture<List<Double>>> batch) {
+        try {
+            senders.execute(() -> sendNow(batch));
+        } catch (RuntimeException e) {
+            // Executor đã dừng (đang tắt ứng dụng)
+            batch.values().forEach(f -> f.complete(List.of()));
+        }
+    }
+
+    private void sendNow(Map<String, CompletableFuture<List<Double>>> batch) {
+        List<String> texts = new ArrayList<>(batch.keySet());
+        batchSizes.record(texts.size());
+        try {
+            List<List<Double>> vectors = texts.size() == 1
+                    ? List.of(geminiApiClient.getEmbedding(texts.get(0)))
+                    : geminiApiClient.getEmbeddings(texts);
+            for (int i = 0; i < texts.size(); i++) {
+                batch.get(texts.get(i)).complete(vectors.get(i));
+            }
+        } catch (RuntimeException e) {
+            log.error("Lỗi gửi batch embedding ({} văn bản): {}", texts.size(), e.getMessage());
+        } finally {
+            // Đảm bảo không người gọi nào bị treo
+            batch.values().forEach(f -> f.complete(List.of()));
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + "-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
@@ -172,4 +172,61 @@ public class GeminiApiClient {
             return List.of();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Gọi API batchEmbedContents: tạo embedding cho nhiều văn bản trong một request.
+     * Model sử dụng: text-embedding-004
+     *
+     * @return Danh sách cùng kích thước và thứ tự với texts; phần tử rỗng nếu lỗi
+     */
+    public List<List<Double>> getEmbeddings(List<String> texts) {
+        if (texts.isEmpty()) return List.of();
+        String uri = "/v1beta/models/text-embedding-004:batchEmbedContents";
+
+        List<List<Double>> result = new ArrayList<>(texts.size());
+        try {
+            // { "requests": [ { "model": "...", "content": { "parts": [{ "text": "..." }] } }, ... ] }
+            List<Map<String, Object>> requests = new ArrayList<>(texts.size());
+            for (String text : texts) {
+                requests.add(Map.of(
+                        "model", "models/text-embedding-004",
+                        "content", Map.of("parts", List.of(Map.of("text", text)))
+                ));
+            }
+            var requestBody = Map.of("requests", requests);
+
+            JsonNode response = webClient.post()
+                    .uri(uriBuilder -> uriBuilder.path(uri).queryParam("key", apiKey).build())
+                    .body(Mono.just(requestBody), Map.class)
+                    .retrieve()
+                    .bodyToMono(JsonNode.class)
+                    .retryWhen(Retry.backoff(3, Duration.ofSeconds(2))
+                            .filter(throwable -> throwable instanceof WebClientResponseException.ServiceUnavailable ||
+                                    throwable instanceof WebClientResponseException.TooManyRequests))
+                    .block();
+
+            // Parse kết quả: { "embeddings": [ { "values": [ ... ] }, ... ] }
+            if (response != null && response.has("embeddings")) {
+                for (JsonNode embedding : response.get("embeddings")) {
+                    List<Double> vector = new ArrayList<>();
+                    for (JsonNode val : embedding.path("values")) {
+                        vector.add(val.asDouble());
+                    }
+                    result.add(vector);
+                }
+            }
+        } catch (Exception e) {
+            log.error("Lỗi lấy batch embedding từ Gemini: {}", e.getMessage());
+            result.clear();
+        }
+
+        if (result.size() != texts.size()) {
+            if (!result.isEmpty()) {
+                log.warn("Gemini batch embedding trả về {} vector cho {} văn bản", result.size(), texts.size());
+            }
+            result.clear();
+            for (int i = 0; i < texts.size(); i++) result.add(List.of());
+        }
+        return result;
+    }
+}
@@ -90,4 +90,13 @@ public class IngredientClassificationService {
     public Map<String, IngredientType> getClassificationsForRecipe(Long recipeId) {
         return classificationData.getOrDefault(recipeId, Collections.emptyMap());
     }
+
+    /**
+     * Toàn bộ dữ liệu phân loại (chỉ đọc), dùng để dựng chỉ mục gợi ý theo nguyên liệu.
+     *
+     * @return Map<RecipeId, Map<StandardizedIngredientName, IngredientType>>
+     */
+    public Map<Long, Map<String, IngredientType>> getAllClassifications() {
+        return classificationData;
+    }
 }
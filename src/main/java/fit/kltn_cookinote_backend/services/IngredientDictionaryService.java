@@ -0,0 +1,169 @@
+/*
+ * @ (#) IngredientDictionaryService.java    1.0    30/12/2025
+ * Copyright (c) 2025 IUH. All rights reserved.
+ */
+package fit.kltn_cookinote_backend.services;/*
+ * @description:
+ * @author: Bao Thong
+ * @date: 30/12/2025
+ * @version: 1.0
+ */
+
+import fit.kltn_cookinote_backend.entities.Ingredient;
+import fit.kltn_cookinote_backend.repositories.IngredientRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Quản lý bảng ingredient (tên chuẩn -> id) và liên kết recipe_ingredient / shopping_list với nó.
+ * - Lúc ghi: resolve(tên thô) quy về tên chuẩn qua IngredientSynonymService rồi trả về tham chiếu Ingredient,
+ * tạo mới nếu chưa có. Dòng mới được ghi trong transaction (và connection) của người gọi, không mượn thêm connection;
+ * id chỉ vào cache sau khi transaction đó commit.
+ * - Dòng cũ (hoặc dòng ghi từ luồng chưa liên kết) được job backfill bổ sung ingredient_id theo lô.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class IngredientDictionaryService {
+
+    private static final int BACKFILL_BATCH_SIZE = 500;
+    private static final int NAME_MAX_LENGTH = 100;
+
+    // INSERT IGNORE: hai request cùng tạo một tên mới thì chỉ một dòng được ghi, không lỗi unique
+    private static final String INSERT_SQL = "INSERT IGNORE INTO ingredient (name) VALUES (?)";
+    // Locking read: đọc bản mới nhất đã commit (dòng do transaction khác vừa tạo không nằm trong snapshot của REPEATABLE READ)
+    private static final String SELECT_ID_SQL = "SELECT id FROM ingredient WHERE name = ? LOCK IN SHARE MODE";
+
+    private final IngredientRepository ingredientRepository;
+    private final IngredientSynonymService ingredientSynonymService;
+    private final JdbcTemplate jdbcTemplate;
+
+    // Key: tên chuẩn, Value: ingredient.id (chỉ chứa các dòng đã commit)
+    private final Map<String, Long> idByName = new ConcurrentHashMap<>();
+    private final AtomicBoolean backfilling = new AtomicBoolean(false);
+
+    private record PendingRow(long id, String name) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        try {
+            ingredientRepository.findAll().forEach(i -> idByName.put(i.getName(), i.getId()));
+            log.info("Đã nạp {} nguyên liệu chuẩn", idByName.size());
+        } catch (RuntimeException e) {
+            log.error("Lỗi nạp từ điển nguyên liệu: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Nguyên liệu chuẩn của một tên thô (tạo mới nếu chưa có).
+     *
+     * @return Tham chiếu (proxy, không truy vấn) tới Ingredient, hoặc null nếu tên rỗng sau khi chuẩn hóa
+     */
+    public Ingredient resolve(String rawName) {
+        Long id = resolveId(rawName);
+        return id != null ? ingredientRepository.getReferenceById(id) : null;
+    }
+
+    public Long resolveId(String rawName) {
+        String name = ingredientSynonymService.getStandardizedName(rawName);
+        if (name.isEmpty()) return null;
+        if (name.length() > NAME_MAX_LENGTH) name = name.substring(0, NAME_MAX_LENGTH).trim();
+
+        Long id = idByName.get(name);
+        if (id != null) return id;
+
+        jdbcTemplate.update(INSERT_SQL, name);
+        Long insertedId = jdbcTemplate.queryForObject(SELECT_ID_SQL, Long.class, name);
+        if (insertedId != null) {
+            // Transaction của người gọi rollback thì dòng mới cũng mất -> chỉ cache sau commit
+            String key = name;
+            afterCommit(() -> idByName.putIfAbsent(key, insertedId));
+        }
+        return insertedId;
+    }
+
+    /**
+     * Gán ingredient_id cho các dòng recipe_ingredient và shopping_list còn thiếu.
+     * Bỏ qua nếu lần chạy trước chưa xong.
+     *
+     * @return Số dòng đã được liên kết
+     */
+    public int backfill() {
+        if (!backfilling.compareAndSet(false, true)) return 0;
+        try {
+            long start = System.currentTimeMillis();
+            int linked = backfillTable("recipe_ingredient", "name")
+                    + backfillTable("shopping_list", "ingredient");
+            if (linked > 0) {
+                log.info("Đã liên kết {} dòng nguyên liệu với từ điển trong {}ms", linked, System.currentTimeMillis() - start);
+            }
+            return linked;
+        } catch (RuntimeException e) {
+            log.error("Lỗi backfill ingredient_id: {}", e.getMessage(), e);
+            return 0;
+        } finally {
+            backfilling.set(false);
+        }
+    }
+
+    // --- Helpers ---
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Duyệt theo keyset (id tăng dần) các dòng có ingredient_id IS NULL, cập nhật bằng JDBC batch từng lô.
+     * Tên rỗng sau chuẩn hóa được bỏ qua (giữ NULL).
+     */
+    private int backfillTable(String table, String nameColumn) {
+        String selectSql = "SELECT id, " + nameColumn + " FROM " + table +
+                " WHERE ingredient_id IS NULL AND id > ? ORDER BY id LIMIT ?";
+        String updateSql = "UPDATE " + table + " SET ingredient_id = ? WHERE id = ? AND ingredient_id IS NULL";
+
+        int linked = 0;
+        long afterId = 0L;
+        while (true) {
+            List<PendingRow> rows = jdbcTemplate.query(selectSql,
+                    (rs, i) -> new PendingRow(rs.getLong(1), rs.getString(2)),
+                    afterId, BACKFILL_BATCH_SIZE);
+            if (rows.isEmpty()) break;
+
+            List<Object[]> args = new ArrayList<>(rows.size());
+            for (PendingRow row : rows) {
+                Long ingredientId = resolveId(row.name());
+                if (ingredientId != null) args.add(new Object[]{ingredientId, row.id()});
+            }
+            if (!args.isEmpty()) {
+                jdbcTemplate.batchUpdate(updateSql, args);
+                linked += args.size();
+            }
+
+            afterId = rows.get(rows.size() - 1).id();
+            if (rows.size() < BACKFILL_BATCH_SIZE) break;
+        }
+        return linked;
+    }
+}
@@ -39,6 +39,9 @@ public class IngredientSynonymService {
 
     private Map<String, List<String>> standardToVariantsMap = Collections.emptyMap();
 
+    // Từ điển gốc (giữ nguyên dấu) để hiển thị, ví dụ gợi ý khi gõ
+    private Map<String, List<String>> dictionary = Collections.emptyMap();
+
     private static final String SYNONYM_FILE = "ingredient-synonyms.json";
 
     @PostConstruct
@@ -76,6 +79,7 @@ public class IngredientSynonymService {
 
             this.synonymMap = Collections.unmodifiableMap(processedMap);
             this.standardToVariantsMap = Collections.unmodifiableMap(reverseMap); // Lưu lại
+            this.dictionary = Collections.unmodifiableMap(rawData);
 
             log.info("Tải thành công dữ liệu đồng nghĩa.");
         } catch (Exception e) {
@@ -101,6 +105,13 @@ public class IngredientSynonymService {
         return synonymMap.getOrDefault(normalized, normalized);
     }
 
+    /**
+     * Từ điển đồng nghĩa như trong file (tên chuẩn -> các biến thể), chưa normalize.
+     */
+    public Map<String, List<String>> getDictionary() {
+        return dictionary;
+    }
+
     /**
      * Lấy tất cả các biến thể từ một từ khóa bất kỳ.
      * VD input "thịt lợn" -> ["thịt lợn", "thịt lợn quay", "sườn non"...]
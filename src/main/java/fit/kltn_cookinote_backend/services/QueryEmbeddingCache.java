@@ -0,0 +1,175 @@
+/*
+ * @ (#) QueryEmbeddingCache.java    1.0    28/12/2025
+ * Copyright (c) 2025 IUH. All rights reserved.
+ */
+package fit.kltn_cookinote_backend.services;/*
+ * @description:
+ * @author: Bao Thong
+ * @date: 28/12/2025
+ * @version: 1.0
+ */
+
+import fit.kltn_cookinote_backend.vectors.VectorCodec;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Cache embedding của câu truy vấn ngữ nghĩa (gợi ý món ăn cá nhân hóa).
+ * - Khóa: SHA-256 của văn bản đã chuẩn hóa (NFC, chữ thường, gộp khoảng trắng).
+ * - Tầng 1: LRU cục bộ có giới hạn số phần tử.
+ * - Tầng 2: Redis dùng chung giữa các node, có TTL; lỗi Redis chỉ bị coi như cache miss.
+ * - Metric: cookinote.embedding.query.cache{result=local_hit|redis_hit|miss}.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class QueryEmbeddingCache {
+
+    // Đổi model embedding thì đổi prefix để không dùng lại vector của model cũ
+    private static final String KEY_PREFIX = "emb:q:text-embedding-004:";
+    private static final String METRIC_NAME = "cookinote.embedding.query.cache";
+
+    private final EmbeddingBatcher embeddingBatcher;
+    private final StringRedisTemplate redis;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.embedding-cache.local-max-entries:1000}")
+    private int localMaxEntries;
+
+    @Value("${app.embedding-cache.redis-ttl:7d}")
+    private Duration redisTtl;
+
+    private Map<String, float[]> local;
+    private Counter localHits;
+    private Counter redisHits;
+    private Counter misses;
+
+    @PostConstruct
+    void init() {
+        int maxEntries = Math.max(localMaxEntries, 1);
+        // LinkedHashMap theo thứ tự truy cập -> LRU
+        this.local = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, float[]> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        this.localHits = counter("local_hit");
+        this.redisHits = counter("redis_hit");
+        this.misses = counter("miss");
+        meterRegistry.gauge("cookinote.embedding.query.cache.local.size", this, QueryEmbeddingCache::localSize);
+    }
+
+    /**
+     * Lấy embedding của câu truy vấn, chỉ gọi Gemini (qua EmbeddingBatcher) khi cả hai tầng cache đều miss.
+     *
+     * @return Vector embedding (dùng chung, không được sửa), hoặc mảng rỗng nếu không tạo được (kết quả rỗng không được cache)
+     */
+    public float[] getOrCompute(String text) {
+        String key = keyOf(text);
+
+        float[] cached;
+        synchronized (local) {
+            cached = local.get(key);
+        }
+        if (cached != null) {
+            localHits.increment();
+            return cached;
+        }
+
+        cached = readRedis(key);
+        if (cached != null) {
+            redisHits.increment();
+            putLocal(key, cached);
+            return cached;
+        }
+
+        misses.increment();
+        List<Double> values = embeddingBatcher.embed(text);
+        float[] vector = new float[values.size()];
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = values.get(i).floatValue();
+        }
+        if (vector.length == 0) return vector;
+
+        putLocal(key, vector);
+        writeRedis(key, vector);
+        return vector;
+    }
+
+    // --- Helpers ---
+
+    private float[] readRedis(String key) {
+        try {
+            String value = redis.opsForValue().get(key);
+            if (value == null) return null;
+            float[] vector = VectorCodec.decode(Base64.getDecoder().decode(value));
+            return vector.length == 0 ? null : vector;
+        } catch (DataAccessException | IllegalArgumentException e) {
+            log.warn("Không đọc được embedding cache từ Redis: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeRedis(String key, float[] vector) {
+        try {
+            redis.opsForValue().set(key, Base64.getEncoder().encodeToString(VectorCodec.encode(vector)), redisTtl);
+        } catch (DataAccessException e) {
+            log.warn("Không ghi được embedding cache vào Redis: {}", e.getMessage());
+        }
+    }
+
+    private void putLocal(String key, float[] vector) {
+        synchronized (local) {
+            local.put(key, vector);
+        }
+    }
+
+    private int localSize() {
+        synchronized (local) {
+            return local.size();
+        }
+    }
+
+    private Counter counter(String result) {
+        return Counter.builder(METRIC_NAME)
+                .description("Số lần tra cache embedding của câu truy vấn gợi ý")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    static String normalize(String text) {
+        if (text == null) return "";
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFC).toLowerCase(Locale.ROOT);
+        return normalized.replaceAll("\\s+", " ").trim();
+    }
+
+    private static String keyOf(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(normalize(text).getBytes(StandardCharsets.UTF_8));
+            return KEY_PREFIX + HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 không khả dụng", e);
+        }
+    }
+}
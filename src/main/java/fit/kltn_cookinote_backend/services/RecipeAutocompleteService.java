@@ -0,0 +1,226 @@
+/*
+ * @ (#) RecipeAutocompleteService.java    1.0    30/12/2025
+ * Copyright (c) 2025 IUH. All rights reserved.
+ */
+package fit.kltn_cookinote_backend.services;/*
+ * @description:
+ * @author: Bao Thong
+ * @date: 30/12/2025
+ * @version: 1.0
+ */
+
+import fit.kltn_cookinote_backend.dtos.response.AutocompleteItem;
+import fit.kltn_cookinote_backend.entities.Category;
+import fit.kltn_cookinote_backend.enums.AutocompleteType;
+import fit.kltn_cookinote_backend.projections.RecipeAutocompleteInfo;
+import fit.kltn_cookinote_backend.projections.RecipeIngredientNameInfo;
+import fit.kltn_cookinote_backend.repositories.CategoryRepository;
+import fit.kltn_cookinote_backend.repositories.RecipeIngredientRepository;
+import fit.kltn_cookinote_backend.repositories.RecipeRepository;
+import fit.kltn_cookinote_backend.search.CompletionTrie;
+import fit.kltn_cookinote_backend.search.TextAnalyzer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Gợi ý khi gõ cho ô tìm kiếm, phục vụ hoàn toàn từ trie trong bộ nhớ (không truy vấn DB theo từng phím).
+ * - Nguồn: tiêu đề công thức PUBLIC, nguyên liệu trong ingredient-synonyms.json, tên danh mục.
+ * - Mỗi cụm được đưa vào trie từ mọi đầu từ ("Phở bò tái" khớp cả "pho", "bo", "tai").
+ * - Điểm được chuẩn hóa về [0, 1] trong từng loại: công thức theo lượt xem và rating trung bình,
+ * nguyên liệu theo số công thức dùng, danh mục theo số công thức.
+ * - Khi catalog thay đổi chỉ đánh dấu dirty; job nền dựng trie mới rồi hoán đổi nguyên khối.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RecipeAutocompleteService {
+
+    public static final int DEFAULT_LIMIT = 8;
+    public static final int MAX_LIMIT = 20;
+
+    // Số từ đầu tối đa được đánh key cho một cụm (giới hạn kích thước trie với tiêu đề dài)
+    private static final int MAX_WORD_STARTS = 8;
+    private static final int MAX_QUERY_LENGTH = 100;
+
+    private final RecipeRepository recipeRepository;
+    private final RecipeIngredientRepository recipeIngredientRepository;
+    private final CategoryRepository categoryRepository;
+    private final IngredientSynonymService ingredientSynonymService;
+
+    // Dựng lại định kỳ dù không có thay đổi để thứ hạng theo lượt xem/rating không bị cũ
+    @Value("${app.autocomplete.max-age:30m}")
+    private Duration maxAge;
+
+    private volatile CompletionTrie<AutocompleteItem> trie = CompletionTrie.empty();
+    private volatile long builtAtMillis = 0L;
+
+    private final AtomicBoolean dirty = new AtomicBoolean(true);
+    private final AtomicBoolean rebuilding = new AtomicBoolean(false);
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        rebuild();
+    }
+
+    /**
+     * Gợi ý cho chuỗi đang gõ (không phân biệt dấu), điểm giảm dần.
+     */
+    public List<AutocompleteItem> complete(String query, int limit) {
+        if (query == null || query.isBlank()) return List.of();
+        String prefix = String.join(" ", TextAnalyzer.tokenize(query));
+        if (prefix.isEmpty() || prefix.length() > MAX_QUERY_LENGTH) return List.of();
+
+        int l = Math.min(limit > 0 ? limit : DEFAULT_LIMIT, MAX_LIMIT);
+        return trie.complete(prefix, l);
+    }
+
+    /**
+     * Ghi nhận catalog đã thay đổi (thêm/sửa/xóa công thức, danh mục) sau khi transaction commit;
+     * trie được dựng lại ở lần chạy job kế tiếp.
+     */
+    public void markDirty() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dirty.set(true);
+                }
+            });
+        } else {
+            dirty.set(true);
+        }
+    }
+
+    /**
+     * Dựng lại nếu catalog đã đổi hoặc trie quá cũ. Gọi từ job nền.
+     */
+    public void rebuildIfStale() {
+        boolean expired = System.currentTimeMillis() - builtAtMillis >= maxAge.toMillis();
+        if (dirty.get() || expired) {
+            rebuild();
+        }
+    }
+
+    public void rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) return;
+        try {
+            // Xóa cờ trước khi đọc DB: thay đổi xảy ra trong lúc dựng sẽ đánh dấu lại cho lần sau
+            dirty.set(false);
+            long start = System.currentTimeMillis();
+
+            CompletionTrie.Builder<AutocompleteItem> builder = CompletionTrie.builder(MAX_LIMIT);
+            List<RecipeAutocompleteInfo> recipes = recipeRepository.findAllPublicAutocompleteInfo();
+            addRecipes(builder, recipes);
+            addIngredients(builder);
+            addCategories(builder, recipes);
+
+            CompletionTrie<AutocompleteItem> fresh = builder.build();
+            trie = fresh;
+            builtAtMillis = System.currentTimeMillis();
+            log.info("Đã dựng trie gợi ý: {} key trong {}ms", fresh.keyCount(), builtAtMillis - start);
+        } catch (RuntimeException e) {
+            dirty.set(true);
+            log.error("Lỗi dựng trie gợi ý, giữ trie cũ: {}", e.getMessage(), e);
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    // --- Helpers ---
+
+    private void addRecipes(CompletionTrie.Builder<AutocompleteItem> builder, List<RecipeAutocompleteInfo> recipes) {
+        Map<Long, Double> raw = new HashMap<>();
+        for (RecipeAutocompleteInfo r : recipes) {
+            long view = r.getView() != null ? r.getView() : 0L;
+            double rating = r.getAverageRating() != null ? r.getAverageRating() : 0.0;
+            raw.put(r.getId(), Math.log1p(view) * (1 + rating / 5.0));
+        }
+        double max = maxOf(raw.values());
+        for (RecipeAutocompleteInfo r : recipes) {
+            addPhrase(builder, r.getTitle(),
+                    new AutocompleteItem(r.getTitle(), AutocompleteType.RECIPE, r.getId()),
+                    normalize(raw.get(r.getId()), max));
+        }
+    }
+
+    private void addIngredients(CompletionTrie.Builder<AutocompleteItem> builder) {
+        // Số công thức PUBLIC dùng mỗi nguyên liệu, quy về tên chuẩn để các biến thể dùng chung điểm
+        Map<String, Set<Long>> usage = new HashMap<>();
+        for (RecipeIngredientNameInfo info : recipeIngredientRepository.findAllPublicIngredientNames()) {
+            usage.computeIfAbsent(ingredientSynonymService.getStandardizedName(info.getName()), k -> new HashSet<>())
+                    .add(info.getRecipeId());
+        }
+
+        Map<String, Double> raw = new HashMap<>();
+        for (Map.Entry<String, List<String>> entry : ingredientSynonymService.getDictionary().entrySet()) {
+            Set<Long> used = usage.get(ingredientSynonymService.getStandardizedName(entry.getKey()));
+            double score = Math.log1p(used != null ? used.size() : 0);
+            raw.put(entry.getKey(), score);
+            for (String variant : entry.getValue()) {
+                raw.putIfAbsent(variant, score);
+            }
+        }
+        double max = maxOf(raw.values());
+        raw.forEach((name, score) -> addPhrase(builder, name,
+                new AutocompleteItem(name, AutocompleteType.INGREDIENT, null), normalize(score, max)));
+    }
+
+    private void addCategories(CompletionTrie.Builder<AutocompleteItem> builder, List<RecipeAutocompleteInfo> recipes) {
+        Map<Long, Integer> recipeCount = new HashMap<>();
+        for (RecipeAutocompleteInfo r : recipes) {
+            if (r.getCategoryId() != null) recipeCount.merge(r.getCategoryId(), 1, Integer::sum);
+        }
+
+        List<Category> categories = categoryRepository.findAll();
+        List<Double> raw = new ArrayList<>(categories.size());
+        for (Category c : categories) {
+            raw.add(Math.log1p(recipeCount.getOrDefault(c.getId(), 0)));
+        }
+        double max = maxOf(raw);
+        for (int i = 0; i < categories.size(); i++) {
+            Category c = categories.get(i);
+            addPhrase(builder, c.getName(),
+                    new AutocompleteItem(c.getName(), AutocompleteType.CATEGORY, c.getId()),
+                    normalize(raw.get(i), max));
+        }
+    }
+
+    /**
+     * Đưa một cụm vào trie dưới key bắt đầu từ mỗi đầu từ.
+     */
+    private static void addPhrase(CompletionTrie.Builder<AutocompleteItem> builder, String text,
+                                  AutocompleteItem item, double score) {
+        List<String> tokens = TextAnalyzer.tokenize(text);
+        int starts = Math.min(tokens.size(), MAX_WORD_STARTS);
+        for (int i = 0; i < starts; i++) {
+            builder.add(String.join(" ", tokens.subList(i, tokens.size())), item, score);
+        }
+    }
+
+    private static double maxOf(Iterable<Double> values) {
+        double max = 0.0;
+        for (Double v : values) {
+            if (v != null && v > max) max = v;
+        }
+        return max;
+    }
+
+    private static double normalize(Double value, double max) {
+        return value == null || max <= 0 ? 0.0 : value / max;
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * @ (#) RecipeDetailCache.java    1.0    30/12/2025
+ * Copyright (c) 2025 IUH. All rights reserved.
+ */
+package fit.kltn_cookinote_backend.services;/*
+ * @description:
+ * @author: Bao Thong
+ * @date: 30/12/2025
+ * @version: 1.0
+ */
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fit.kltn_cookinote_backend.dtos.response.RecipeResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cache phần không phụ thuộc người xem của trang chi tiết công thức (nội dung, nguyên liệu, các bước, ảnh, bình luận).
+ * - Mỗi bản ghi mang version do nơi gọi tính từ dòng recipe đọc mới (updatedAt, số bình luận): version khác thì coi như miss,
+ * nên sửa công thức/bước/ảnh hay thêm/xóa bình luận trên node nào cũng có hiệu lực ngay ở mọi node.
+ * - evict() sau commit cho các thay đổi không đổi version (vd. sửa nội dung bình luận): tăng bộ đếm thế hệ của recipe
+ * trong Redis (thế hệ được ghép vào version của bản Redis) rồi xóa tầng cục bộ của node hiện tại và Redis.
+ * Một lần load bắt đầu trước evict mà ghi Redis sau evict sẽ mang thế hệ cũ nên bị coi như miss, không làm bẩn cache;
+ * node khác thấy thay đổi sau tối đa local-ttl.
+ * - Tầng 1: LRU cục bộ có TTL ngắn. Tầng 2: Redis (JSON) dùng chung, có TTL; lỗi Redis chỉ bị coi như cache miss.
+ * - Metric: cookinote.recipe.detail.cache{result=local_hit|redis_hit|miss}.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RecipeDetailCache {
+
+    private static final String KEY_PREFIX = "recipe:detail:";
+    private static final String GENERATION_PREFIX = "recipe:detail:gen:";
+    private static final String METRIC_NAME = "cookinote.recipe.detail.cache";
+
+    private final StringRedisTemplate redis;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.recipe-detail-cache.local-max-entries:500}")
+    private int localMaxEntries;
+
+    @Value("${app.recipe-detail-cache.local-ttl:30s}")
+    private Duration localTtl;
+
+    @Value("${app.recipe-detail-cache.redis-ttl:1h}")
+    private Duration redisTtl;
+
+    private Map<Long, LocalEntry> local;
+    // Số lần evict trên node này: load nào chồng lên một lần evict thì không ghi tầng cục bộ
+    private final AtomicLong localEvictions = new AtomicLong();
+    private Counter localHits;
+    private Counter redisHits;
+    private Counter misses;
+
+    // Bản ghi lưu trong Redis
+    record CachedDetail(String version, RecipeResponse payload) {
+    }
+
+    private record LocalEntry(String version, RecipeResponse payload, long expiresAtMillis) {
+    }
+
+    @PostConstruct
+    void init() {
+        int maxEntries = Math.max(localMaxEntries, 1);
+        // LinkedHashMap theo thứ tự truy cập -> LRU
+        this.local = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, LocalEntry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        this.localHits = counter("local_hit");
+        this.redisHits = counter("redis_hit");
+        this.misses = counter("miss");
+    }
+
+    /**
+     * Lấy phần chung của trang chi tiết, chỉ gọi loader khi cả hai tầng cache đều không có bản đúng version.
+     *
+     * @return Payload dùng chung giữa các request (không được sửa; dùng toBuilder() để gắn trường riêng của người xem)
+     */
+    public RecipeResponse getOrLoad(Long recipeId, String version, Supplier<RecipeResponse> loader) {
+        LocalEntry entry;
+        synchronized (local) {
+            entry = local.get(recipeId);
+        }
+        if (entry != null && entry.version().equals(version) && entry.expiresAtMillis() > System.currentTimeMillis()) {
+            localHits.increment();
+            return entry.payload();
+        }
+
+        long evictionsBefore = localEvictions.get();
+        RedisLookup lookup = readRedis(recipeId, version);
+        if (lookup.payload() != null) {
+            redisHits.increment();
+            putLocal(recipeId, version, lookup.payload(), evictionsBefore);
+            return lookup.payload();
+        }
+
+        misses.increment();
+        RecipeResponse payload = loader.get();
+        putLocal(recipeId, version, payload, evictionsBefore);
+        // Không đọc được thế hệ hiện tại thì không ghi Redis (tránh ghi bản có thể đã cũ)
+        if (lookup.redisVersion() != null) writeRedis(recipeId, lookup.redisVersion(), payload);
+        return payload;
+    }
+
+    /**
+     * Xóa bản cache của recipe sau khi transaction commit.
+     */
+    public void evict(Long recipeId) {
+        afterCommit(() -> {
+            localEvictions.incrementAndGet();
+            synchronized (local) {
+                local.remove(recipeId);
+            }
+            try {
+                String generationKey = GENERATION_PREFIX + recipeId;
+                redis.opsForValue().increment(generationKey);
+                // Sống lâu hơn bản cache (redis-ttl) để thế hệ không quay về 0 khi bản ghi cũ vẫn còn
+                redis.expire(generationKey, redisTtl.multipliedBy(2));
+                redis.delete(KEY_PREFIX + recipeId);
+            } catch (DataAccessException e) {
+                log.warn("Không xóa được cache chi tiết của Recipe ID {}: {}", recipeId, e.getMessage());
+            }
+        });
+    }
+
+    // --- Helpers ---
+
+    /**
+     * @param redisVersion version kèm thế hệ hiện tại (dùng khi ghi lại sau load), null nếu Redis lỗi
+     */
+    private record RedisLookup(RecipeResponse payload, String redisVersion) {
+    }
+
+    private RedisLookup readRedis(Long recipeId, String version) {
+        List<String> values;
+        try {
+            // Bản cache và thế hệ trong một lần gọi (MGET)
+            values = redis.opsForValue().multiGet(List.of(KEY_PREFIX + recipeId, GENERATION_PREFIX + recipeId));
+        } catch (DataAccessException e) {
+            log.warn("Không đọc được cache chi tiết của Recipe ID {} từ Redis: {}", recipeId, e.getMessage());
+            return new RedisLookup(null, null);
+        }
+        if (values == null || values.size() < 2) return new RedisLookup(null, null);
+
+        String generation = values.get(1);
+        String redisVersion = version + "#" + (generation != null ? generation : "0");
+        String value = values.get(0);
+        if (value == null) return new RedisLookup(null, redisVersion);
+        try {
+            CachedDetail cached = objectMapper.readValue(value, CachedDetail.class);
+            return new RedisLookup(redisVersion.equals(cached.version()) ? cached.payload() : null, redisVersion);
+        } catch (JsonProcessingException e) {
+            log.warn("Không đọc được cache chi tiết của Recipe ID {} từ Redis: {}", recipeId, e.getMessage());
+            return new RedisLookup(null, redisVersion);
+        }
+    }
+
+    private void writeRedis(Long recipeId, String version, RecipeResponse payload) {
+        try {
+            String value = objectMapper.writeValueAsString(new CachedDetail(version, payload));
+            redis.opsForValue().set(KEY_PREFIX + recipeId, value, redisTtl);
+        } catch (DataAccessException | JsonProcessingException e) {
+            log.warn("Không ghi được cache chi tiết của Recipe ID {} vào Redis: {}", recipeId, e.getMessage());
+        }
+    }
+
+    private void putLocal(Long recipeId, String version, RecipeResponse payload, long evictionsBefore) {
+        long expiresAt = System.currentTimeMillis() + localTtl.toMillis();
+        synchronized (local) {
+            // Có evict trên node này trong lúc load: payload có thể đã cũ, để lần đọc sau load lại
+            if (localEvictions.get() != evictionsBefore) return;
+            local.put(recipeId, new LocalEntry(version, payload, expiresAt));
+        }
+    }
+
+    private Counter counter(String result) {
+        return Counter.builder(METRIC_NAME)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * @ (#) RecipeFacetService.java    1.0    30/12/2025
+ * Copyright (c) 2025 IUH. All rights reserved.
+ */
+package fit.kltn_cookinote_backend.services;/*
+ * @description:
+ * @author: Bao Thong
+ * @date: 30/12/2025
+ * @version: 1.0
+ */
+
+import fit.kltn_cookinote_backend.entities.Recipe;
+import fit.kltn_cookinote_backend.enums.Privacy;
+import fit.kltn_cookinote_backend.repositories.RecipeRepository;
+import fit.kltn_cookinote_backend.search.FacetIndex;
+import fit.kltn_cookinote_backend.search.FacetResult;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Lọc/duyệt công thức PUBLIC theo facet (danh mục, độ khó, thời gian chuẩn bị/nấu, calo, bữa ăn) bằng FacetIndex.
+ * - Nạp toàn bộ khi ứng dụng sẵn sàng (theo thời gian tạo, để slot tăng dần = mới hơn), cập nhật từng recipe sau khi
+ * transaction commit; nạp lỗi thì job định kỳ thử lại (reloadIfNotReady), request không tự nạp.
+ * - Thời gian và calo được quy về các khoảng cố định (bucket) để mỗi khoảng là một bitmap.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RecipeFacetService {
+
+    public static final String CATEGORY = "category";
+    public static final String DIFFICULTY = "difficulty";
+    public static final String PREP_TIME = "prepTime";
+    public static final String COOK_TIME = "cookTime";
+    public static final String CALORIES = "calories";
+    public static final String MEAL_TYPE = "mealType";
+
+    public static final List<String> FACETS = List.of(CATEGORY, DIFFICULTY, PREP_TIME, COOK_TIME, CALORIES, MEAL_TYPE);
+
+    // Cận trên (không bao gồm) của từng khoảng; giá trị vượt cận cuối rơi vào khoảng "x-max"
+    // (không dùng "x+" vì dấu + trên query string bị giải mã thành khoảng trắng)
+    private static final int[] TIME_BOUNDS = {15, 30, 60};
+    private static final int[] CALORIE_BOUNDS = {300, 500, 800};
+
+    private final RecipeRepository recipeRepository;
+    private final MealTypeResolver mealTypeResolver;
+    private final PlatformTransactionManager transactionManager;
+
+    private volatile FacetIndex index = new FacetIndex(FACETS);
+    private volatile boolean ready = false;
+
+    private final Object mutationLock = new Object();
+    private boolean loading = false;
+    private final Set<Long> touchedWhileLoading = new LinkedHashSet<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        reload();
+    }
+
+    /**
+     * Dựng lại toàn bộ chỉ mục facet từ DB rồi hoán đổi.
+     */
+    public void reload() {
+        synchronized (mutationLock) {
+            if (loading) return;
+            loading = true;
+            touchedWhileLoading.clear();
+        }
+
+        long start = System.currentTimeMillis();
+        FacetIndex fresh = new FacetIndex(FACETS);
+        boolean loaded = false;
+        Set<Long> touched;
+        try {
+            readOnlyTransaction().executeWithoutResult(status -> {
+                // Category + ingredients cần cho MealTypeResolver (ingredients nạp bằng SUBSELECT)
+                for (Recipe recipe : recipeRepository.findAllPublicOrderByCreatedAt()) {
+                    fresh.upsert(recipe.getId(), facetsOf(recipe));
+                }
+            });
+            loaded = true;
+        } catch (RuntimeException e) {
+            log.error("Lỗi nạp chỉ mục facet: {}", e.getMessage(), e);
+        } finally {
+            synchronized (mutationLock) {
+                if (loaded) {
+                    index = fresh;
+                    ready = true;
+                }
+                loading = false;
+                touched = new LinkedHashSet<>(touchedWhileLoading);
+                touchedWhileLoading.clear();
+            }
+        }
+
+        if (!loaded) return;
+        touched.forEach(this::refreshNow);
+        log.info("Đã nạp chỉ mục facet: {} công thức trong {}ms", fresh.size(), System.currentTimeMillis() - start);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Nạp lại nếu lần nạp khi khởi động bị lỗi (gọi từ job định kỳ).
+     */
+    public void reloadIfNotReady() {
+        if (!ready) reload();
+    }
+
+    /**
+     * Lọc theo facet và đếm số công thức cho từng giá trị facet.
+     */
+    public FacetResult browse(Map<String, Set<String>> filters, int offset, int limit) {
+        return index.query(filters, offset, limit);
+    }
+
+    /**
+     * Đọc lại facet của recipe từ DB sau khi commit (gỡ khỏi chỉ mục nếu không còn PUBLIC).
+     */
+    public void refresh(Long recipeId) {
+        afterCommit(() -> refreshNow(recipeId));
+    }
+
+    public void remove(Long recipeId) {
+        afterCommit(() -> {
+            synchronized (mutationLock) {
+                if (loading) touchedWhileLoading.add(recipeId);
+            }
+            index.remove(recipeId);
+        });
+    }
+
+    /**
+     * Thay đổi hàng loạt (vd. chuyển công thức sang danh mục khác): nạp lại toàn bộ sau khi commit.
+     */
+    public void reloadAfterCommit() {
+        afterCommit(this::reload);
+    }
+
+    /**
+     * Khoảng thời gian (phút) của một giá trị, dùng chung cho prepTime/cookTime: "0-15", "15-30", "30-60", "60-max".
+     */
+    public static String timeBucket(Integer minutes) {
+        return bucket(minutes, TIME_BOUNDS);
+    }
+
+    public static String calorieBucket(Integer calories) {
+        return bucket(calories, CALORIE_BOUNDS);
+    }
+
+    // --- Helpers ---
+
+    private Map<String, String> facetsOf(Recipe recipe) {
+        Map<String, String> values = new HashMap<>();
+        if (recipe.getCategory() != null) values.put(CATEGORY, String.valueOf(recipe.getCategory().getId()));
+        if (recipe.getDifficulty() != null) values.put(DIFFICULTY, recipe.getDifficulty().name());
+        values.put(PREP_TIME, timeBucket(recipe.getPrepareTime()));
+        values.put(COOK_TIME, timeBucket(recipe.getCookTime()));
+        values.put(CALORIES, calorieBucket(recipe.getCalories()));
+        values.put(MEAL_TYPE, mealTypeResolver.resolveMealType(recipe).name());
+        return values;
+    }
+
+    private static String bucket(Integer value, int[] bounds) {
+        if (value == null || value < 0) return null;
+        int lower = 0;
+        for (int bound : bounds) {
+            if (value < bound) return lower + "-" + bound;
+            lower = bound;
+        }
+        return lower + "-max";
+    }
+
+    private void refreshNow(Long recipeId) {
+        synchronized (mutationLock) {
+            if (loading) touchedWhileLoading.add(recipeId);
+        }
+        try {
+            readOnlyTransaction().executeWithoutResult(status -> recipeRepository.findById(recipeId)
+                    .filter(r -> r.getPrivacy() == Privacy.PUBLIC && !r.isDeleted())
+                    .ifPresentOrElse(
+                            r -> index.upsert(recipeId, facetsOf(r)),
+                            () -> index.remove(recipeId)));
+        } catch (RuntimeException e) {
+            log.warn("Không cập nhật được chỉ mục facet cho Recipe ID {}: {}", recipeId, e.getMessage());
+        }
+    }
+
+    private TransactionTemplate readOnlyTransaction() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        // Gọi từ afterCommit: transaction cũ vẫn còn gắn với luồng nên phải mở transaction mới để nạp lazy
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        template.setReadOnly(true);
+        return template;
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
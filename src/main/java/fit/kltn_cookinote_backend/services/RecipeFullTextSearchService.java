@@ -0,0 +1,123 @@
+/*
+ * @ (#) RecipeFullTextSearchService.java    1.0    30/12/2025
+ * Copyright (c) 2025 IUH. All rights reserved.
+ */
+package fit.kltn_cookinote_backend.services;/*
+ * @description:
+ * @author: Bao Thong
+ * @date: 30/12/2025
+ * @version: 1.0
+ */
+
+import fit.kltn_cookinote_backend.entities.Recipe;
+import fit.kltn_cookinote_backend.repositories.RecipeRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Tìm kiếm công thức bằng chỉ mục FULLTEXT của MySQL (ngram parser) trên title, description, ingredient_text.
+ * - Hibernate (ddl-auto) không khai báo được FULLTEXT nên chỉ mục là một bước migration chạy một lần:
+ * ALTER TABLE recipe ADD FULLTEXT INDEX ft_recipe_search (title, description, ingredient_text) WITH PARSER ngram.
+ * Chỉ mục FULLTEXT đầu tiên làm InnoDB dựng lại cả bảng và chặn ghi trong suốt thời gian đó, nên ứng dụng chỉ tự tạo
+ * khi app.search.fulltext.create-index=true (kèm cảnh báo); mặc định chỉ kiểm tra và dùng LIKE nếu chưa có.
+ * - Cột ingredient_text của dữ liệu cũ được điền theo lô; recipe mới/sửa được đồng bộ trong RecipeService.
+ * - Chỉ dùng khi app.search.mode=fulltext và chỉ mục đã sẵn sàng.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RecipeFullTextSearchService {
+
+    public static final String MODE_FULLTEXT = "fulltext";
+
+    private static final String INDEX_NAME = "ft_recipe_search";
+    private static final String INDEX_EXISTS_SQL = """
+            SELECT COUNT(*) FROM information_schema.STATISTICS
+            WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'recipe' AND INDEX_NAME = ?
+            """;
+    private static final String CREATE_INDEX_SQL =
+            "ALTER TABLE recipe ADD FULLTEXT INDEX " + INDEX_NAME +
+                    " (title, description, ingredient_text) WITH PARSER ngram";
+    private static final int BACKFILL_BATCH_SIZE = 500;
+
+    private final RecipeRepository recipeRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${app.search.mode:index}")
+    private String mode;
+
+    @Value("${app.search.fulltext.create-index:false}")
+    private boolean createIndex;
+
+    private volatile boolean ready = false;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void prepareOnStartup() {
+        if (!MODE_FULLTEXT.equalsIgnoreCase(mode)) return;
+
+        try {
+            backfillIngredientText();
+            ready = ensureIndex();
+        } catch (DataAccessException e) {
+            log.error("Không chuẩn bị được chỉ mục FULLTEXT, tìm kiếm sẽ dùng truy vấn LIKE: {}", e.getMessage());
+        }
+    }
+
+    public boolean isActive() {
+        return ready && MODE_FULLTEXT.equalsIgnoreCase(mode);
+    }
+
+    /**
+     * Tìm kiếm theo độ liên quan MATCH ... AGAINST (pageable không được mang Sort, thứ tự do truy vấn quyết định).
+     */
+    public Page<Recipe> search(String query, Pageable pageable) {
+        return recipeRepository.searchPublicRecipesFullText(query, pageable);
+    }
+
+    // --- Helpers ---
+
+    private void backfillIngredientText() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        int total = 0;
+        while (true) {
+            Integer updated = transactionTemplate.execute(status ->
+                    recipeRepository.backfillIngredientText(BACKFILL_BATCH_SIZE));
+            if (updated == null || updated == 0) break;
+            total += updated;
+        }
+        if (total > 0) {
+            log.info("Đã điền ingredient_text cho {} công thức", total);
+        }
+    }
+
+    /**
+     * @return false nếu chưa có chỉ mục và không được phép tự tạo
+     */
+    private boolean ensureIndex() {
+        Integer count = jdbcTemplate.queryForObject(INDEX_EXISTS_SQL, Integer.class, INDEX_NAME);
+        if (count != null && count > 0) return true;
+
+        if (!createIndex) {
+            log.error("Chưa có chỉ mục FULLTEXT {}, tìm kiếm sẽ dùng truy vấn LIKE. Chạy migration: {}",
+                    INDEX_NAME, CREATE_INDEX_SQL);
+            return false;
+        }
+        log.warn("Đang tạo chỉ mục FULLTEXT {} (app.search.fulltext.create-index=true): InnoDB dựng lại bảng recipe, "
+                + "mọi lệnh ghi vào recipe bị chặn tới khi xong", INDEX_NAME);
+        long start = System.currentTimeMillis();
+        jdbcTemplate.execute(CREATE_INDEX_SQL);
+        log.info("Đã tạo chỉ mục FULLTEXT {} trong {}ms", INDEX_NAME, System.currentTimeMillis() - start);
+        return true;
+    }
+}
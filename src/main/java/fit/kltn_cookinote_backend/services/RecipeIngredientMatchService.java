@@ -0,0 +1,139 @@
+/*
+ * @ (#) RecipeIngredientMatchService.java    1.0    30/12/2025
+ * Copyright (c) 2025 IUH. All rights reserved.
+ */
+package fit.kltn_cookinote_backend.services;/*
+ * @description:
+ * @author: Bao Thong
+ * @date: 30/12/2025
+ * @version: 1.0
+ */
+
+import fit.kltn_cookinote_backend.enums.Privacy;
+import fit.kltn_cookinote_backend.repositories.RecipeRepository;
+import fit.kltn_cookinote_backend.search.IngredientBitmapIndex;
+import fit.kltn_cookinote_backend.search.IngredientMatch;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Gợi ý công thức theo nguyên liệu (shopping list) bằng IngredientBitmapIndex,
+ * dựng từ dữ liệu phân loại của IngredientClassificationService.
+ * - Nạp khi ứng dụng sẵn sàng; sau đó chỉ cập nhật trạng thái hiển thị (PUBLIC, chưa xóa) của từng recipe sau commit.
+ * - Nạp lỗi thì job định kỳ thử lại (reloadIfNotReady), request không tự nạp.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RecipeIngredientMatchService {
+
+    private final RecipeRepository recipeRepository;
+    private final IngredientClassificationService ingredientClassificationService;
+    private final PlatformTransactionManager transactionManager;
+
+    private volatile IngredientBitmapIndex index = new IngredientBitmapIndex(Map.of());
+    private volatile boolean ready = false;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        reload();
+    }
+
+    /**
+     * Dựng lại bitmap từ dữ liệu phân loại và nạp tập công thức đang hiển thị từ DB.
+     */
+    public synchronized void reload() {
+        long start = System.currentTimeMillis();
+        try {
+            IngredientBitmapIndex fresh = new IngredientBitmapIndex(ingredientClassificationService.getAllClassifications());
+            List<Long> visibleIds = readOnlyTransaction().execute(status -> recipeRepository.findAllPublicIds());
+            fresh.replaceLive(visibleIds != null ? visibleIds : List.of());
+            index = fresh;
+            ready = true;
+            log.info("Đã nạp chỉ mục nguyên liệu: {}/{} công thức đang hiển thị trong {}ms",
+                    fresh.liveCount(), fresh.size(), System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            log.error("Lỗi nạp chỉ mục nguyên liệu: {}", e.getMessage(), e);
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Nạp lại nếu lần nạp khi khởi động bị lỗi (gọi từ job định kỳ).
+     */
+    public void reloadIfNotReady() {
+        if (!ready) reload();
+    }
+
+    /**
+     * Chấm điểm toàn bộ công thức theo các tên nguyên liệu đã chuẩn hóa đồng nghĩa.
+     */
+    public List<IngredientMatch> match(Set<String> standardizedNames) {
+        return index.match(standardizedNames);
+    }
+
+    /**
+     * Đọc lại trạng thái hiển thị của recipe sau khi commit.
+     */
+    public void refresh(Long recipeId) {
+        afterCommit(() -> refreshNow(recipeId));
+    }
+
+    public void remove(Long recipeId) {
+        afterCommit(() -> hide(recipeId));
+    }
+
+    // --- Helpers ---
+
+    // Đồng bộ với reload để cập nhật không bị tập live cũ của lần nạp đang chạy ghi đè
+    private synchronized void refreshNow(Long recipeId) {
+        try {
+            Boolean visible = readOnlyTransaction().execute(status -> recipeRepository.findById(recipeId)
+                    .filter(r -> r.getPrivacy() == Privacy.PUBLIC && !r.isDeleted())
+                    .isPresent());
+            index.setLive(recipeId, Boolean.TRUE.equals(visible));
+        } catch (RuntimeException e) {
+            log.warn("Không cập nhật được chỉ mục nguyên liệu cho Recipe ID {}: {}", recipeId, e.getMessage());
+        }
+    }
+
+    private synchronized void hide(Long recipeId) {
+        index.setLive(recipeId, false);
+    }
+
+    private TransactionTemplate readOnlyTransaction() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        // Gọi từ afterCommit: phải mở transaction mới thay vì tham gia transaction vừa commit
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        template.setReadOnly(true);
+        return template;
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ * @ (#) RecipeRankingService.java    1.0    30/12/2025
+ * Copyright (c) 2025 IUH. All rights reserved.
+ */
+package fit.kltn_cookinote_backend.services;/*
+ * @description:
+ * @author: Bao Thong
+ * @date: 30/12/2025
+ * @version: 1.0
+ */
+
+import fit.kltn_cookinote_backend.projections.RecipeRankInfo;
+import fit.kltn_cookinote_backend.repositories.RecipeRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Bảng xếp hạng công thức PUBLIC lưu trong Redis sorted set, phục vụ "phổ biến" và "dễ nấu" theo trang
+ * mà không phải sắp xếp/GROUP BY trên DB mỗi request.
+ * - rank:recipe:popular: điểm = lượt xem (đọc giảm dần).
+ * - rank:recipe:easy: điểm = (độ khó, số nguyên liệu, thời gian chuẩn bị, thời gian nấu) gói thành một số (đọc tăng dần).
+ * - Cập nhật từng recipe sau commit (thêm/sửa/xóa, đổi quyền riêng tư, đổi nguyên liệu, tăng lượt xem);
+ * dựng lại toàn bộ định kỳ để sửa sai lệch (ghi vào key tạm rồi RENAME).
+ * - Redis lỗi hoặc bảng xếp hạng rỗng thì trả null để nơi gọi dùng truy vấn DB.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RecipeRankingService {
+
+    private static final String POPULAR_KEY = "rank:recipe:popular";
+    private static final String EASY_KEY = "rank:recipe:easy";
+    private static final String TMP_SUFFIX = ":tmp";
+    private static final int WRITE_BATCH_SIZE = 1000;
+
+    // Chỉ tăng điểm nếu recipe đã có trong bảng xếp hạng (không đưa recipe không PUBLIC vào) — atomic
+    private static final DefaultRedisScript<Long> INCR_IF_PRESENT_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('ZSCORE', KEYS[1], ARGV[1]) then " +
+                    "redis.call('ZINCRBY', KEYS[1], ARGV[2], ARGV[1]); return 1; end " +
+                    "return 0;",
+            Long.class);
+
+    private final RecipeRepository recipeRepository;
+    private final StringRedisTemplate redis;
+    private final PlatformTransactionManager transactionManager;
+
+    private final AtomicBoolean rebuilding = new AtomicBoolean(false);
+
+    /**
+     * Một trang recipeId theo thứ hạng và tổng số recipe trong bảng xếp hạng.
+     */
+    public record RankPage(List<Long> recipeIds, long total) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        rebuild();
+    }
+
+    /**
+     * Trang công thức phổ biến (lượt xem giảm dần), null nếu bảng xếp hạng không dùng được.
+     */
+    public RankPage popular(int offset, int limit) {
+        return page(POPULAR_KEY, offset, limit, true);
+    }
+
+    /**
+     * Trang công thức dễ nấu (điểm tăng dần), null nếu bảng xếp hạng không dùng được.
+     */
+    public RankPage easyToCook(int offset, int limit) {
+        return page(EASY_KEY, offset, limit, false);
+    }
+
+    /**
+     * Đọc lại khóa xếp hạng của recipe sau khi commit (gỡ khỏi bảng nếu không còn PUBLIC).
+     */
+    public void refresh(Long recipeId) {
+        afterCommit(() -> refreshNow(recipeId));
+    }
+
+    public void remove(Long recipeId) {
+        afterCommit(() -> {
+            try {
+                String member = recipeId.toString();
+                redis.opsForZSet().remove(POPULAR_KEY, member);
+                redis.opsForZSet().remove(EASY_KEY, member);
+            } catch (DataAccessException e) {
+                log.warn("Không gỡ được Recipe ID {} khỏi bảng xếp hạng: {}", recipeId, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Cộng một lượt xem vào bảng phổ biến sau khi commit.
+     */
+    public void recordView(Long recipeId) {
+        afterCommit(() -> {
+            try {
+                redis.execute(INCR_IF_PRESENT_SCRIPT, List.of(POPULAR_KEY), recipeId.toString(), "1");
+            } catch (DataAccessException e) {
+                log.warn("Không cập nhật được lượt xem trên bảng xếp hạng cho Recipe ID {}: {}", recipeId, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Dựng lại toàn bộ bảng xếp hạng từ DB. Bỏ qua nếu lần chạy trước chưa xong.
+     * Cập nhật từng phần xảy ra trong lúc dựng có thể bị bản dựng ghi đè; sai lệch đó được sửa ở lần dựng sau.
+     */
+    public void rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) return;
+        try {
+            long start = System.currentTimeMillis();
+            List<RecipeRankInfo> rows = readOnlyTransaction().execute(status -> recipeRepository.findAllPublicRankInfo());
+            if (rows == null) return;
+
+            replace(POPULAR_KEY, rows, RecipeRankingService::popularScore);
+            replace(EASY_KEY, rows, RecipeRankingService::easeScore);
+            log.info("Đã dựng bảng xếp hạng công thức: {} recipe trong {}ms", rows.size(), System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            log.error("Lỗi dựng bảng xếp hạng công thức: {}", e.getMessage(), e);
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    // --- Helpers ---
+
+    private RankPage page(String key, int offset, int limit, boolean descending) {
+        try {
+            Long total = redis.opsForZSet().zCard(key);
+            if (total == null || total == 0) return null;
+            if (offset >= total) return new RankPage(List.of(), total);
+
+            long end = (long) offset + limit - 1;
+            Set<String> members = descending
+                    ? redis.opsForZSet().reverseRange(key, offset, end)
+                    : redis.opsForZSet().range(key, offset, end);
+            List<Long> ids = new ArrayList<>(members != null ? members.size() : 0);
+            if (members != null) {
+                for (String member : members) {
+                    ids.add(Long.parseLong(member));
+                }
+            }
+            return new RankPage(ids, total);
+        } catch (DataAccessException | NumberFormatException e) {
+            log.warn("Không đọc được bảng xếp hạng {}: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    private void refreshNow(Long recipeId) {
+        try {
+            Optional<RecipeRankInfo> info = readOnlyTransaction()
+                    .execute(status -> recipeRepository.findPublicRankInfoById(recipeId));
+            String member = recipeId.toString();
+            if (info != null && info.isPresent()) {
+                redis.opsForZSet().add(POPULAR_KEY, member, popularScore(info.get()));
+                redis.opsForZSet().add(EASY_KEY, member, easeScore(info.get()));
+            } else {
+                redis.opsForZSet().remove(POPULAR_KEY, member);
+                redis.opsForZSet().remove(EASY_KEY, member);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Không cập nhật được bảng xếp hạng cho Recipe ID {}: {}", recipeId, e.getMessage());
+        }
+    }
+
+    /**
+     * Ghi toàn bộ vào key tạm theo lô rồi RENAME đè key thật (người đọc không thấy bảng dở dang).
+     */
+    private void replace(String key, List<RecipeRankInfo> rows, ToDoubleFunction<RecipeRankInfo> score) {
+        if (rows.isEmpty()) {
+            redis.delete(key);
+            return;
+        }
+        String tmpKey = key + TMP_SUFFIX;
+        redis.delete(tmpKey);
+        for (int from = 0; from < rows.size(); from += WRITE_BATCH_SIZE) {
+            List<RecipeRankInfo> batch = rows.subList(from, Math.min(from + WRITE_BATCH_SIZE, rows.size()));
+            Set<ZSetOperations.TypedTuple<String>> tuples = new HashSet<>(batch.size() * 2);
+            for (RecipeRankInfo row : batch) {
+                tuples.add(new DefaultTypedTuple<>(row.getId().toString(), score.applyAsDouble(row)));
+            }
+            redis.opsForZSet().add(tmpKey, tuples);
+        }
+        redis.rename(tmpKey, key);
+    }
+
+    private static double popularScore(RecipeRankInfo info) {
+        return info.getView() != null ? info.getView() : 0L;
+    }
+
+    /**
+     * Thứ tự "dễ nấu": độ khó, số nguyên liệu, thời gian chuẩn bị, thời gian nấu (đều tăng dần).
+     * Gói thành một số nguyên < 2^53 (double biểu diễn chính xác): độ khó | nguyên liệu (3 chữ số) | chuẩn bị (4) | nấu (4).
+     * Độ khó theo thứ tự enum EASY < MEDIUM < HARD; giá trị null xếp trước như ORDER BY ... ASC của MySQL.
+     */
+    private static double easeScore(RecipeRankInfo info) {
+        long difficulty = info.getDifficulty() != null ? info.getDifficulty().ordinal() + 1 : 0;
+        long ingredients = clamp(info.getIngredientCount(), 999);
+        long prepare = clamp(info.getPrepareTime() != null ? info.getPrepareTime().longValue() : null, 9999);
+        long cook = clamp(info.getCookTime() != null ? info.getCookTime().longValue() : null, 9999);
+        return ((difficulty * 1_000 + ingredients) * 10_000 + prepare) * 10_000 + cook;
+    }
+
+    private static long clamp(Long value, long max) {
+        if (value == null || value < 0) return 0;
+        return Math.min(value, max);
+    }
+
+    private TransactionTemplate readOnlyTransaction() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        // Gọi từ afterCommit: phải mở transaction mới thay vì tham gia transaction vừa commit
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        template.setReadOnly(true);
+        return template;
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
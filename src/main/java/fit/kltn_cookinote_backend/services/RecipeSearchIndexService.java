@@ -0,0 +1,170 @@
+/*
+ * @ (#) RecipeSearchIndexService.java    1.0    29/12/2025
+ * Copyright (c) 2025 IUH. All rights reserved.
+ */
+package fit.kltn_cookinote_backend.services;/*
+ * @description:
+ * @author: Bao Thong
+ * @date: 29/12/2025
+ * @version: 1.0
+ */
+
+import fit.kltn_cookinote_backend.projections.RecipeIngredientNameInfo;
+import fit.kltn_cookinote_backend.projections.RecipeSearchInfo;
+import fit.kltn_cookinote_backend.repositories.RecipeIngredientRepository;
+import fit.kltn_cookinote_backend.repositories.RecipeRepository;
+import fit.kltn_cookinote_backend.search.InvertedIndex;
+import fit.kltn_cookinote_backend.search.SearchHits;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Quản lý chỉ mục đảo ngược trong bộ nhớ cho tìm kiếm công thức PUBLIC.
+ * - Nạp toàn bộ khi ứng dụng sẵn sàng, cập nhật từng recipe sau khi transaction commit.
+ * - Trong lúc nạp lại, các recipe thay đổi được ghi nhận và đọc lại từ DB vào chỉ mục mới sau khi hoán đổi.
+ * - app.search.mode khác index (fulltext/sql) hoặc chỉ mục chưa sẵn sàng thì RecipeService dùng truy vấn DB.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RecipeSearchIndexService {
+
+    public static final String MODE_INDEX = "index";
+
+    private final RecipeRepository recipeRepository;
+    private final RecipeIngredientRepository recipeIngredientRepository;
+
+    @Value("${app.search.mode:index}")
+    private String mode;
+
+    private volatile InvertedIndex index = new InvertedIndex();
+    private volatile boolean ready = false;
+
+    private final Object mutationLock = new Object();
+    private boolean loading = false;
+    private final Set<Long> touchedWhileLoading = new LinkedHashSet<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        if (MODE_INDEX.equalsIgnoreCase(mode)) {
+            reload();
+        }
+    }
+
+    /**
+     * Dựng lại toàn bộ chỉ mục từ DB rồi hoán đổi.
+     */
+    public void reload() {
+        synchronized (mutationLock) {
+            if (loading) return;
+            loading = true;
+            touchedWhileLoading.clear();
+        }
+
+        long start = System.currentTimeMillis();
+        InvertedIndex fresh = new InvertedIndex();
+        Set<Long> touched;
+        try {
+            Map<Long, List<String>> ingredients = new HashMap<>();
+            for (RecipeIngredientNameInfo info : recipeIngredientRepository.findAllPublicIngredientNames()) {
+                ingredients.computeIfAbsent(info.getRecipeId(), k -> new ArrayList<>()).add(info.getName());
+            }
+            for (RecipeSearchInfo info : recipeRepository.findAllPublicSearchInfo()) {
+                fresh.upsert(info.getId(), info.getTitle(), info.getDescription(),
+                        ingredients.getOrDefault(info.getId(), List.of()));
+            }
+        } catch (RuntimeException e) {
+            log.error("Lỗi nạp chỉ mục tìm kiếm: {}", e.getMessage(), e);
+            synchronized (mutationLock) {
+                loading = false;
+            }
+            return;
+        } finally {
+            synchronized (mutationLock) {
+                if (loading) {
+                    index = fresh;
+                    ready = true;
+                    loading = false;
+                }
+                touched = new LinkedHashSet<>(touchedWhileLoading);
+                touchedWhileLoading.clear();
+            }
+        }
+
+        // Đọc lại các recipe bị sửa trong lúc nạp (thao tác idempotent)
+        touched.forEach(this::refreshNow);
+        log.info("Đã nạp chỉ mục tìm kiếm: {} công thức, {} term trong {}ms",
+                fresh.size(), fresh.termCount(), System.currentTimeMillis() - start);
+    }
+
+    public boolean isActive() {
+        return ready && MODE_INDEX.equalsIgnoreCase(mode);
+    }
+
+    /**
+     * Tìm kiếm trên chỉ mục.
+     *
+     * @return Một trang recipeId theo điểm BM25 giảm dần và tổng số kết quả
+     */
+    public SearchHits search(String query, int offset, int limit) {
+        return index.search(query, offset, limit);
+    }
+
+    /**
+     * Đọc lại nội dung tìm kiếm của recipe từ DB sau khi commit (gỡ khỏi chỉ mục nếu không còn PUBLIC).
+     */
+    public void refresh(Long recipeId) {
+        afterCommit(() -> refreshNow(recipeId));
+    }
+
+    public void remove(Long recipeId) {
+        afterCommit(() -> {
+            synchronized (mutationLock) {
+                if (loading) touchedWhileLoading.add(recipeId);
+            }
+            index.remove(recipeId);
+        });
+    }
+
+    // --- Helpers ---
+
+    private void refreshNow(Long recipeId) {
+        synchronized (mutationLock) {
+            if (loading) touchedWhileLoading.add(recipeId);
+        }
+        try {
+            recipeRepository.findPublicSearchInfoById(recipeId).ifPresentOrElse(
+                    info -> index.upsert(recipeId, info.getTitle(), info.getDescription(),
+                            recipeIngredientRepository.findNamesByRecipeId(recipeId)),
+                    () -> index.remove(recipeId));
+        } catch (RuntimeException e) {
+            log.warn("Không cập nhật được chỉ mục tìm kiếm cho Recipe ID {}: {}", recipeId, e.getMessage());
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -20,6 +20,7 @@ import org.springframework.web.multipart.MultipartFile;
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public interface RecipeService {
     /**
@@ -42,16 +43,33 @@ public interface RecipeService {
 
     PageResult<RecipeCardResponse> listPublicByCategory(Long categoryId, int page, int size);
 
+    /**
+     * Bản phân trang theo cursor (keyset) của các danh sách trên: không có count(*), cursor rỗng = trang đầu,
+     * trang kế tiếp dùng nextCursor trả về.
+     */
+    PageResult<RecipeCardResponse> listPublicByCategory(Long categoryId, String cursor, int size);
+
     PageResult<RecipeCardResponse> listPublic(int page, int size);
 
+    PageResult<RecipeCardResponse> listPublic(String cursor, int size);
+
     PageResult<RecipeCardResponse> listPopular(int page, int size);
 
+    PageResult<RecipeCardResponse> listPopular(String cursor, int size);
+
+    /**
+     * Công thức đang thịnh hành: điểm tương tác gần đây (suy giảm theo thời gian), giảm dần.
+     */
+    PageResult<RecipeCardResponse> listTrending(int page, int size);
+
     /**
      * Lấy danh sách recipe của một owner, có xét quyền xem và lọc theo danh mục.
      * @param categoryId ID danh mục để lọc (có thể null)
      */
     PageResult<RecipeCardResponse> listByOwner(Long ownerUserId, Long viewerUserIdOrNull, Long categoryId, int page, int size);
 
+    PageResult<RecipeCardResponse> listByOwner(Long ownerUserId, Long viewerUserIdOrNull, Long categoryId, String cursor, int size);
+
     List<RecipeStepItem> getSteps(Long viewerUserIdOrNull, Long recipeId);
 
     List<RecipeIngredientItem> getIngredients(Long viewerUserIdOrNull, Long recipeId);
@@ -88,6 +106,13 @@ public interface RecipeService {
 
     PageResult<RecipeCardResponse> searchPublicRecipes(String query, int page, int size);
 
+    /**
+     * Duyệt công thức PUBLIC theo facet kèm số đếm cho từng giá trị facet.
+     *
+     * @param filters Key: tên facet (RecipeFacetService.FACETS), Value: các giá trị được chọn (OR trong một facet)
+     */
+    RecipeBrowseResponse browsePublicRecipes(Map<String, Set<String>> filters, int page, int size);
+
     PageResult<RecipeCardResponse> listEasyToCook(int page, int size);
 
     /**
@@ -135,6 +160,8 @@ public interface RecipeService {
      */
     PageResult<RecipeCardResponse> filterRecipes(User actor, Long filterUserId, Privacy privacy, Boolean deleted, int page, int size);
 
+    PageResult<RecipeCardResponse> filterRecipes(User actor, Long filterUserId, Privacy privacy, Boolean deleted, String cursor, int size);
+
     /**
      * Khôi phục công thức đã xóa mềm.
      * Chỉ chủ sở hữu hoặc ADMIN mới có quyền.
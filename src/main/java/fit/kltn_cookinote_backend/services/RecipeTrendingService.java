@@ -0,0 +1,191 @@
+/*
+ * @ (#) RecipeTrendingService.java    1.0    30/12/2025
+ * Copyright (c) 2025 IUH. All rights reserved.
+ */
+package fit.kltn_cookinote_backend.services;/*
+ * @description:
+ * @author: Bao Thong
+ * @date: 30/12/2025
+ * @version: 1.0
+ */
+
+import fit.kltn_cookinote_backend.entities.Recipe;
+import fit.kltn_cookinote_backend.enums.EngagementType;
+import fit.kltn_cookinote_backend.enums.Privacy;
+import fit.kltn_cookinote_backend.repositories.RecipeRepository;
+import fit.kltn_cookinote_backend.repositories.RecipeTrendingScoreRepository;
+import fit.kltn_cookinote_backend.search.DecayingScoreBoard;
+import fit.kltn_cookinote_backend.search.SearchHits;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Xếp hạng công thức "đang thịnh hành" theo tương tác gần đây (xem, bình luận, đánh giá, yêu thích, đã nấu).
+ * - Mỗi tương tác cộng trọng số EngagementType vào điểm suy giảm theo hàm mũ (DecayingScoreBoard) trong bộ nhớ,
+ * không ghi DB theo từng sự kiện; điểm giảm một nửa sau mỗi app.trending.half-life.
+ * - Checkpoint định kỳ: ghi đè bảng recipe_trending_score, nạp lại khi khởi động.
+ * - Danh sách xếp hạng (tối đa MAX_RANKED recipe, đã lọc còn PUBLIC) được tính lại định kỳ; request chỉ cắt trang.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RecipeTrendingService {
+
+    private static final int MAX_RANKED = 500;
+    // Điểm nhỏ hơn ngưỡng này (vd. một lượt xem từ ~7 chu kỳ bán rã trước) thì bỏ khi checkpoint
+    private static final double MIN_SCORE = 0.01;
+
+    private static final String INSERT_SQL =
+            "INSERT INTO recipe_trending_score (recipe_id, score, checkpoint_at_ms) VALUES (?, ?, ?)";
+
+    private final RecipeRepository recipeRepository;
+    private final RecipeTrendingScoreRepository recipeTrendingScoreRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${app.trending.half-life:24h}")
+    private Duration halfLife;
+
+    private DecayingScoreBoard board;
+    private volatile List<Long> ranking = List.of();
+
+    @PostConstruct
+    void init() {
+        this.board = new DecayingScoreBoard(halfLife.toMillis(), System.currentTimeMillis());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        try {
+            int[] loaded = {0};
+            readOnlyTransaction().executeWithoutResult(status -> recipeTrendingScoreRepository.findAll().forEach(s -> {
+                board.add(s.getRecipeId(), s.getScore(), s.getCheckpointAtMs());
+                loaded[0]++;
+            }));
+            log.info("Đã nạp checkpoint điểm xu hướng của {} công thức", loaded[0]);
+        } catch (RuntimeException e) {
+            log.error("Lỗi nạp checkpoint điểm xu hướng: {}", e.getMessage(), e);
+        }
+        refreshRanking();
+    }
+
+    /**
+     * Ghi nhận một tương tác với recipe PUBLIC (bỏ qua recipe riêng tư/chia sẻ/đã xóa) sau khi transaction commit.
+     */
+    public void record(Recipe recipe, EngagementType type) {
+        if (recipe == null || recipe.isDeleted()) return;
+        record(recipe.getId(), recipe.getPrivacy(), type);
+    }
+
+    /**
+     * Như record(Recipe, EngagementType) khi nơi gọi chỉ có id và quyền riêng tư của recipe (chưa xóa).
+     */
+    public void record(Long recipeId, Privacy privacy, EngagementType type) {
+        if (recipeId == null || privacy != Privacy.PUBLIC) return;
+        afterCommit(() -> board.add(recipeId, type.getWeight(), System.currentTimeMillis()));
+    }
+
+    /**
+     * Gỡ recipe khỏi bảng xu hướng (bị xóa hoặc không còn PUBLIC) sau khi transaction commit.
+     */
+    public void remove(Long recipeId) {
+        afterCommit(() -> {
+            board.remove(recipeId);
+            List<Long> current = ranking;
+            if (current.contains(recipeId)) {
+                List<Long> next = new ArrayList<>(current);
+                next.remove(recipeId);
+                ranking = List.copyOf(next);
+            }
+        });
+    }
+
+    /**
+     * Một trang recipeId theo điểm xu hướng giảm dần.
+     */
+    public SearchHits page(int offset, int limit) {
+        List<Long> current = ranking;
+        if (offset >= current.size()) return new SearchHits(List.of(), current.size());
+        return new SearchHits(current.subList(offset, Math.min(offset + limit, current.size())), current.size());
+    }
+
+    /**
+     * Tính lại danh sách xếp hạng từ điểm hiện tại, chỉ giữ recipe còn PUBLIC và chưa xóa.
+     */
+    public void refreshRanking() {
+        try {
+            List<DecayingScoreBoard.Entry> top = board.top(MAX_RANKED, System.currentTimeMillis());
+            if (top.isEmpty()) {
+                ranking = List.of();
+                return;
+            }
+            List<Long> ids = top.stream().map(DecayingScoreBoard.Entry::id).toList();
+            List<Long> visibleIds = readOnlyTransaction().execute(status -> recipeRepository.findPublicIdsIn(ids));
+            Set<Long> visible = new HashSet<>(visibleIds != null ? visibleIds : List.of());
+            ranking = ids.stream().filter(visible::contains).toList();
+        } catch (RuntimeException e) {
+            log.warn("Không tính lại được danh sách xu hướng: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Dời mốc suy giảm, bỏ điểm quá nhỏ và ghi đè checkpoint trong DB.
+     */
+    public void checkpoint() {
+        long now = System.currentTimeMillis();
+        Map<Long, Double> scores = board.rebase(now, MIN_SCORE);
+        try {
+            List<Object[]> args = new ArrayList<>(scores.size());
+            scores.forEach((id, score) -> args.add(new Object[]{id, score, now}));
+
+            TransactionTemplate template = new TransactionTemplate(transactionManager);
+            template.executeWithoutResult(status -> {
+                jdbcTemplate.update("DELETE FROM recipe_trending_score");
+                if (!args.isEmpty()) jdbcTemplate.batchUpdate(INSERT_SQL, args);
+            });
+            log.info("Đã checkpoint điểm xu hướng của {} công thức", scores.size());
+        } catch (RuntimeException e) {
+            log.error("Lỗi checkpoint điểm xu hướng: {}", e.getMessage(), e);
+        }
+    }
+
+    // --- Helpers ---
+
+    private TransactionTemplate readOnlyTransaction() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        template.setReadOnly(true);
+        return template;
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
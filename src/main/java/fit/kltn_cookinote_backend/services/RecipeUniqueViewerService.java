@@ -0,0 +1,169 @@
+/*
+ * @ (#) RecipeUniqueViewerService.java    1.0    30/12/2025
+ * Copyright (c) 2025 IUH. All rights reserved.
+ */
+package fit.kltn_cookinote_backend.services;/*
+ * @description:
+ * @author: Bao Thong
+ * @date: 30/12/2025
+ * @version: 1.0
+ */
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Ước lượng số người xem khác nhau của công thức bằng HyperLogLog trong Redis (PFADD/PFCOUNT),
+ * bộ nhớ cố định (tối đa ~12KB) mỗi sketch bất kể số lượt xem; sai số chuẩn ~0.81%.
+ * - Hai cửa sổ: trọn đời (hll:recipe:viewers:{id}) và theo ngày UTC (...:d:{yyyyMMdd}, tự hết hạn sau DAILY_TTL).
+ * - Người xem định danh bằng userId; khách (không đăng nhập) bằng băm của IP + User-Agent.
+ * - "Người xem mới trong ngày" (newToday, dùng để chặn tải lại trang đẩy điểm xu hướng) lấy từ một SET chính xác
+ * theo ngày (recipe:viewers:seen:{id}:{yyyyMMdd}, SADD trả 1 khi chưa có): PFADD trả 0 cả khi phần tử mới nhưng
+ * không làm đổi thanh ghi nào, nên không dùng được cho việc này. HLL chỉ dùng cho số hiển thị.
+ * - Ghi và đếm trong một lần pipeline; Redis lỗi thì trả null (nơi gọi coi như không có số liệu).
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RecipeUniqueViewerService {
+
+    private static final String KEY_PREFIX = "hll:recipe:viewers:";
+    private static final String SEEN_PREFIX = "recipe:viewers:seen:";
+    private static final Duration DAILY_TTL = Duration.ofDays(2);
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private final StringRedisTemplate redis;
+
+    /**
+     * Số người xem khác nhau (ước lượng) của một recipe.
+     *
+     * @param newToday true nếu lượt xem vừa ghi nhận là của người xem chưa xem recipe trong ngày (chính xác, không ước lượng)
+     */
+    public record UniqueViewerStats(long lifetime, long today, boolean newToday) {
+    }
+
+    /**
+     * Ghi nhận người xem rồi trả về số người xem khác nhau sau khi ghi.
+     *
+     * @return null nếu không xác định được người xem hoặc Redis lỗi
+     */
+    public UniqueViewerStats record(Long recipeId, Long viewerUserId) {
+        String viewer = viewerKey(viewerUserId);
+        if (viewer == null) return count(recipeId);
+
+        byte[] lifetimeKey = bytes(lifetimeKey(recipeId));
+        byte[] dailyKey = bytes(dailyKey(recipeId));
+        byte[] seenKey = bytes(seenKey(recipeId));
+        byte[] member = bytes(viewer);
+        try {
+            List<Object> results = redis.executePipelined((RedisCallback<Object>) connection -> {
+                connection.hyperLogLogCommands().pfAdd(lifetimeKey, member);
+                connection.hyperLogLogCommands().pfAdd(dailyKey, member);
+                connection.keyCommands().expire(dailyKey, DAILY_TTL.toSeconds());
+                connection.setCommands().sAdd(seenKey, member);
+                connection.keyCommands().expire(seenKey, DAILY_TTL.toSeconds());
+                countInto(connection, lifetimeKey, dailyKey);
+                return null;
+            });
+            return new UniqueViewerStats(toLong(results.get(5)), toLong(results.get(6)), toLong(results.get(3)) == 1L);
+        } catch (DataAccessException e) {
+            log.warn("Không ghi nhận được người xem cho Recipe ID {}: {}", recipeId, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Số người xem khác nhau mà không ghi nhận lượt xem (vd. chủ sở hữu xem công thức của mình).
+     */
+    public UniqueViewerStats count(Long recipeId) {
+        byte[] lifetimeKey = bytes(lifetimeKey(recipeId));
+        byte[] dailyKey = bytes(dailyKey(recipeId));
+        try {
+            List<Object> results = redis.executePipelined((RedisCallback<Object>) connection -> {
+                countInto(connection, lifetimeKey, dailyKey);
+                return null;
+            });
+            return new UniqueViewerStats(toLong(results.get(0)), toLong(results.get(1)), false);
+        } catch (DataAccessException e) {
+            log.warn("Không đọc được số người xem của Recipe ID {}: {}", recipeId, e.getMessage());
+            return null;
+        }
+    }
+
+    // --- Helpers ---
+
+    private static void countInto(RedisConnection connection, byte[] lifetimeKey, byte[] dailyKey) {
+        connection.hyperLogLogCommands().pfCount(lifetimeKey);
+        connection.hyperLogLogCommands().pfCount(dailyKey);
+    }
+
+    private static String lifetimeKey(Long recipeId) {
+        return KEY_PREFIX + recipeId;
+    }
+
+    private static String dailyKey(Long recipeId) {
+        return KEY_PREFIX + recipeId + ":d:" + today();
+    }
+
+    private static String seenKey(Long recipeId) {
+        return SEEN_PREFIX + recipeId + ":" + today();
+    }
+
+    private static String today() {
+        return LocalDate.now(ZoneOffset.UTC).format(DAY_FORMAT);
+    }
+
+    /**
+     * "u:{userId}" cho người đăng nhập, "a:{băm IP + User-Agent}" cho khách, null nếu ngoài request HTTP.
+     */
+    private static String viewerKey(Long viewerUserId) {
+        if (viewerUserId != null) return "u:" + viewerUserId;
+
+        ServletRequestAttributes attributes = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
+        if (attributes == null) return null;
+        HttpServletRequest request = attributes.getRequest();
+
+        String ip = request.getHeader("X-FORWARDED-FOR");
+        if (ip == null || ip.isEmpty()) ip = request.getRemoteAddr();
+        // Nếu có nhiều IP (do qua nhiều proxy), lấy IP đầu tiên (IP gốc của client)
+        if (ip != null && ip.contains(",")) ip = ip.split(",")[0].trim();
+        String userAgent = request.getHeader("User-Agent");
+        return "a:" + fingerprint(ip + "|" + userAgent);
+    }
+
+    private static String fingerprint(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes(value));
+            // 8 byte đầu là đủ phân biệt người xem, không lưu IP thô vào Redis
+            return HexFormat.of().formatHex(digest, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static long toLong(Object value) {
+        return value instanceof Number n ? n.longValue() : 0L;
+    }
+}
@@ -0,0 +1,484 @@
+/*
+ * @ (#) RecipeVectorIndexService.java    1.0    22/12/2025
+ * Copyright (c) 2025 IUH. All rights reserved.
+ */
+package fit.kltn_cookinote_backend.services;/*
+ * @description:
+ * @author: Bao Thong
+ * @date: 22/12/2025
+ * @version: 1.0
+ */
+
+import fit.kltn_cookinote_backend.dtos.response.VectorRecallReport;
+import fit.kltn_cookinote_backend.enums.Privacy;
+import fit.kltn_cookinote_backend.projections.RecipeAccessInfo;
+import fit.kltn_cookinote_backend.projections.RecipeVectorInfo;
+import fit.kltn_cookinote_backend.repositories.RecipeEmbeddingRepository;
+import fit.kltn_cookinote_backend.vectors.FlatVectorIndex;
+import fit.kltn_cookinote_backend.vectors.HnswVectorIndex;
+import fit.kltn_cookinote_backend.vectors.MappedFlatVectorIndex;
+import fit.kltn_cookinote_backend.vectors.QuantizedFlatVectorIndex;
+import fit.kltn_cookinote_backend.vectors.VectorCodec;
+import fit.kltn_cookinote_backend.vectors.VectorIndex;
+import fit.kltn_cookinote_backend.vectors.VectorMatch;
+import fit.kltn_cookinote_backend.vectors.VectorSnapshot;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+/**
+ * Quản lý chỉ mục vector thường trú trong bộ nhớ cho gợi ý cá nhân hóa.
+ * - Tải toàn bộ embedding một lần khi ứng dụng khởi động.
+ * - Cập nhật từng phần khi job embedding ghi vector mới, khi recipe bị xóa/khôi phục
+ * hoặc đổi quyền riêng tư (chỉ áp dụng SAU KHI transaction commit thành công).
+ * - Loại chỉ mục chọn qua app.vector-index.type: hnsw (đồ thị xấp xỉ), int8 (quét lượng tử + xếp hạng lại)
+ * hoặc exact (quét toàn bộ).
+ * - Định kỳ ghi snapshot ra đĩa; lần khởi động sau mở snapshot bằng mmap và chỉ đồng bộ bù từ DB.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RecipeVectorIndexService {
+
+    private final RecipeEmbeddingRepository recipeEmbeddingRepository;
+
+    public static final String TYPE_HNSW = "hnsw";
+    public static final String TYPE_EXACT = "exact";
+    public static final String TYPE_INT8 = "int8";
+
+    @Value("${app.vector-index.type:hnsw}")
+    private String indexType;
+
+    @Value("${app.vector-index.hnsw.m:16}")
+    private int hnswM;
+
+    @Value("${app.vector-index.hnsw.ef-construction:200}")
+    private int hnswEfConstruction;
+
+    @Value("${app.vector-index.hnsw.ef-search:64}")
+    private int hnswEfSearch;
+
+    // Chế độ int8: số ứng viên lấy từ bước quét lượng tử = k * rerank-factor
+    @Value("${app.vector-index.int8.rerank-factor:4}")
+    private int int8RerankFactor;
+
+    private volatile VectorIndex index = new FlatVectorIndex();
+
+    // Đường dẫn file snapshot (để trống = tắt snapshot)
+    @Value("${app.vector-index.snapshot-path:data/recipe-vectors.snap}")
+    private String snapshotPath;
+
+    // Lùi watermark một khoảng để không bỏ sót thay đổi commit sát thời điểm ghi snapshot
+    private static final long WATERMARK_SAFETY_MILLIS = 5 * 60 * 1000L;
+    private static final int CATCH_UP_BATCH_SIZE = 1000;
+
+    // Trong lúc đang tải lại, các thay đổi vừa áp dụng vào chỉ mục hiện tại vừa được xếp hàng
+    // để áp dụng lại lên chỉ mục mới trước khi hoán đổi
+    private final Object mutationLock = new Object();
+    private boolean loading = false;
+    private final List<Consumer<VectorIndex>> pendingMutations = new ArrayList<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        if (!warmStartFromSnapshot()) {
+            reload();
+        }
+    }
+
+    /**
+     * Dựng lại toàn bộ chỉ mục từ DB rồi hoán đổi nguyên tử.
+     */
+    public void reload() {
+        if (!beginLoading()) return;
+
+        long start = System.currentTimeMillis();
+        VectorIndex fresh = newIndex();
+        try {
+            for (RecipeVectorInfo info : recipeEmbeddingRepository.findAllVectorProjections()) {
+                upsertFromDb(fresh, info);
+            }
+        } catch (Exception e) {
+            log.error("Lỗi tải chỉ mục vector: {}", e.getMessage(), e);
+            abortLoading();
+            return;
+        }
+
+        finishLoading(fresh);
+        log.info("Đã tải chỉ mục vector ({}): {} công thức, {} chiều trong {}ms",
+                indexType, fresh.size(), fresh.dimension(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Khởi động ấm từ snapshot: mở file bằng mmap (vector nằm ngoài heap) rồi chỉ đồng bộ bù phần thay đổi
+     * sau watermark từ DB. Với hnsw/int8, chỉ mục mmap phục vụ tạm trong lúc dựng chỉ mục đích từ chính snapshot.
+     *
+     * @return false nếu không có snapshot hợp lệ (khi đó phải tải toàn bộ từ DB).
+     */
+    private boolean warmStartFromSnapshot() {
+        Path path = snapshotFile();
+        if (path == null || !Files.isRegularFile(path)) return false;
+        if (!beginLoading()) return true;
+
+        long start = System.currentTimeMillis();
+        VectorSnapshot snapshot;
+        MappedFlatVectorIndex warm;
+        List<Consumer<VectorIndex>> catchUpOps;
+        try {
+            snapshot = VectorSnapshot.open(path);
+            warm = new MappedFlatVectorIndex(snapshot);
+            catchUpOps = catchUp(warm, snapshot.watermarkEpochMillis() - WATERMARK_SAFETY_MILLIS);
+            catchUpOps.forEach(op -> op.accept(warm));
+        } catch (Exception e) {
+            log.warn("Không dùng được snapshot vector {}: {}", path, e.getMessage());
+            abortLoading();
+            return false;
+        }
+        log.info("Đã mở snapshot vector: {} công thức trong {}ms",
+                warm.size(), System.currentTimeMillis() - start);
+
+        if (TYPE_EXACT.equalsIgnoreCase(indexType)) {
+            finishLoading(warm);
+            return true;
+        }
+
+        publishWhileLoading(warm);
+        long buildStart = System.currentTimeMillis();
+        VectorIndex rebuilt = newIndex();
+        try {
+            // Đọc từ một bản mở riêng của snapshot để không giữ khóa của chỉ mục đang phục vụ truy vấn
+            new MappedFlatVectorIndex(snapshot).forEach(rebuilt::upsert);
+            catchUpOps.forEach(op -> op.accept(rebuilt));
+        } catch (RuntimeException e) {
+            // Chỉ mục mmap đang phục vụ đã nhận mọi thay đổi trong lúc dựng -> giữ nó, kết thúc trạng thái loading
+            // (không thì hàng đợi thay đổi phình mãi và reload/snapshot bị bỏ qua vĩnh viễn)
+            log.error("Lỗi dựng chỉ mục vector ({}) từ snapshot, tiếp tục dùng chỉ mục mmap: {}",
+                    indexType, e.getMessage(), e);
+            abortLoading();
+            return true;
+        }
+        finishLoading(rebuilt);
+        log.info("Đã dựng chỉ mục vector ({}) từ snapshot: {} công thức trong {}ms",
+                indexType, rebuilt.size(), System.currentTimeMillis() - buildStart);
+        return true;
+    }
+
+    /**
+     * Đối chiếu snapshot với DB để tạo danh sách thao tác đồng bộ bù:
+     * - Cập nhật owner/quyền riêng tư, loại recipe đã bị xóa.
+     * - Nạp vector thay đổi sau watermark và vector của recipe chưa có trong snapshot (ví dụ vừa khôi phục).
+     */
+    private List<Consumer<VectorIndex>> catchUp(VectorIndex snapshotIndex, long sinceEpochMillis) {
+        List<Consumer<VectorIndex>> ops = new ArrayList<>();
+
+        Set<Long> live = new HashSet<>();
+        for (RecipeAccessInfo info : recipeEmbeddingRepository.findAllAccessInfo()) {
+            live.add(info.getId());
+            boolean isPublic = info.getPrivacy() == Privacy.PUBLIC;
+            ops.add(idx -> idx.updateAccess(info.getId(), info.getOwnerId(), isPublic));
+        }
+        ops.add(idx -> {
+            for (long recipeId : idx.recipeIds()) {
+                if (!live.contains(recipeId)) idx.remove(recipeId);
+            }
+        });
+
+        Set<Long> loaded = new HashSet<>();
+        LocalDateTime since = LocalDateTime.ofInstant(Instant.ofEpochMilli(sinceEpochMillis), ZoneId.systemDefault());
+        for (RecipeVectorInfo info : recipeEmbeddingRepository.findVectorProjectionsUpdatedSince(since)) {
+            ops.add(upsertOp(info));
+            loaded.add(info.getId());
+        }
+
+        List<Long> missing = new ArrayList<>();
+        for (Long recipeId : live) {
+            if (!loaded.contains(recipeId) && !snapshotIndex.contains(recipeId)) missing.add(recipeId);
+        }
+        for (int i = 0; i < missing.size(); i += CATCH_UP_BATCH_SIZE) {
+            List<Long> batch = missing.subList(i, Math.min(i + CATCH_UP_BATCH_SIZE, missing.size()));
+            for (RecipeVectorInfo info : recipeEmbeddingRepository.findVectorProjectionsByIds(batch)) {
+                ops.add(upsertOp(info));
+                loaded.add(info.getId());
+            }
+        }
+
+        log.info("Đồng bộ bù snapshot vector: nạp {} vector từ DB, đối chiếu {} recipe", loaded.size(), live.size());
+        return ops;
+    }
+
+    /**
+     * Ghi chỉ mục hiện tại ra file snapshot (ghi file tạm rồi đổi tên nguyên tử).
+     */
+    public void saveSnapshot() {
+        Path path = snapshotFile();
+        if (path == null) return;
+
+        VectorIndex current;
+        synchronized (mutationLock) {
+            if (loading) return; // Chỉ mục đang dựng dở, để lần sau
+            current = index;
+        }
+        if (current.size() == 0) return;
+
+        // Mọi thay đổi commit trước thời điểm này đều đã được áp dụng vào chỉ mục
+        long watermark = System.currentTimeMillis();
+        try {
+            long start = System.currentTimeMillis();
+            int written = VectorSnapshot.write(path, current, watermark);
+            log.info("Đã ghi snapshot vector: {} công thức vào {} trong {}ms",
+                    written, path, System.currentTimeMillis() - start);
+        } catch (IOException e) {
+            log.warn("Lỗi ghi snapshot vector {}: {}", path, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void saveSnapshotOnShutdown() {
+        saveSnapshot();
+    }
+
+    /**
+     * Tìm các recipe gần nhất với vector truy vấn mà người xem được phép thấy.
+     *
+     * @return Danh sách ID theo độ tương đồng giảm dần
+     */
+    public List<Long> findNearestRecipeIds(List<Double> queryVector, Long viewerId, int k) {
+        return findNearestRecipeIds(toFloatArray(queryVector), viewerId, k);
+    }
+
+    public List<Long> findNearestRecipeIds(float[] query, Long viewerId, int k) {
+        List<VectorMatch> matches = index.search(query, k, viewerId);
+        List<Long> ids = new ArrayList<>(matches.size());
+        for (VectorMatch m : matches) {
+            ids.add(m.recipeId());
+        }
+        return ids;
+    }
+
+    public void upsert(Long recipeId, Long ownerId, Privacy privacy, List<Double> vector) {
+        upsert(recipeId, ownerId, privacy, toFloatArray(vector));
+    }
+
+    public void upsert(Long recipeId, Long ownerId, Privacy privacy, float[] values) {
+        afterCommit(() -> mutate(idx -> idx.upsert(recipeId, ownerId, privacy == Privacy.PUBLIC, values)));
+    }
+
+    public void updateAccess(Long recipeId, Long ownerId, Privacy privacy) {
+        afterCommit(() -> mutate(idx -> idx.updateAccess(recipeId, ownerId, privacy == Privacy.PUBLIC)));
+    }
+
+    public void remove(Long recipeId) {
+        afterCommit(() -> mutate(idx -> idx.remove(recipeId)));
+    }
+
+    /**
+     * Đọc lại vector của một recipe từ DB (dùng khi khôi phục recipe đã xóa mềm).
+     */
+    public void refresh(Long recipeId) {
+        afterCommit(() -> recipeEmbeddingRepository.findVectorProjectionById(recipeId).ifPresentOrElse(
+                info -> mutate(idx -> upsertFromDb(idx, info)),
+                () -> mutate(idx -> idx.remove(recipeId))));
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * Dọn tombstone của chỉ mục hiện tại nếu cần (gọi từ job định kỳ; truy vấn vẫn chạy trong lúc dựng).
+     */
+    public void compactIfNeeded() {
+        VectorIndex current = index;
+        try {
+            long start = System.currentTimeMillis();
+            if (current.compactIfNeeded()) {
+                log.info("Đã dọn chỉ mục vector ({}): còn {} công thức trong {}ms",
+                        indexType, current.size(), System.currentTimeMillis() - start);
+            }
+        } catch (RuntimeException e) {
+            log.error("Lỗi dọn chỉ mục vector: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Đo recall của chỉ mục hiện tại so với tìm kiếm chính xác.
+     * Truy vấn mẫu là vector của các recipe lấy ngẫu nhiên trong chỉ mục, tìm với quyền khách (chỉ PUBLIC).
+     */
+    public VectorRecallReport evaluateRecall(int samples, int k) {
+        VectorIndex current = index;
+        long[] ids = current.recipeIds();
+        int sampleCount = Math.min(samples, ids.length);
+
+        long approxNanos = 0;
+        long exactNanos = 0;
+        long quantizedOnlyNanos = 0;
+        long hits = 0;
+        long quantizedOnlyHits = 0;
+        long expected = 0;
+        QuantizedFlatVectorIndex quantized = current instanceof QuantizedFlatVectorIndex q ? q : null;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < sampleCount; i++) {
+            // Chọn mẫu không lặp (Fisher-Yates từng phần)
+            int j = i + random.nextInt(ids.length - i);
+            long picked = ids[j];
+            ids[j] = ids[i];
+            ids[i] = picked;
+
+            float[] query = current.vectorOf(picked);
+            if (query == null) continue;
+
+            long t0 = System.nanoTime();
+            List<VectorMatch> approx = current.search(query, k, null);
+            long t1 = System.nanoTime();
+            List<VectorMatch> exact = current.exactSearch(query, k, null);
+            long t2 = System.nanoTime();
+            approxNanos += t1 - t0;
+            exactNanos += t2 - t1;
+
+            Set<Long> truth = new HashSet<>();
+            for (VectorMatch m : exact) truth.add(m.recipeId());
+            for (VectorMatch m : approx) {
+                if (truth.contains(m.recipeId())) hits++;
+            }
+            expected += truth.size();
+
+            // Với chỉ mục int8: đo thêm riêng bước quét lượng tử (không xếp hạng lại)
+            if (quantized != null) {
+                long t3 = System.nanoTime();
+                List<VectorMatch> scanOnly = quantized.searchQuantizedOnly(query, k, null);
+                quantizedOnlyNanos += System.nanoTime() - t3;
+                for (VectorMatch m : scanOnly) {
+                    if (truth.contains(m.recipeId())) quantizedOnlyHits++;
+                }
+            }
+        }
+
+        return VectorRecallReport.builder()
+                .indexType(indexType)
+                .indexSize(current.size())
+                .sampleQueries(sampleCount)
+                .k(k)
+                .recall(expected == 0 ? 1.0 : (double) hits / expected)
+                .avgApproxLatencyMs(sampleCount == 0 ? 0 : approxNanos / 1e6 / sampleCount)
+                .avgExactLatencyMs(sampleCount == 0 ? 0 : exactNanos / 1e6 / sampleCount)
+                .quantizedOnlyRecall(quantized == null ? null
+                        : (expected == 0 ? 1.0 : (double) quantizedOnlyHits / expected))
+                .avgQuantizedOnlyLatencyMs(quantized == null || sampleCount == 0 ? null
+                        : quantizedOnlyNanos / 1e6 / sampleCount)
+                .build();
+    }
+
+    // --- Helpers ---
+
+    private VectorIndex newIndex() {
+        if (TYPE_EXACT.equalsIgnoreCase(indexType)) {
+            return new FlatVectorIndex();
+        }
+        if (TYPE_INT8.equalsIgnoreCase(indexType)) {
+            return new QuantizedFlatVectorIndex(int8RerankFactor);
+        }
+        return new HnswVectorIndex(hnswM, hnswEfConstruction, hnswEfSearch);
+    }
+
+    private void mutate(Consumer<VectorIndex> mutation) {
+        synchronized (mutationLock) {
+            mutation.accept(index);
+            if (loading) {
+                pendingMutations.add(mutation);
+            }
+        }
+    }
+
+    private boolean beginLoading() {
+        synchronized (mutationLock) {
+            if (loading) return false;
+            loading = true;
+            return true;
+        }
+    }
+
+    // Cho chỉ mục mới phục vụ truy vấn nhưng vẫn giữ hàng đợi thay đổi (còn một chỉ mục nữa đang dựng)
+    private void publishWhileLoading(VectorIndex fresh) {
+        synchronized (mutationLock) {
+            pendingMutations.forEach(m -> m.accept(fresh));
+            index = fresh;
+        }
+    }
+
+    private void finishLoading(VectorIndex fresh) {
+        synchronized (mutationLock) {
+            pendingMutations.forEach(m -> m.accept(fresh));
+            pendingMutations.clear();
+            index = fresh;
+            loading = false;
+        }
+    }
+
+    private void abortLoading() {
+        synchronized (mutationLock) {
+            pendingMutations.clear();
+            loading = false;
+        }
+    }
+
+    private static Consumer<VectorIndex> upsertOp(RecipeVectorInfo info) {
+        float[] vector = VectorCodec.decode(info.getEmbedding());
+        boolean isPublic = info.getPrivacy() == Privacy.PUBLIC;
+        return idx -> {
+            if (vector.length > 0) idx.upsert(info.getId(), info.getOwnerId(), isPublic, vector);
+        };
+    }
+
+    private static void upsertFromDb(VectorIndex target, RecipeVectorInfo info) {
+        float[] vector = VectorCodec.decode(info.getEmbedding());
+        if (vector.length > 0) {
+            target.upsert(info.getId(), info.getOwnerId(), info.getPrivacy() == Privacy.PUBLIC, vector);
+        }
+    }
+
+    private Path snapshotFile() {
+        return (snapshotPath == null || snapshotPath.isBlank()) ? null : Paths.get(snapshotPath);
+    }
+
+    // Chỉ cập nhật chỉ mục khi transaction DB thành công (tránh lệch dữ liệu khi rollback)
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static float[] toFloatArray(List<Double> vector) {
+        if (vector == null) return new float[0];
+        float[] values = new float[vector.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = vector.get(i).floatValue();
+        }
+        return values;
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * @ (#) RecipeViewCounterService.java    1.0    30/12/2025
+ * Copyright (c) 2025 IUH. All rights reserved.
+ */
+package fit.kltn_cookinote_backend.services;/*
+ * @description:
+ * @author: Bao Thong
+ * @date: 30/12/2025
+ * @version: 1.0
+ */
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Đếm lượt xem công thức trong bộ nhớ (write-behind) thay vì UPDATE dòng recipe theo từng lượt xem,
+ * để các lượt xem đồng thời của cùng một recipe không phải tranh khóa dòng.
+ * - Mỗi recipe một LongAdder; flush() định kỳ cộng dồn xuống DB bằng JDBC batch trong một transaction.
+ * - Flush lỗi thì số đếm được cộng trả lại để lần sau ghi tiếp.
+ * - An toàn khi dừng: tắt ứng dụng bình thường (@PreDestroy) sẽ flush phần còn lại;
+ * nếu process chết đột ngột thì mất tối đa số lượt xem của một chu kỳ flush (lượt xem là số liệu gần đúng, chấp nhận được).
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RecipeViewCounterService {
+
+    private static final int FLUSH_BATCH_SIZE = 500;
+
+    private static final String UPDATE_SQL =
+            "UPDATE recipe SET view = COALESCE(view, 0) + ? WHERE id = ? AND deleted = false";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    // Key: recipeId, Value: số lượt xem chưa ghi xuống DB
+    private final Map<Long, LongAdder> pending = new ConcurrentHashMap<>();
+
+    public void increment(Long recipeId) {
+        LongAdder adder = pending.computeIfAbsent(recipeId, k -> new LongAdder());
+        adder.increment();
+        // flush() vừa gỡ adder này khỏi map: chuyển phần vừa cộng sang adder đang nằm trong map để không mất lượt xem
+        if (pending.get(recipeId) != adder) requeue(recipeId, adder);
+    }
+
+    /**
+     * Số lượt xem của recipe chưa được ghi xuống DB (cộng vào recipe.view khi hiển thị).
+     */
+    public long pendingCount(Long recipeId) {
+        LongAdder adder = pending.get(recipeId);
+        return adder != null ? adder.sum() : 0L;
+    }
+
+    /**
+     * Ghi toàn bộ số đếm đang chờ xuống DB.
+     *
+     * @return Số recipe đã được cập nhật
+     */
+    public synchronized int flush() {
+        // TreeMap: cập nhật theo id tăng dần để các node cùng flush khóa dòng theo một thứ tự (tránh deadlock)
+        Map<Long, Long> counts = new TreeMap<>();
+        pending.forEach((id, adder) -> {
+            long count = adder.sumThenReset();
+            if (count > 0) {
+                counts.put(id, count);
+            } else if (pending.remove(id, adder)) {
+                // Recipe không còn được xem: bỏ khỏi map để map không phình theo số recipe từng được xem.
+                // increment() có thể đã lấy adder này trước khi bị gỡ -> chuyển phần cộng muộn trở lại map
+                requeue(id, adder);
+            }
+        });
+        if (counts.isEmpty()) return 0;
+
+        try {
+            List<Object[]> args = new ArrayList<>(counts.size());
+            counts.forEach((id, count) -> args.add(new Object[]{count, id}));
+
+            TransactionTemplate template = new TransactionTemplate(transactionManager);
+            template.executeWithoutResult(status -> {
+                for (int from = 0; from < args.size(); from += FLUSH_BATCH_SIZE) {
+                    jdbcTemplate.batchUpdate(UPDATE_SQL, args.subList(from, Math.min(from + FLUSH_BATCH_SIZE, args.size())));
+                }
+            });
+            log.debug("Đã ghi lượt xem của {} công thức", counts.size());
+            return counts.size();
+        } catch (RuntimeException e) {
+            counts.forEach((id, count) -> pending.computeIfAbsent(id, k -> new LongAdder()).add(count));
+            log.error("Lỗi ghi lượt xem xuống DB, sẽ thử lại ở lần sau: {}", e.getMessage(), e);
+            return 0;
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    // --- Helpers ---
+
+    /**
+     * Chuyển số đếm còn trong một adder đã bị gỡ khỏi map sang adder hiện tại của recipe.
+     * Cả increment() và flush() đều gọi; sumThenReset() lấy-và-xóa từng ô nên không bị cộng hai lần.
+     */
+    private void requeue(Long recipeId, LongAdder orphan) {
+        long count = orphan.sumThenReset();
+        if (count > 0) pending.computeIfAbsent(recipeId, k -> new LongAdder()).add(count);
+    }
+}
@@ -9,13 +9,16 @@ package fit.kltn_cookinote_backend.services;/*
  * @version: 1.0
  */
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import fit.kltn_cookinote_backend.dtos.NutritionInfo;
 import fit.kltn_cookinote_backend.entities.Recipe;
-import fit.kltn_cookinote_backend.entities.RecipeIngredient;
+import fit.kltn_cookinote_backend.entities.RecipeEmbedding;
+import fit.kltn_cookinote_backend.projections.LegacyEmbeddingInfo;
+import fit.kltn_cookinote_backend.repositories.RecipeEmbeddingRepository;
 import fit.kltn_cookinote_backend.repositories.RecipeRepository;
+import fit.kltn_cookinote_backend.vectors.VectorCodec;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -24,19 +27,30 @@ import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ScheduledTasksService {
 
+    private static final int EMBEDDING_MIGRATION_BATCH_SIZE = 200;
+
     private final RecipeRepository recipeRepository;
+    private final RecipeEmbeddingRepository recipeEmbeddingRepository;
     private final AiRecipeService aiRecipeService;
     // Inject TransactionManager để quản lý transaction thủ công
     private final PlatformTransactionManager transactionManager;
-    private final GeminiApiClient geminiApiClient;
-    private final ObjectMapper objectMapper;
+    private final RecipeVectorIndexService recipeVectorIndexService;
+    private final EmbeddingBackfillService embeddingBackfillService;
+    private final RecipeAutocompleteService recipeAutocompleteService;
+    private final RecipeFacetService recipeFacetService;
+    private final RecipeIngredientMatchService recipeIngredientMatchService;
+    private final IngredientDictionaryService ingredientDictionaryService;
+    private final RecipeRankingService recipeRankingService;
+    private final RecipeTrendingService recipeTrendingService;
+    private final RecipeViewCounterService recipeViewCounterService;
+
+    private volatile boolean legacyEmbeddingColumnsAbsent = false;
 
     // Chạy định kỳ mỗi 5 phút (300,000 ms)
     @Scheduled(fixedDelay = 300000)
@@ -97,93 +111,151 @@ public class ScheduledTasksService {
 
             if (updated) {
                 recipeRepository.save(recipe);
+                recipeEmbeddingRepository.markContentChanged(recipe.getId());
+                recipeFacetService.refresh(recipe.getId());
                 log.info("Đã cập nhật dinh dưỡng cho Recipe ID: {} (Calo: {}, Khẩu phần: {})",
                         recipe.getId(), info.calories(), info.servings());
             }
         }
     }
 
-    // Job chạy định kỳ mỗi 10 phút để vector hóa dữ liệu
+    // Job chạy định kỳ mỗi 10 phút để vector hóa dữ liệu.
+    // Xử lý hết các recipe còn thiếu/đã cũ qua pipeline batch (batchEmbedContents + token bucket theo quota).
+    // Backfill chạy trên luồng riêng của EmbeddingBackfillService, không giữ luồng scheduler.
     @Scheduled(fixedDelay = 600000)
     public void syncRecipeEmbeddings() {
         log.info("Bắt đầu Job đồng bộ Vector Embedding...");
+        embeddingBackfillService.startRefresh();
+    }
 
-        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+    // Job chuyển embedding cũ (cột embedding_vector JSON / embedding BLOB trên bảng recipe) sang bảng recipe_embedding.
+    // Chạy sớm sau khi khởi động, xử lý lần lượt từng lô cho đến khi hết dữ liệu cũ.
+    @Scheduled(initialDelay = 30000, fixedDelay = 3600000)
+    public void migrateLegacyEmbeddings() {
+        if (legacyEmbeddingColumnsAbsent) return;
 
-        // Lấy 10 công thức chưa có vector để xử lý (tránh lấy nhiều gây quá tải)
-        Pageable limit = PageRequest.of(0, 10);
-        List<Recipe> missingRecipes = recipeRepository.findRecipesMissingEmbedding(limit);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        int migrated = 0;
 
-        if (missingRecipes.isEmpty()) {
-            return;
-        }
+        while (true) {
+            List<LegacyEmbeddingInfo> batch;
+            try {
+                batch = recipeEmbeddingRepository.findLegacyEmbeddings(EMBEDDING_MIGRATION_BATCH_SIZE);
+            } catch (DataAccessException e) {
+                // DB mới (hoặc đã dọn cột cũ) -> không còn gì để chuyển
+                log.info("Không tìm thấy cột embedding cũ trên bảng recipe, bỏ qua job chuyển đổi.");
+                legacyEmbeddingColumnsAbsent = true;
+                break;
+            }
+            if (batch.isEmpty()) break;
 
-        for (Recipe detachedRecipe : missingRecipes) {
             try {
-                // Xử lý trong transaction riêng biệt
+                // Mỗi lô một transaction
                 transactionTemplate.execute(status -> {
-                    processEmbeddingForRecipe(detachedRecipe.getId());
+                    for (LegacyEmbeddingInfo info : batch) {
+                        migrateLegacyEmbedding(info);
+                    }
+                    recipeEmbeddingRepository.clearLegacyEmbeddings(
+                            batch.stream().map(LegacyEmbeddingInfo::getId).toList());
                     return null;
                 });
+                migrated += batch.size();
 
-                // Nghỉ 1 giây để tránh Rate Limit của Gemini
-                Thread.sleep(1000);
+                // Nghỉ ngắn giữa các lô để không chiếm DB liên tục
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
             } catch (Exception e) {
-                log.error("Lỗi job embedding ID {}: {}", detachedRecipe.getId(), e.getMessage());
+                log.error("Lỗi chuyển đổi embedding sang bảng recipe_embedding: {}", e.getMessage());
+                break;
             }
         }
+
+        if (migrated > 0) {
+            log.info("Đã chuyển {} embedding sang bảng recipe_embedding", migrated);
+            // Nạp lại chỉ mục một lần sau khi chuyển xong thay vì cập nhật từng dòng
+            recipeVectorIndexService.reload();
+        }
     }
 
-    private void processEmbeddingForRecipe(Long recipeId) {
-        Recipe recipe = recipeRepository.findById(recipeId).orElse(null);
-        if (recipe == null) return;
+    private void migrateLegacyEmbedding(LegacyEmbeddingInfo info) {
+        // Đã có embedding mới (job embedding chạy trước) -> chỉ cần dọn cột cũ
+        if (recipeEmbeddingRepository.existsById(info.getId())) return;
 
-        // 1. Tạo chuỗi "Semantic String" chứa toàn bộ ý nghĩa của món ăn
-        String semanticText = buildSemanticString(recipe);
+        float[] values = VectorCodec.decode(info.getEmbedding());
+        if (values.length == 0) {
+            values = VectorCodec.fromJson(info.getEmbeddingVector());
+        }
+        if (values.length == 0) {
+            // Dữ liệu hỏng -> bỏ qua, job embedding sẽ tạo lại vector
+            log.warn("Embedding cũ không hợp lệ, sẽ tạo lại cho Recipe ID: {}", info.getId());
+            return;
+        }
 
-        // 2. Gọi AI lấy Vector
-        List<Double> vector = geminiApiClient.getEmbedding(semanticText);
+        recipeEmbeddingRepository.save(RecipeEmbedding.builder()
+                .recipe(recipeRepository.getReferenceById(info.getId()))
+                .vector(VectorCodec.encode(values))
+                .build());
+    }
 
-        if (!vector.isEmpty()) {
-            try {
-                // 3. Lưu vector vào DB dưới dạng JSON String
-                String vectorJson = objectMapper.writeValueAsString(vector);
-                recipe.setEmbeddingVector(vectorJson);
-                recipeRepository.save(recipe);
-                log.info("Đã tạo vector embedding cho Recipe ID: {}", recipe.getId());
-            } catch (Exception e) {
-                log.error("Lỗi convert vector sang JSON: {}", e.getMessage());
-            }
-        }
+    // Dựng lại trie gợi ý khi gõ nếu catalog đã đổi (hoặc quá app.autocomplete.max-age), chạy nền rồi hoán đổi
+    @Scheduled(initialDelay = 60000, fixedDelay = 30000)
+    public void rebuildAutocompleteIfStale() {
+        recipeAutocompleteService.rebuildIfStale();
+    }
+
+    // Ghi snapshot chỉ mục vector mỗi 30 phút để node khởi động lại/mới scale có chỉ mục ấm ngay
+    @Scheduled(initialDelay = 900000, fixedDelay = 1800000)
+    public void saveVectorIndexSnapshot() {
+        recipeVectorIndexService.saveSnapshot();
+    }
+
+    // Dọn tombstone của chỉ mục HNSW (vector bị xóa/dựng lại do sửa recipe) ngoài luồng request
+    @Scheduled(initialDelay = 600000, fixedDelay = 600000)
+    public void compactVectorIndex() {
+        recipeVectorIndexService.compactIfNeeded();
+    }
+
+    // Liên kết ingredient_id cho dòng recipe_ingredient/shopping_list cũ hoặc ghi từ luồng chưa resolve
+    @Scheduled(initialDelay = 45000, fixedDelay = 3600000)
+    public void backfillIngredientIds() {
+        ingredientDictionaryService.backfill();
+    }
+
+    // Dựng lại bảng xếp hạng phổ biến/dễ nấu để sửa sai lệch của cập nhật từng phần
+    @Scheduled(initialDelay = 600000, fixedDelay = 600000)
+    public void rebuildRecipeRankings() {
+        recipeRankingService.rebuild();
+    }
+
+    // Tính lại danh sách công thức thịnh hành từ điểm suy giảm trong bộ nhớ
+    @Scheduled(initialDelay = 30000, fixedDelay = 30000)
+    public void refreshTrendingRanking() {
+        recipeTrendingService.refreshRanking();
+    }
+
+    // Checkpoint điểm thịnh hành xuống DB (thay vì ghi theo từng tương tác)
+    @Scheduled(initialDelay = 300000, fixedDelay = 300000)
+    public void checkpointTrendingScores() {
+        recipeTrendingService.checkpoint();
+    }
+
+    // Ghi lượt xem đang đếm trong bộ nhớ xuống DB theo lô
+    @Scheduled(initialDelay = 10000, fixedDelay = 10000)
+    public void flushRecipeViewCounts() {
+        recipeViewCounterService.flush();
+    }
+
+    // Thử nạp lại chỉ mục facet nếu lần nạp khi khởi động bị lỗi (request /recipes/browse trả 503 trong lúc chờ)
+    @Scheduled(initialDelay = 30000, fixedDelay = 30000)
+    public void reloadFacetIndexIfNotReady() {
+        recipeFacetService.reloadIfNotReady();
     }
 
-    // Helper tạo chuỗi mô tả ngữ nghĩa cho AI hiểu
-    private String buildSemanticString(Recipe r) {
-        // 1. Lấy danh sách nguyên liệu KÈM ĐỊNH LƯỢNG
-        // Format: "Thịt bò (200g), Bánh phở (500g), Hạt nêm (1 muỗng)"
-        String ingredients = r.getIngredients().stream()
-                .map(i -> {
-                    String qty = (i.getQuantity() != null && !i.getQuantity().isBlank())
-                            ? " (" + i.getQuantity() + ")"
-                            : "";
-                    return i.getName() + qty;
-                })
-                .collect(Collectors.joining(", "));
-
-        // 2. Xử lý dữ liệu số (tránh null)
-        String caloriesInfo = r.getCalories() != null ? r.getCalories() + " kcal" : "chưa rõ calo";
-        String servingsInfo = r.getServings() != null ? r.getServings() + " người ăn" : "chưa rõ khẩu phần";
-
-        // 3. Tạo chuỗi ngữ nghĩa đầy đủ
-        // Format: "Món ăn: [Tên]. Mô tả: [Desc]. Nguyên liệu: [Tên (Định lượng)]. Dinh dưỡng gốc:..."
-        return String.format(
-                "Món ăn: %s. Mô tả: %s. Nguyên liệu: %s. Độ khó: %s. Dinh dưỡng gốc: %s cho %s.",
-                r.getTitle(),
-                (r.getDescription() != null ? r.getDescription() : ""),
-                ingredients,
-                (r.getDifficulty() != null ? r.getDifficulty().name() : ""),
-                caloriesInfo,
-                servingsInfo
-        );
+    // Thử nạp lại chỉ mục nguyên liệu nếu lần nạp khi khởi động bị lỗi (gợi ý theo shopping list trả 503 trong lúc chờ)
+    @Scheduled(initialDelay = 30000, fixedDelay = 30000)
+    public void reloadIngredientMatchIndexIfNotReady() {
+        recipeIngredientMatchService.reloadIfNotReady();
     }
-}
\ No newline at end of file
+}
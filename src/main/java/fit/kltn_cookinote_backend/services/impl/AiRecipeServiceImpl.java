@@ -22,9 +22,11 @@ import fit.kltn_cookinote_backend.dtos.response.ForkSuggestResponse;
 import fit.kltn_cookinote_backend.dtos.response.GeneratedRecipeResponse;
 import fit.kltn_cookinote_backend.entities.Recipe;
 import fit.kltn_cookinote_backend.enums.Privacy;
+import fit.kltn_cookinote_backend.repositories.RecipeEmbeddingRepository;
 import fit.kltn_cookinote_backend.repositories.RecipeRepository;
 import fit.kltn_cookinote_backend.services.AiRecipeService;
 import fit.kltn_cookinote_backend.services.GeminiApiClient;
+import fit.kltn_cookinote_backend.services.RecipeFacetService;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -52,6 +54,8 @@ public class AiRecipeServiceImpl implements AiRecipeService {
     private final GeminiApiClient geminiApiClient;
     private final ObjectMapper objectMapper;
     private final RecipeRepository recipeRepository;
+    private final RecipeEmbeddingRepository recipeEmbeddingRepository;
+    private final RecipeFacetService recipeFacetService;
     private final PlatformTransactionManager transactionManager;
 
     private static final String USER_AGENT = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0.0.0 Safari/537.36";
@@ -326,6 +330,9 @@ public class AiRecipeServiceImpl implements AiRecipeService {
 
                         if (updated) {
                             recipeRepository.save(latestRecipe);
+                            // Calo/khẩu phần nằm trong chuỗi ngữ nghĩa của embedding
+                            recipeEmbeddingRepository.markContentChanged(recipeId);
+                            recipeFacetService.refresh(recipeId);
                             log.info("Async: Đã cập nhật bổ sung dinh dưỡng cho Recipe ID {}", recipeId);
                         }
                     }
@@ -18,6 +18,8 @@ import fit.kltn_cookinote_backend.repositories.CategoryRepository;
 import fit.kltn_cookinote_backend.repositories.RecipeRepository;
 import fit.kltn_cookinote_backend.services.CategoryService;
 import fit.kltn_cookinote_backend.services.CloudinaryService;
+import fit.kltn_cookinote_backend.services.RecipeAutocompleteService;
+import fit.kltn_cookinote_backend.services.RecipeFacetService;
 import fit.kltn_cookinote_backend.utils.CloudinaryUtils;
 import fit.kltn_cookinote_backend.utils.ImageValidationUtils;
 import jakarta.annotation.Nullable;
@@ -45,6 +47,8 @@ public class CategoryServiceImpl implements CategoryService {
     private final RecipeRepository recipeRepository;
     private final CloudinaryService cloudinaryService;
     private final Cloudinary cloudinary;
+    private final RecipeAutocompleteService recipeAutocompleteService;
+    private final RecipeFacetService recipeFacetService;
 
     @Value("${app.cloudinary.category-folder}")
     private String categoryFolder;
@@ -69,6 +73,7 @@ public class CategoryServiceImpl implements CategoryService {
             uploadAndSetImage(cat, image);
             categoryRepository.save(cat);
         }
+        recipeAutocompleteService.markDirty();
         return toResponse(cat);
     }
 
@@ -97,6 +102,8 @@ public class CategoryServiceImpl implements CategoryService {
         }
 
         Category saved = categoryRepository.save(cat);
+        recipeAutocompleteService.markDirty();
+        recipeFacetService.reloadAfterCommit(); // Tên danh mục là một luật suy ra bữa ăn (MealTypeResolver)
         return toResponse(saved);
     }
 
@@ -143,6 +150,8 @@ public class CategoryServiceImpl implements CategoryService {
             movedCount = recipeRepository.moveRecipesByIds(sourceId, destId, req.recipeIds());
         }
 
+        recipeAutocompleteService.markDirty();
+        recipeFacetService.reloadAfterCommit();
         return Map.of("movedCount", movedCount);
     }
 
@@ -173,6 +182,7 @@ public class CategoryServiceImpl implements CategoryService {
 
         // 4. Xóa Category khỏi DB
         categoryRepository.delete(category);
+        recipeAutocompleteService.markDirty();
 
         // 5. Xóa ảnh sau khi commit thành công (Sử dụng Helper Method)
         deleteImageAfterCommit(imageUrl);
@@ -12,36 +12,53 @@ package fit.kltn_cookinote_backend.services.impl;/*
 import fit.kltn_cookinote_backend.dtos.request.CreateCommentRequest;
 import fit.kltn_cookinote_backend.dtos.request.UpdateCommentRequest;
 import fit.kltn_cookinote_backend.dtos.response.CommentResponse;
+import fit.kltn_cookinote_backend.dtos.response.PageResult;
 import fit.kltn_cookinote_backend.entities.Recipe;
 import fit.kltn_cookinote_backend.entities.RecipeComment;
 import fit.kltn_cookinote_backend.entities.User;
+import fit.kltn_cookinote_backend.enums.EngagementType;
 import fit.kltn_cookinote_backend.enums.Privacy;
 import fit.kltn_cookinote_backend.enums.Role;
 import fit.kltn_cookinote_backend.repositories.RecipeCommentRepository;
 import fit.kltn_cookinote_backend.repositories.RecipeRepository;
 import fit.kltn_cookinote_backend.repositories.UserRepository;
 import fit.kltn_cookinote_backend.services.CommentService;
+import fit.kltn_cookinote_backend.services.RecipeDetailCache;
+import fit.kltn_cookinote_backend.services.RecipeTrendingService;
+import fit.kltn_cookinote_backend.utils.PageCursor;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import org.hibernate.Hibernate;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 
 @Service
 @RequiredArgsConstructor
 public class CommentServiceImpl implements CommentService {
 
+    private static final int DEFAULT_PAGE_SIZE = 10;
+    private static final int MAX_PAGE_SIZE = 50;
+    // Số trả lời đầu tiên kèm theo mỗi bình luận gốc trong API phân trang
+    private static final int REPLY_PREVIEW_SIZE = 3;
+
     private final RecipeRepository recipeRepository;
     private final RecipeCommentRepository commentRepository;
     private final UserRepository userRepository;
+    private final RecipeTrendingService recipeTrendingService;
+    private final RecipeDetailCache recipeDetailCache;
 
     // Helper kiểm tra quyền xem công thức
     private boolean canView(Privacy privacy, Long ownerId, Long viewerId) {
@@ -102,17 +119,89 @@ public class CommentServiceImpl implements CommentService {
         // 1. Kiểm tra quyền xem công thức
         loadAndCheckRecipeViewable(recipeId, viewerId);
 
-        // 2. Tải các bình luận cấp cao nhất (đã fetch user)
-        List<RecipeComment> topLevelComments = commentRepository.findTopLevelCommentsByRecipeId(recipeId);
+        // 2. Tải toàn bộ bình luận mọi cấp (đã fetch user) trong một truy vấn
+        List<RecipeComment> comments = commentRepository.findAllByRecipeIdWithUser(recipeId);
+
+        // 3. Dựng cây cha/con trong bộ nhớ rồi chuyển sang DTO (không khởi tạo lazy 'replies' từng node)
+        return CommentResponse.treeOf(comments);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public PageResult<CommentResponse> getCommentThreads(Long recipeId, Long viewerUserId, String cursor, int size) {
+        loadAndCheckRecipeViewable(recipeId, viewerUserId);
+
+        int s = Math.min((size > 0 ? size : DEFAULT_PAGE_SIZE), MAX_PAGE_SIZE);
+        PageCursor.CreatedAtKey after = PageCursor.decodeCreatedAtAsc(cursor);
+        List<RecipeComment> rows = commentRepository.findTopLevelAfter(
+                recipeId, after.createdAt(), after.id(), PageRequest.of(0, s + 1));
+        return toThreadPage(rows, s, REPLY_PREVIEW_SIZE);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public PageResult<CommentResponse> getReplies(Long commentId, Long viewerUserId, String cursor, int size) {
+        RecipeComment parent = commentRepository.findById(commentId)
+                .orElseThrow(() -> new EntityNotFoundException("Bình luận không tồn tại: " + commentId));
+        loadAndCheckRecipeViewable(parent.getRecipe().getId(), viewerUserId);
 
-        // 3. Tải đệ quy các replies (sử dụng Hibernate Eager/Lazy loading)
-        // Chúng ta cần đảm bảo các replies được tải
-        topLevelComments.forEach(this::initializeRepliesRecursively);
+        int s = Math.min((size > 0 ? size : DEFAULT_PAGE_SIZE), MAX_PAGE_SIZE);
+        PageCursor.CreatedAtKey after = PageCursor.decodeCreatedAtAsc(cursor);
+        List<RecipeComment> rows = commentRepository.findRepliesAfter(
+                commentId, after.createdAt(), after.id(), PageRequest.of(0, s + 1));
+        return toThreadPage(rows, s, 0);
+    }
+
+    /**
+     * Cắt kết quả keyset (đã lấy dư 1 dòng) thành một trang; gắn số trả lời trực tiếp của mỗi bình luận
+     * và previewSize trả lời đầu tiên (mỗi trả lời cũng kèm số trả lời của nó).
+     * Số truy vấn cố định (tối đa 3), không phụ thuộc kích thước trang hay độ sâu cây.
+     */
+    private PageResult<CommentResponse> toThreadPage(List<RecipeComment> rows, int size, int previewSize) {
+        boolean hasNext = rows.size() > size;
+        List<RecipeComment> page = hasNext ? rows.subList(0, size) : rows;
+        if (page.isEmpty()) return PageResult.ofCursor(size, List.of(), null);
+
+        List<Long> pageIds = page.stream().map(RecipeComment::getId).toList();
+
+        // 1. Vài trả lời đầu tiên của mỗi bình luận trong trang
+        List<RecipeComment> previews = List.of();
+        if (previewSize > 0) {
+            List<Long> previewIds = commentRepository.findFirstReplyIds(pageIds, previewSize);
+            if (!previewIds.isEmpty()) previews = commentRepository.findAllWithUserByIdIn(previewIds);
+        }
+
+        // 2. Số trả lời trực tiếp của các bình luận trong trang và của các trả lời kèm theo
+        Set<Long> countIds = new HashSet<>(pageIds);
+        previews.forEach(r -> countIds.add(r.getId()));
+        Map<Long, Long> replyCounts = new HashMap<>();
+        for (Object[] row : commentRepository.countRepliesByParentIds(countIds)) {
+            replyCounts.put((Long) row[0], (Long) row[1]);
+        }
+
+        // 3. Ghép trả lời vào bình luận cha (previews đã sắp cũ nhất trước)
+        Map<Long, List<CommentResponse>> previewsByParent = new HashMap<>();
+        for (RecipeComment reply : previews) {
+            previewsByParent.computeIfAbsent(reply.getParent().getId(), k -> new ArrayList<>())
+                    .add(CommentResponse.thread(reply, replyCounts.getOrDefault(reply.getId(), 0L), List.of(), null));
+        }
+
+        List<CommentResponse> items = new ArrayList<>(page.size());
+        for (RecipeComment comment : page) {
+            List<CommentResponse> replies = previewsByParent.getOrDefault(comment.getId(), List.of());
+            long replyCount = replyCounts.getOrDefault(comment.getId(), 0L);
+            // Còn trả lời chưa kèm theo: cursor tiếp nối từ trả lời cuối đã có (trang đầu thì client gọi không cursor)
+            String repliesCursor = null;
+            if (replyCount > replies.size() && !replies.isEmpty()) {
+                CommentResponse last = replies.get(replies.size() - 1);
+                repliesCursor = PageCursor.encode(new PageCursor.CreatedAtKey(last.createdAt(), last.id()));
+            }
+            items.add(CommentResponse.thread(comment, replyCount, replies, repliesCursor));
+        }
 
-        // 4. Chuyển đổi sang DTO
-        return topLevelComments.stream()
-                .map(CommentResponse::from)
-                .collect(Collectors.toList());
+        RecipeComment last = page.get(page.size() - 1);
+        String nextCursor = hasNext ? PageCursor.encode(new PageCursor.CreatedAtKey(last.getCreatedAt(), last.getId())) : null;
+        return PageResult.ofCursor(size, items, nextCursor);
     }
 
     /**
@@ -165,6 +254,8 @@ public class CommentServiceImpl implements CommentService {
         int currentCount = recipe.getCommentCount() != null ? recipe.getCommentCount() : 0;
         recipe.setCommentCount(currentCount + 1);
         recipeRepository.save(recipe); // Lưu recipe
+        recipeTrendingService.record(recipe, EngagementType.COMMENT);
+        recipeDetailCache.evict(recipe.getId());
 
         // 6. Trả về DTO
         return CommentResponse.from(savedComment);
@@ -184,6 +275,8 @@ public class CommentServiceImpl implements CommentService {
         comment.setContent(request.content());
         comment.setUpdatedAt(LocalDateTime.now(ZoneOffset.UTC));
         RecipeComment savedComment = commentRepository.save(comment);
+        // Sửa nội dung không đổi version của cache chi tiết (updatedAt, số bình luận) nên phải xóa cache
+        recipeDetailCache.evict(comment.getRecipe().getId());
 
         // Cần tải lại các replies (nếu có) để trả về DTO hoàn chỉnh
         initializeRepliesRecursively(savedComment);
@@ -221,5 +314,6 @@ public class CommentServiceImpl implements CommentService {
         int currentCount = recipe.getCommentCount() != null ? recipe.getCommentCount() : 0;
         recipe.setCommentCount(Math.max(0, currentCount - totalToDelete));
         recipeRepository.save(recipe);
+        recipeDetailCache.evict(recipe.getId());
     }
 }
\ No newline at end of file
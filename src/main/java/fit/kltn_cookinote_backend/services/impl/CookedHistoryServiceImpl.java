@@ -13,11 +13,13 @@ import fit.kltn_cookinote_backend.dtos.response.CookedHistoryResponse;
 import fit.kltn_cookinote_backend.entities.CookedHistory;
 import fit.kltn_cookinote_backend.entities.Recipe;
 import fit.kltn_cookinote_backend.entities.User;
+import fit.kltn_cookinote_backend.enums.EngagementType;
 import fit.kltn_cookinote_backend.enums.Privacy;
 import fit.kltn_cookinote_backend.repositories.CookedHistoryRepository;
 import fit.kltn_cookinote_backend.repositories.RecipeRepository;
 import fit.kltn_cookinote_backend.repositories.UserRepository;
 import fit.kltn_cookinote_backend.services.CookedHistoryService;
+import fit.kltn_cookinote_backend.services.RecipeTrendingService;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.access.AccessDeniedException;
@@ -34,6 +36,7 @@ public class CookedHistoryServiceImpl implements CookedHistoryService {
     private final CookedHistoryRepository cookedHistoryRepository;
     private final UserRepository userRepository;
     private final RecipeRepository recipeRepository;
+    private final RecipeTrendingService recipeTrendingService;
 
     @Override
     @Transactional
@@ -64,6 +67,7 @@ public class CookedHistoryServiceImpl implements CookedHistoryService {
                 .build();
 
         CookedHistory saved = cookedHistoryRepository.save(history);
+        recipeTrendingService.record(recipe, EngagementType.COOKED);
 
         return CookedHistoryResponse.from(saved);
     }
@@ -13,11 +13,13 @@ import fit.kltn_cookinote_backend.dtos.response.RecipeCardResponse;
 import fit.kltn_cookinote_backend.entities.Favorite;
 import fit.kltn_cookinote_backend.entities.Recipe;
 import fit.kltn_cookinote_backend.entities.User;
+import fit.kltn_cookinote_backend.enums.EngagementType;
 import fit.kltn_cookinote_backend.enums.Privacy;
 import fit.kltn_cookinote_backend.repositories.FavoriteRepository;
 import fit.kltn_cookinote_backend.repositories.RecipeRepository;
 import fit.kltn_cookinote_backend.repositories.UserRepository;
 import fit.kltn_cookinote_backend.services.FavoriteService;
+import fit.kltn_cookinote_backend.services.RecipeTrendingService;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.access.AccessDeniedException;
@@ -33,6 +35,7 @@ public class FavoriteServiceImpl implements FavoriteService {
     private final FavoriteRepository favoriteRepository;
     private final UserRepository userRepository;
     private final RecipeRepository recipeRepository;
+    private final RecipeTrendingService recipeTrendingService;
 
     @Override
     @Transactional
@@ -51,6 +54,7 @@ public class FavoriteServiceImpl implements FavoriteService {
 
         Favorite favorite = Favorite.builder().user(user).recipe(recipe).build();
         favoriteRepository.save(favorite);
+        recipeTrendingService.record(recipe, EngagementType.FAVORITE);
     }
 
     @Override
@@ -14,11 +14,13 @@ import fit.kltn_cookinote_backend.dtos.response.RatingResponse;
 import fit.kltn_cookinote_backend.entities.Recipe;
 import fit.kltn_cookinote_backend.entities.RecipeRating;
 import fit.kltn_cookinote_backend.entities.User;
+import fit.kltn_cookinote_backend.enums.EngagementType;
 import fit.kltn_cookinote_backend.enums.Privacy;
 import fit.kltn_cookinote_backend.repositories.RecipeRatingRepository;
 import fit.kltn_cookinote_backend.repositories.RecipeRepository;
 import fit.kltn_cookinote_backend.repositories.UserRepository;
 import fit.kltn_cookinote_backend.services.RatingService;
+import fit.kltn_cookinote_backend.services.RecipeTrendingService;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.access.AccessDeniedException;
@@ -34,6 +36,7 @@ public class RatingServiceImpl implements RatingService {
     private final RecipeRatingRepository ratingRepository;
     private final RecipeRepository recipeRepository;
     private final UserRepository userRepository;
+    private final RecipeTrendingService recipeTrendingService;
 
     @Override
     @Transactional
@@ -72,6 +75,7 @@ public class RatingServiceImpl implements RatingService {
         }
 
         RecipeRating savedRating = ratingRepository.save(rating);
+        recipeTrendingService.record(recipe, EngagementType.RATING);
 
         // Cập nhật lại điểm trung bình và số lượt rating cho Recipe
         updateRecipeRatingStats(recipeId);
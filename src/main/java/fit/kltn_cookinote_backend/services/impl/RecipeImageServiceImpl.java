@@ -15,6 +15,7 @@ import fit.kltn_cookinote_backend.dtos.response.RecipeResponse;
 import fit.kltn_cookinote_backend.entities.*;
 import fit.kltn_cookinote_backend.enums.Role;
 import fit.kltn_cookinote_backend.repositories.*;
+import fit.kltn_cookinote_backend.services.RecipeDetailCache;
 import fit.kltn_cookinote_backend.services.RecipeImageService;
 import fit.kltn_cookinote_backend.services.RecipeService;
 import fit.kltn_cookinote_backend.utils.CloudinaryUtils;
@@ -43,6 +44,7 @@ public class RecipeImageServiceImpl implements RecipeImageService {
     private final UserRepository userRepository;
     private final RecipeCoverImageHistoryRepository recipeCoverImageHistoryRepository;
     private final RecipeService recipeService;
+    private final RecipeDetailCache recipeDetailCache;
 
     @Value("${app.cloudinary.recipe-folder}")
     private String recipeFolder;
@@ -88,6 +90,7 @@ public class RecipeImageServiceImpl implements RecipeImageService {
                 .imageUrl(newUrl)
                 .build();
         recipe.getCoverImageHistory().add(historyRecord);
+        recipeDetailCache.evict(recipeId);
 
         return recipeRepository.saveAndFlush(recipe);
     }
@@ -15,13 +15,19 @@ import fit.kltn_cookinote_backend.dtos.SuggestionHistoryItem;
 import fit.kltn_cookinote_backend.dtos.request.*;
 import fit.kltn_cookinote_backend.dtos.response.*;
 import fit.kltn_cookinote_backend.entities.*;
+import fit.kltn_cookinote_backend.exceptions.ServiceUnavailableException;
+import fit.kltn_cookinote_backend.enums.EngagementType;
 import fit.kltn_cookinote_backend.enums.Privacy;
 import fit.kltn_cookinote_backend.enums.Role;
-import fit.kltn_cookinote_backend.projections.RecipeVectorInfo;
+import fit.kltn_cookinote_backend.projections.RecipeDetailState;
 import fit.kltn_cookinote_backend.repositories.*;
+import fit.kltn_cookinote_backend.search.FacetResult;
+import fit.kltn_cookinote_backend.search.SearchHits;
+import fit.kltn_cookinote_backend.search.TextAnalyzer;
 import fit.kltn_cookinote_backend.services.*;
 import fit.kltn_cookinote_backend.utils.CloudinaryUtils;
 import fit.kltn_cookinote_backend.utils.ImageValidationUtils;
+import fit.kltn_cookinote_backend.utils.PageCursor;
 import fit.kltn_cookinote_backend.utils.ShoppingListUtils;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityNotFoundException;
@@ -77,8 +83,21 @@ public class RecipeServiceImpl implements RecipeService {
     private final RecipeStepImageRepository stepImageRepository;
     private final RecipeCoverImageHistoryRepository coverImageHistoryRepository;
     private final AiRecipeService aiRecipeService;
-    private final GeminiApiClient geminiApiClient;
+    private final QueryEmbeddingCache queryEmbeddingCache;
     private final SuggestionHistoryService suggestionHistoryService;
+    private final RecipeVectorIndexService recipeVectorIndexService;
+    private final RecipeEmbeddingRepository recipeEmbeddingRepository;
+    private final RecipeSearchIndexService recipeSearchIndexService;
+    private final RecipeFullTextSearchService recipeFullTextSearchService;
+    private final RecipeAutocompleteService recipeAutocompleteService;
+    private final RecipeFacetService recipeFacetService;
+    private final RecipeIngredientMatchService recipeIngredientMatchService;
+    private final IngredientDictionaryService ingredientDictionaryService;
+    private final RecipeRankingService recipeRankingService;
+    private final RecipeTrendingService recipeTrendingService;
+    private final RecipeViewCounterService recipeViewCounterService;
+    private final RecipeUniqueViewerService recipeUniqueViewerService;
+    private final RecipeDetailCache recipeDetailCache;
 
     @Lazy
     @Autowired
@@ -93,6 +112,11 @@ public class RecipeServiceImpl implements RecipeService {
     private static final int DEFAULT_PAGE = 0;
     private static final int DEFAULT_SIZE = 12; // mobile-friendly
     private static final int MAX_SIZE = 20;
+    // Retry-After (giây) khi chỉ mục trong bộ nhớ chưa nạp xong
+    private static final int INDEX_RETRY_AFTER_SECONDS = 30;
+    // Số bình luận gốc kèm trong trang chi tiết (mỗi bình luận kèm vài trả lời đầu tiên)
+    private static final int DETAIL_COMMENT_PREVIEW_SIZE = 5;
+    private static final int SUGGESTION_CANDIDATES = 6;
 
     // --- HELPER 1: TÁCH TỪ PHẦN DUPLICATE TẠO RECIPE ---
 
@@ -132,6 +156,7 @@ public class RecipeServiceImpl implements RecipeService {
                     .recipe(recipe)
                     .name(i.name())
                     .quantity(i.quantity())
+                    .canonicalIngredient(ingredientDictionaryService.resolve(i.name()))
                     .build();
             ingredients.add(ing);
         }
@@ -303,6 +328,7 @@ public class RecipeServiceImpl implements RecipeService {
 
         // Vì hàm này là @Async, nó sẽ trả về ngay lập tức, không block API
         aiRecipeService.updateNutritionBackground(savedRecipe.getId());
+        reindexRecipe(savedRecipe.getId());
 
         // 8. Tải lại đầy đủ (bao gồm cả ảnh) và Trả về
         Recipe finalRecipe = recipeRepository.findDetailById(recipeId)
@@ -330,47 +356,88 @@ public class RecipeServiceImpl implements RecipeService {
 
         // Vì hàm này là @Async, nó sẽ trả về ngay lập tức, không block API
         aiRecipeService.updateNutritionBackground(saved.getId());
+        reindexRecipe(saved.getId());
         return RecipeResponse.from(saved, false, null, List.of());
     }
 
     @Override
-    @Transactional
+    @Transactional(readOnly = true)
     public RecipeResponse getDetail(Long viewerUserId, Long recipeId) {
-        // 1. Tìm Recipe
-        Recipe recipe = recipeRepository.findDetailById(recipeId)
+        // 1. Đọc các cột cần kiểm tra/hiển thị mới mỗi request (quyền xem, bộ đếm) — chỉ một dòng recipe
+        RecipeDetailState state = recipeRepository.findDetailStateById(recipeId)
                 .orElseThrow(() -> new EntityNotFoundException("Recipe không tồn tại: " + recipeId));
 
         // 2. Xác định Owner và Viewer
-        Long ownerId = (recipe.getUser() != null) ? recipe.getUser().getUserId() : null;
+        Long ownerId = state.getOwnerId();
         boolean isOwner = (viewerUserId != null && viewerUserId.equals(ownerId));
 
-        // 3. Kiểm tra quyền Admin
-        boolean isAdmin = false;
-        if (viewerUserId != null) {
-            // Tải thông tin người xem để check Role
-            User viewer = userRepository.findById(viewerUserId).orElse(null);
-            if (viewer != null && viewer.getRole() == Role.ADMIN) {
-                isAdmin = true;
-            }
-        }
-
-        // 4. Logic kiểm tra quyền truy cập:
+        // 3. Logic kiểm tra quyền truy cập:
         // Cho phép xem nếu:
         // - Công thức là PUBLIC/SHARED (check bởi canView)
         // - HOẶC người xem là Chủ sở hữu
-        // - HOẶC người xem là ADMIN
-        if (!isAdmin && !canView(recipe.getPrivacy(), ownerId, viewerUserId)) {
-            throw new AccessDeniedException("Bạn không có quyền xem công thức này.");
+        // - HOẶC người xem là ADMIN (chỉ tải người xem để check Role khi cần)
+        if (!canView(state.getPrivacy(), ownerId, viewerUserId)) {
+            boolean isAdmin = viewerUserId != null && userRepository.findById(viewerUserId)
+                    .map(u -> u.getRole() == Role.ADMIN)
+                    .orElse(false);
+            if (!isAdmin) {
+                throw new AccessDeniedException("Bạn không có quyền xem công thức này.");
+            }
         }
 
-        // 5. Tăng lượt xem (chỉ tăng nếu người xem KHÔNG phải là chủ sở hữu)
+        // 4. Tăng lượt xem (chỉ tăng nếu người xem KHÔNG phải là chủ sở hữu)
+        // Đếm trong bộ nhớ, ghi xuống DB theo lô (RecipeViewCounterService) nên không khóa dòng recipe
+        long view = state.getView() == null ? 0 : state.getView();
+        RecipeUniqueViewerService.UniqueViewerStats viewers;
         if (!isOwner) {
-            recipeRepository.incrementViewById(recipeId);
-            recipe.setView((recipe.getView() == null ? 0 : recipe.getView()) + 1);
+            recipeViewCounterService.increment(recipeId);
+            recipeRankingService.recordView(recipeId);
+            viewers = recipeUniqueViewerService.record(recipeId, viewerUserId);
+            // Xu hướng chỉ tính người xem mới trong ngày (SET chính xác theo ngày): tải lại trang liên tục không đẩy điểm lên
+            if (viewers == null || viewers.newToday()) {
+                recipeTrendingService.record(recipeId, state.getPrivacy(), EngagementType.VIEW);
+            }
+        } else {
+            viewers = recipeUniqueViewerService.count(recipeId);
+        }
+        view += recipeViewCounterService.pendingCount(recipeId);
+
+        // 5. Phần chung cho mọi người xem (nội dung, nguyên liệu, các bước, bình luận) lấy từ cache theo version
+        RecipeResponse shared = recipeDetailCache.getOrLoad(recipeId, detailVersion(state), () -> {
+            Recipe recipe = recipeRepository.findDetailGraphById(recipeId)
+                    .orElseThrow(() -> new EntityNotFoundException("Recipe không tồn tại: " + recipeId));
+            return withCommentPreview(recipe, false, null, viewerUserId);
+        });
+
+        // 6. Gắn trường riêng của người xem và các cột đọc mới ở bước 1
+        boolean isFavorited = false;
+        Integer myRating = null;
+        if (viewerUserId != null) {
+            isFavorited = favoriteRepository.findByUser_UserIdAndRecipe_Id(viewerUserId, recipeId).isPresent();
+            myRating = ratingRepository.findByUser_UserIdAndRecipe_Id(viewerUserId, recipeId)
+                    .map(RecipeRating::getScore)
+                    .orElse(null);
         }
+        return shared.toBuilder()
+                .privacy(state.getPrivacy())
+                .view(view)
+                .averageRating(state.getAverageRating())
+                .ratingCount(state.getRatingCount())
+                .commentCount(state.getCommentCount())
+                .calories(state.getCalories())
+                .servings(state.getServings())
+                .isFavorited(isFavorited)
+                .myRating(myRating)
+                .uniqueViewers(viewers != null ? viewers.lifetime() : null)
+                .uniqueViewersToday(viewers != null ? viewers.today() : null)
+                .build();
+    }
 
-        // 6. Trả về response
-        return buildRecipeResponse(recipe, viewerUserId);
+    /**
+     * Version của phần chi tiết được cache: đổi khi recipe được sửa (updatedAt) hoặc thêm/xóa bình luận.
+     */
+    private static String detailVersion(RecipeDetailState state) {
+        return state.getUpdatedAt() + ":" + state.getCommentCount();
     }
 
     @Override
@@ -389,6 +456,19 @@ public class RecipeServiceImpl implements RecipeService {
         return PageResult.of(mapped);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public PageResult<RecipeCardResponse> listPublicByCategory(Long categoryId, String cursor, int size) {
+        if (categoryId == null) throw new EntityNotFoundException("Category không hợp lệ.");
+
+        int s = Math.min((size > 0 ? size : DEFAULT_SIZE), MAX_SIZE);
+        PageCursor.CreatedAtKey after = PageCursor.decodeCreatedAt(cursor);
+
+        List<Recipe> rows = recipeRepository.findByCategoryAndPrivacyAfter(
+                categoryId, Privacy.PUBLIC, after.createdAt(), after.id(), PageRequest.of(0, s + 1));
+        return toCursorPage(rows, s, this::createdAtCursor);
+    }
+
     @Override
     @Transactional(readOnly = true)
     public PageResult<RecipeCardResponse> listPublic(int page, int size) {
@@ -401,6 +481,17 @@ public class RecipeServiceImpl implements RecipeService {
         return PageResult.of(mapped);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public PageResult<RecipeCardResponse> listPublic(String cursor, int size) {
+        int s = Math.min((size > 0 ? size : DEFAULT_SIZE), MAX_SIZE);
+        PageCursor.CreatedAtKey after = PageCursor.decodeCreatedAt(cursor);
+
+        List<Recipe> rows = recipeRepository.findByPrivacyAfter(
+                Privacy.PUBLIC, after.createdAt(), after.id(), PageRequest.of(0, s + 1));
+        return toCursorPage(rows, s, this::createdAtCursor);
+    }
+
     @Override
     @Transactional(readOnly = true)
     public PageResult<RecipeCardResponse> listByOwner(Long ownerUserId, Long viewerUserIdOrNull, Long categoryId, int page, int size) {
@@ -408,19 +499,7 @@ public class RecipeServiceImpl implements RecipeService {
         int s = Math.min((size > 0 ? size : 12), 20); // DEFAULT_SIZE=12, MAX_SIZE=20
         Pageable pageable = PageRequest.of(p, s, Sort.by(Sort.Direction.DESC, "createdAt"));
 
-        // 1. Kiểm tra xem người xem có phải là chính chủ không
-        boolean isOwner = viewerUserIdOrNull != null && viewerUserIdOrNull.equals(ownerUserId);
-
-        // 2. Kiểm tra xem người xem có phải là ADMIN không
-        boolean isAdmin = false;
-        if (viewerUserIdOrNull != null && !isOwner) {
-            isAdmin = userRepository.findById(viewerUserIdOrNull)
-                    .map(u -> u.getRole() == Role.ADMIN)
-                    .orElse(false);
-        }
-
-        // 3. Quyết định xem full hay xem hạn chế
-        boolean canViewAll = isOwner || isAdmin;
+        boolean canViewAll = canViewAllOfOwner(ownerUserId, viewerUserIdOrNull);
 
         // Sử dụng các method mới hỗ trợ lọc category
         Page<Recipe> pageData = canViewAll
@@ -435,6 +514,40 @@ public class RecipeServiceImpl implements RecipeService {
         return PageResult.of(pageData.map(RecipeCardResponse::from));
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public PageResult<RecipeCardResponse> listByOwner(Long ownerUserId, Long viewerUserIdOrNull, Long categoryId, String cursor, int size) {
+        int s = Math.min((size > 0 ? size : DEFAULT_SIZE), MAX_SIZE);
+        PageCursor.CreatedAtKey after = PageCursor.decodeCreatedAt(cursor);
+
+        Set<Privacy> privacies = canViewAllOfOwner(ownerUserId, viewerUserIdOrNull)
+                ? EnumSet.allOf(Privacy.class)
+                : EnumSet.of(Privacy.SHARED, Privacy.PUBLIC);
+
+        List<Recipe> rows = recipeRepository.findByOwnerAndCategoryAfter(
+                ownerUserId, categoryId, privacies, after.createdAt(), after.id(), PageRequest.of(0, s + 1));
+        return toCursorPage(rows, s, this::createdAtCursor);
+    }
+
+    /**
+     * Chính chủ hoặc ADMIN được xem mọi privacy; người khác/khách chỉ thấy SHARED + PUBLIC.
+     */
+    private boolean canViewAllOfOwner(Long ownerUserId, Long viewerUserIdOrNull) {
+        // 1. Kiểm tra xem người xem có phải là chính chủ không
+        boolean isOwner = viewerUserIdOrNull != null && viewerUserIdOrNull.equals(ownerUserId);
+
+        // 2. Kiểm tra xem người xem có phải là ADMIN không
+        boolean isAdmin = false;
+        if (viewerUserIdOrNull != null && !isOwner) {
+            isAdmin = userRepository.findById(viewerUserIdOrNull)
+                    .map(u -> u.getRole() == Role.ADMIN)
+                    .orElse(false);
+        }
+
+        // 3. Quyết định xem full hay xem hạn chế
+        return isOwner || isAdmin;
+    }
+
     @Override
     @Transactional(readOnly = true)
     public List<RecipeStepItem> getSteps(Long viewerUserIdOrNull, Long recipeId) {
@@ -518,6 +631,7 @@ public class RecipeServiceImpl implements RecipeService {
                         .recipe(recipe)        // rất quan trọng: set owner!
                         .name(i.name())
                         .quantity(i.quantity())
+                        .canonicalIngredient(ingredientDictionaryService.resolve(i.name()))
                         .build();
                 managed.add(ing);              // add vào collection đã quản lý
             }
@@ -525,6 +639,13 @@ public class RecipeServiceImpl implements RecipeService {
 
 
         Recipe saved = recipeRepository.saveAndFlush(recipe);
+        // Nội dung đổi -> job embedding sẽ kiểm tra content hash và tạo lại vector nếu cần
+        recipeEmbeddingRepository.markContentChanged(recipeId);
+        reindexRecipe(recipeId);
+
+        if (incomingPrivacy != null) {
+            recipeVectorIndexService.updateAccess(recipeId, ownerId, incomingPrivacy);
+        }
 
         return buildRecipeResponse(saved, actorUserId);
     }
@@ -563,6 +684,8 @@ public class RecipeServiceImpl implements RecipeService {
             }
         }
         recipeRepository.save(recipe);
+        recipeVectorIndexService.remove(recipeId);
+        unindexRecipe(recipeId);
 
         // Đánh dấu các shopping list item liên quan
         List<ShoppingList> relatedItems = shoppingListRepository.findByRecipe_Id(recipeId);
@@ -690,6 +813,8 @@ public class RecipeServiceImpl implements RecipeService {
 
         // Xóa recipe khỏi DB
         recipeRepository.delete(recipe);
+        recipeVectorIndexService.remove(recipeId);
+        unindexRecipe(recipeId);
     }
 
     @Override
@@ -744,6 +869,7 @@ public class RecipeServiceImpl implements RecipeService {
                         .recipe(newRecipe)
                         .name(i.name())
                         .quantity(i.quantity())
+                        .canonicalIngredient(ingredientDictionaryService.resolve(i.name()))
                         .build())
                 .collect(Collectors.toList());
         newRecipe.setIngredients(ingredients);
@@ -765,6 +891,7 @@ public class RecipeServiceImpl implements RecipeService {
 
         // Gọi AI tính toán dinh dưỡng ngầm (Async)
         aiRecipeService.updateNutritionBackground(saved.getId());
+        reindexRecipe(saved.getId());
 
         return RecipeResponse.from(saved, false, null, List.of());
     }
@@ -774,6 +901,19 @@ public class RecipeServiceImpl implements RecipeService {
     public PageResult<RecipeCardResponse> searchPublicRecipes(String query, int page, int size) {
         int p = Math.max(0, page);
         int s = Math.min((size > 0 ? size : DEFAULT_SIZE), MAX_SIZE);
+
+        // Ưu tiên chỉ mục đảo ngược trong bộ nhớ (BM25, không phân biệt dấu); query rỗng/không có từ -> SQL
+        if (recipeSearchIndexService.isActive() && !TextAnalyzer.tokenize(query).isEmpty()) {
+            SearchHits hits = recipeSearchIndexService.search(query, p * s, s);
+            return toIdPage(hits.recipeIds(), hits.totalHits(), p, s);
+        }
+
+        // app.search.mode=fulltext: MATCH ... AGAINST trên chỉ mục ngram, sắp theo độ liên quan
+        if (recipeFullTextSearchService.isActive() && query != null && !query.isBlank()) {
+            Page<Recipe> pageData = recipeFullTextSearchService.search(query.trim(), PageRequest.of(p, s));
+            return PageResult.of(pageData.map(RecipeCardResponse::from));
+        }
+
         Pageable pageable = PageRequest.of(p, s, Sort.by(Sort.Direction.DESC, "createdAt"));
 
         Page<Recipe> pageData = recipeRepository.searchPublicRecipes(query, pageable);
@@ -781,22 +921,85 @@ public class RecipeServiceImpl implements RecipeService {
         return PageResult.of(pageData.map(RecipeCardResponse::from));
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public RecipeBrowseResponse browsePublicRecipes(Map<String, Set<String>> filters, int page, int size) {
+        int p = Math.max(0, page);
+        int s = Math.min((size > 0 ? size : DEFAULT_SIZE), MAX_SIZE);
+
+        // Chỉ mục chưa nạp xong (vừa khởi động hoặc nạp lỗi, job định kỳ sẽ thử lại) -> 503 thay vì trả rỗng
+        if (!recipeFacetService.isReady()) {
+            throw new ServiceUnavailableException("Bộ lọc công thức đang được khởi tạo, vui lòng thử lại sau.", INDEX_RETRY_AFTER_SECONDS);
+        }
+
+        FacetResult result = recipeFacetService.browse(filters, p * s, s);
+        return new RecipeBrowseResponse(toIdPage(result.recipeIds(), result.totalHits(), p, s), result.facetCounts());
+    }
+
+    /**
+     * Một trang card từ danh sách recipeId đã xếp hạng bởi chỉ mục trong bộ nhớ (giữ nguyên thứ tự).
+     */
+    private PageResult<RecipeCardResponse> toIdPage(List<Long> recipeIds, long totalHits, int p, int s) {
+        Map<Long, Recipe> byId = recipeIds.isEmpty() ? Map.of()
+                : recipeRepository.findAllDetailsByIds(recipeIds).stream()
+                .collect(Collectors.toMap(Recipe::getId, r -> r));
+        List<RecipeCardResponse> items = recipeIds.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .map(RecipeCardResponse::from)
+                .toList();
+        int totalPages = (int) ((totalHits + s - 1) / s);
+        return new PageResult<>(p, s, totalHits, totalPages, p + 1 < totalPages, items);
+    }
+
     @Override
     @Transactional(readOnly = true)
     public PageResult<RecipeCardResponse> listPopular(int page, int size) {
         int p = Math.max(0, page);
         int s = Math.min((size > 0 ? size : DEFAULT_SIZE), MAX_SIZE);
+
+        // Đọc từ bảng xếp hạng Redis; chưa dựng xong hoặc Redis lỗi thì sắp xếp trên DB như cũ
+        RecipeRankingService.RankPage ranked = recipeRankingService.popular(p * s, s);
+        if (ranked != null) return toIdPage(ranked.recipeIds(), ranked.total(), p, s);
+
         Pageable pageable = PageRequest.of(p, s, Sort.by(Sort.Direction.DESC, "view"));
 
         Page<Recipe> pageData = recipeRepository.findByPrivacyAndDeletedFalseOrderByViewDesc(Privacy.PUBLIC, pageable);
         return PageResult.of(pageData.map(RecipeCardResponse::from));
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public PageResult<RecipeCardResponse> listPopular(String cursor, int size) {
+        int s = Math.min((size > 0 ? size : DEFAULT_SIZE), MAX_SIZE);
+        PageCursor.ViewKey after = PageCursor.decodeView(cursor);
+
+        // Lượt xem thay đổi liên tục nên khi cuộn sâu có thể lệch nhẹ (bỏ sót/lặp) với recipe vừa tăng view
+        List<Recipe> rows = recipeRepository.findPopularAfter(
+                Privacy.PUBLIC, after.view(), after.id(), PageRequest.of(0, s + 1));
+        return toCursorPage(rows, s,
+                r -> PageCursor.encode(new PageCursor.ViewKey(r.getView() != null ? r.getView() : 0L, r.getId())));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public PageResult<RecipeCardResponse> listTrending(int page, int size) {
+        int p = Math.max(0, page);
+        int s = Math.min((size > 0 ? size : DEFAULT_SIZE), MAX_SIZE);
+
+        SearchHits hits = recipeTrendingService.page(p * s, s);
+        return toIdPage(hits.recipeIds(), hits.totalHits(), p, s);
+    }
+
     @Override
     @Transactional(readOnly = true)
     public PageResult<RecipeCardResponse> listEasyToCook(int page, int size) {
         int p = Math.max(0, page);
         int s = Math.min((size > 0 ? size : DEFAULT_SIZE), MAX_SIZE);
+
+        RecipeRankingService.RankPage ranked = recipeRankingService.easyToCook(p * s, s);
+        if (ranked != null) return toIdPage(ranked.recipeIds(), ranked.total(), p, s);
+
         Pageable pageable = PageRequest.of(p, s);
 
         Page<Recipe> pageData = recipeRepository.findEasyToCook(pageable);
@@ -855,6 +1058,7 @@ public class RecipeServiceImpl implements RecipeService {
                 if (qtyChanged || nameChanged) {
                     existingItem.setQuantity(canonicalQty);
                     existingItem.setName(canonicalName);
+                    existingItem.setCanonicalIngredient(ingredientDictionaryService.resolve(canonicalName));
                     isChanged = true;
                 }
             } else {
@@ -870,6 +1074,7 @@ public class RecipeServiceImpl implements RecipeService {
                             .recipe(recipe)
                             .name(canonicalName)
                             .quantity(canonicalQty)
+                            .canonicalIngredient(ingredientDictionaryService.resolve(canonicalName))
                             .build();
                     ingredientsToAdd.add(newIngredient);
                     isChanged = true;
@@ -887,6 +1092,8 @@ public class RecipeServiceImpl implements RecipeService {
             recipe.setUpdatedAt(LocalDateTime.now(ZoneOffset.UTC));
             // Lưu Recipe (CascadeType.ALL sẽ tự động lưu các ingredients mới và update ingredients cũ)
             recipe = recipeRepository.saveAndFlush(recipe);
+            recipeEmbeddingRepository.markContentChanged(recipeId);
+            reindexRecipe(recipeId);
         }
 
         // 5) Trả về danh sách DTO (bao gồm cả cái mới thêm và cái vừa cập nhật)
@@ -947,6 +1154,8 @@ public class RecipeServiceImpl implements RecipeService {
         // Cập nhật thời gian update cho Recipe
         recipe.setUpdatedAt(LocalDateTime.now(ZoneOffset.UTC));
         recipeRepository.save(recipe);
+        recipeEmbeddingRepository.markContentChanged(recipeId);
+        reindexRecipe(recipeId);
 
         // 5) Trả về số lượng đã xóa
         return Map.of("deletedCount", ingredientsToDelete.size());
@@ -982,10 +1191,18 @@ public class RecipeServiceImpl implements RecipeService {
                     .orElse(null);
         }
 
-        // Lấy danh sách bình luận (CommentService đã xử lý quyền xem)
-        List<CommentResponse> comments = commentService.getCommentsByRecipe(recipe.getId(), viewerUserId);
+        return withCommentPreview(recipe, isFavorited, myRating, viewerUserId);
+    }
 
-        return RecipeResponse.from(recipe, isFavorited, myRating, comments);
+    /**
+     * Response kèm trang bình luận đầu tiên (CommentService đã xử lý quyền xem); phần còn lại client tải theo cursor.
+     */
+    private RecipeResponse withCommentPreview(Recipe recipe, boolean isFavorited, Integer myRating, Long viewerUserId) {
+        PageResult<CommentResponse> comments = commentService.getCommentThreads(
+                recipe.getId(), viewerUserId, null, DETAIL_COMMENT_PREVIEW_SIZE);
+        return RecipeResponse.from(recipe, isFavorited, myRating, comments.items()).toBuilder()
+                .commentsCursor(comments.nextCursor())
+                .build();
     }
 
     @Override
@@ -997,16 +1214,12 @@ public class RecipeServiceImpl implements RecipeService {
         Pageable pageable = PageRequest.of(p, s, Sort.by(Sort.Direction.DESC, "createdAt"));
 
         // 2. Logic phân quyền (Security Check)
-        boolean isAdmin = (actor != null && actor.getRole() == Role.ADMIN);
-
-        boolean isSelf = (actor != null && Objects.equals(actor.getUserId(), filterUserId));
-
         // Các biến filter thực tế
         Privacy finalPrivacy = privacy;
         Boolean finalDeleted = deleted;
 
         // Nếu không phải Admin VÀ không phải xem chính mình (tức là Khách hoặc User xem người khác)
-        if (!isAdmin && !isSelf) {
+        if (!canFilterAll(actor, filterUserId)) {
             // Bắt buộc chỉ được xem PUBLIC
             finalPrivacy = Privacy.PUBLIC;
             // Bắt buộc không được xem công thức đã xóa
@@ -1021,6 +1234,68 @@ public class RecipeServiceImpl implements RecipeService {
         return PageResult.of(pageData.map(RecipeCardResponse::from));
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public PageResult<RecipeCardResponse> filterRecipes(User actor, Long filterUserId, Privacy privacy, Boolean deleted, String cursor, int size) {
+        int s = Math.min((size > 0 ? size : DEFAULT_SIZE), MAX_SIZE);
+        PageCursor.CreatedAtKey after = PageCursor.decodeCreatedAt(cursor);
+
+        boolean canFilterAll = canFilterAll(actor, filterUserId);
+        Privacy finalPrivacy = canFilterAll ? privacy : Privacy.PUBLIC;
+        Boolean finalDeleted = canFilterAll ? deleted : Boolean.FALSE;
+
+        List<Recipe> rows = recipeRepository.findRecipesWithFilterAfter(
+                filterUserId, finalPrivacy, finalDeleted, after.createdAt(), after.id(), PageRequest.of(0, s + 1));
+        return toCursorPage(rows, s, this::createdAtCursor);
+    }
+
+    /**
+     * Admin hoặc chính chủ được lọc tùy ý; khách/người khác chỉ xem PUBLIC chưa xóa.
+     */
+    private boolean canFilterAll(User actor, Long filterUserId) {
+        boolean isAdmin = (actor != null && actor.getRole() == Role.ADMIN);
+        boolean isSelf = (actor != null && Objects.equals(actor.getUserId(), filterUserId));
+        return isAdmin || isSelf;
+    }
+
+    /**
+     * Cắt kết quả keyset (đã lấy dư 1 dòng) thành một trang và tạo nextCursor từ phần tử cuối.
+     */
+    private PageResult<RecipeCardResponse> toCursorPage(List<Recipe> rows, int size, Function<Recipe, String> cursorOf) {
+        boolean hasNext = rows.size() > size;
+        List<Recipe> page = hasNext ? rows.subList(0, size) : rows;
+        String nextCursor = hasNext ? cursorOf.apply(page.get(page.size() - 1)) : null;
+        return PageResult.ofCursor(size, page.stream().map(RecipeCardResponse::from).toList(), nextCursor);
+    }
+
+    private String createdAtCursor(Recipe r) {
+        return PageCursor.encode(new PageCursor.CreatedAtKey(r.getCreatedAt(), r.getId()));
+    }
+
+    /**
+     * Đồng bộ các chỉ mục đọc (FULLTEXT ingredient_text, chỉ mục tìm kiếm, trie gợi ý, facet)
+     * sau khi nội dung/trạng thái recipe thay đổi. Các chỉ mục trong bộ nhớ chỉ cập nhật sau khi commit.
+     */
+    private void reindexRecipe(Long recipeId) {
+        recipeRepository.syncIngredientText(recipeId);
+        recipeSearchIndexService.refresh(recipeId);
+        recipeAutocompleteService.markDirty();
+        recipeFacetService.refresh(recipeId);
+        recipeIngredientMatchService.refresh(recipeId);
+        recipeRankingService.refresh(recipeId);
+        recipeDetailCache.evict(recipeId);
+    }
+
+    private void unindexRecipe(Long recipeId) {
+        recipeSearchIndexService.remove(recipeId);
+        recipeAutocompleteService.markDirty();
+        recipeFacetService.remove(recipeId);
+        recipeIngredientMatchService.remove(recipeId);
+        recipeRankingService.remove(recipeId);
+        recipeTrendingService.remove(recipeId);
+        recipeDetailCache.evict(recipeId);
+    }
+
     @Override
     @Transactional
     public void restoreRecipe(Long actorUserId, Long recipeId) {
@@ -1056,6 +1331,8 @@ public class RecipeServiceImpl implements RecipeService {
 
         // 5. Lưu Recipe
         recipeRepository.save(recipe);
+        recipeVectorIndexService.refresh(recipeId);
+        reindexRecipe(recipeId);
 
         // 6. Khôi phục trạng thái 'isRecipeDeleted' trong các bảng liên quan
         shoppingListRepository.restoreByRecipeId(recipeId);
@@ -1099,6 +1376,8 @@ public class RecipeServiceImpl implements RecipeService {
         if (isChanged) {
             recipe.setUpdatedAt(LocalDateTime.now(ZoneOffset.UTC));
             recipe = recipeRepository.saveAndFlush(recipe);
+            recipeEmbeddingRepository.markContentChanged(recipeId);
+            recipeFacetService.refresh(recipeId); // Calo đổi -> bucket calories đổi
         }
 
         return buildRecipeResponse(recipe, actorUserId);
@@ -1129,27 +1408,14 @@ public class RecipeServiceImpl implements RecipeService {
             semanticQuery.append(" Đặc điểm: ").append(req.dishCharacteristics()).append(".");
         if (req.mealType() != null) semanticQuery.append(" Bữa: ").append(req.mealType()).append(".");
 
-        // 2. Lấy Vector của User từ Gemini API
-        List<Double> userVector = geminiApiClient.getEmbedding(semanticQuery.toString());
-        if (userVector.isEmpty()) {
+        // 2. Lấy Vector của User (qua cache embedding, chỉ gọi Gemini API khi miss)
+        float[] userVector = queryEmbeddingCache.getOrCompute(semanticQuery.toString());
+        if (userVector.length == 0) {
             throw new RuntimeException("Không thể tạo vector từ yêu cầu của bạn.");
         }
 
-        // 3. Lấy Projection
-        List<RecipeVectorInfo> vectorInfos = recipeRepository.findAllVectorProjections();
-
-        // 4. Tính toán song song
-        List<Long> topRecipeIds = vectorInfos.stream()
-                .filter(r -> checkPrivacyFast(r, currentUserId))
-                .map(r -> {
-                    List<Double> recipeVector = parseVectorFast(r.getEmbeddingVector());
-                    double score = calculateCosineSimilarity(userVector, recipeVector);
-                    return Map.entry(r.getId(), score);
-                })
-                .sorted(Map.Entry.<Long, Double>comparingByValue().reversed())
-                .limit(6)
-                .map(Map.Entry::getKey)
-                .toList();
+        // 3 + 4. Tìm top-k trên chỉ mục vector trong bộ nhớ (đã lọc quyền riêng tư)
+        List<Long> topRecipeIds = recipeVectorIndexService.findNearestRecipeIds(userVector, currentUserId, SUGGESTION_CANDIDATES);
 
         if (topRecipeIds.isEmpty()) {
             throw new EntityNotFoundException("Không tìm thấy món ăn phù hợp.");
@@ -1208,48 +1474,6 @@ public class RecipeServiceImpl implements RecipeService {
         return finalResult;
     }
 
-    // [MỚI] Helper check privacy nhanh trên DTO
-    private boolean checkPrivacyFast(RecipeVectorInfo info, Long currentUserId) {
-        if (info.getPrivacy() == Privacy.PUBLIC) return true;
-        // Nếu private hoặc shared, user phải là chủ sở hữu (logic đơn giản hóa cho gợi ý AI)
-        return info.getOwnerId().equals(currentUserId);
-    }
-
-    // [MỚI] Parse JSON Vector thủ công - Nhanh gấp 10 lần Jackson
-    // Định dạng string: "[0.123, -0.456, ...]"
-    private List<Double> parseVectorFast(String jsonVector) {
-        if (jsonVector == null || jsonVector.length() < 3) return Collections.emptyList();
-
-        // Cắt bỏ ngoặc vuông []
-        String content = jsonVector.substring(1, jsonVector.length() - 1);
-
-        // Split bằng dấu phẩy
-        String[] parts = content.split(",");
-        List<Double> vector = new ArrayList<>(parts.length);
-
-        try {
-            for (String part : parts) {
-                vector.add(Double.parseDouble(part.trim()));
-            }
-        } catch (NumberFormatException e) {
-            return Collections.emptyList();
-        }
-        return vector;
-    }
-
-    private double calculateCosineSimilarity(List<Double> v1, List<Double> v2) {
-        if (v1 == null || v2 == null || v1.size() != v2.size()) return 0.0;
-        double dotProduct = 0.0;
-        double normA = 0.0;
-        double normB = 0.0;
-        for (int i = 0; i < v1.size(); i++) {
-            dotProduct += v1.get(i) * v2.get(i);
-            normA += Math.pow(v1.get(i), 2);
-            normB += Math.pow(v2.get(i), 2);
-        }
-        if (normA == 0 || normB == 0) return 0.0;
-        return dotProduct / (Math.sqrt(normA) * Math.sqrt(normB));
-    }
     // Kết thúc các phương thức về gợi ý công thức cá nhân hóa bằng AI
     //----------------------------------------------------------------
 
@@ -1307,6 +1531,7 @@ public class RecipeServiceImpl implements RecipeService {
                             .recipe(newRecipe)
                             .name(i.name())
                             .quantity(i.quantity())
+                            .canonicalIngredient(ingredientDictionaryService.resolve(i.name()))
                             .build())
                     .collect(Collectors.toList());
             newRecipe.setIngredients(ingredients);
@@ -1333,6 +1558,7 @@ public class RecipeServiceImpl implements RecipeService {
 
         // Gọi AI tính toán dinh dưỡng ngầm (Async)
         aiRecipeService.updateNutritionBackground(saved.getId());
+        reindexRecipe(saved.getId());
 
         // 8. Trả về Response
         return buildRecipeResponse(saved, userId);
@@ -49,6 +49,7 @@ public class RecipeStepImageServiceImpl implements RecipeStepImageService {
     private final UserRepository userRepository;
     private final RecipeRepository recipeRepository;
     private final CloudinaryService cloudinaryService;
+    private final RecipeDetailCache recipeDetailCache;
 
     @PersistenceContext
     private EntityManager em;
@@ -137,6 +138,8 @@ public class RecipeStepImageServiceImpl implements RecipeStepImageService {
         if (step.getImages() != null) {
             step.getImages().addAll(toSave);
         }
+        // Thêm ảnh không cập nhật updatedAt của recipe nên phải xóa cache chi tiết
+        recipeDetailCache.evict(recipeId);
 
         return urls;
     }
@@ -150,6 +153,7 @@ public class RecipeStepImageServiceImpl implements RecipeStepImageService {
         Recipe recipe = step.getRecipe();
         recipe.setUpdatedAt(LocalDateTime.now(ZoneOffset.UTC));
         recipeRepository.save(recipe);
+        recipeDetailCache.evict(recipeId);
 
         // 1) Cập nhật nội dung, thời gian và tips
         if (req.content() != null) step.setContent(req.content());
@@ -281,6 +285,7 @@ public class RecipeStepImageServiceImpl implements RecipeStepImageService {
         // 6) Lưu recipe (để cập nhật updatedAt)
         // Không cần add vào list recipe.getSteps() thủ công vì query bên dưới sẽ lấy lại từ DB
         recipeRepository.save(recipe);
+        recipeDetailCache.evict(recipeId);
 
         em.flush();
         em.clear(); // Clear cache để đảm bảo query lấy dữ liệu mới nhất
@@ -360,6 +365,7 @@ public class RecipeStepImageServiceImpl implements RecipeStepImageService {
         // 6) Update Recipe timestamp
         recipe.setUpdatedAt(LocalDateTime.now(ZoneOffset.UTC));
         recipeRepository.save(recipe);
+        recipeDetailCache.evict(recipeId);
 
         // 7) Flush
         em.flush();
@@ -461,6 +467,7 @@ public class RecipeStepImageServiceImpl implements RecipeStepImageService {
         // 7) Cập nhật thời gian cho Recipe
         recipe.setUpdatedAt(LocalDateTime.now(ZoneOffset.UTC));
         recipeRepository.save(recipe);
+        recipeDetailCache.evict(recipeId);
 
         // 8) Trả về kết quả
         return Map.of(
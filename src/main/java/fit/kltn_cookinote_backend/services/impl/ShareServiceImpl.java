@@ -17,6 +17,7 @@ import fit.kltn_cookinote_backend.entities.User;
 import fit.kltn_cookinote_backend.enums.Privacy;
 import fit.kltn_cookinote_backend.repositories.*;
 import fit.kltn_cookinote_backend.services.RecipeService;
+import fit.kltn_cookinote_backend.services.RecipeVectorIndexService;
 import fit.kltn_cookinote_backend.services.ShareService;
 import fit.kltn_cookinote_backend.utils.QrCodeUtil;
 import jakarta.persistence.EntityNotFoundException;
@@ -37,6 +38,7 @@ public class ShareServiceImpl implements ShareService {
     private final UserRepository userRepository;
     private final ShareRepository shareRepository;
     private final RecipeService recipeService;
+    private final RecipeVectorIndexService recipeVectorIndexService;
 
     @Value("${app.baseUrl}")
     private String baseUrl;
@@ -66,6 +68,7 @@ public class ShareServiceImpl implements ShareService {
                 // Nâng cấp lên SHARED khi chia sẻ lần đầu
                 recipe.setPrivacy(Privacy.SHARED);
                 recipeRepository.save(recipe); // Lưu thay đổi trạng thái
+                recipeVectorIndexService.updateAccess(recipeId, sharerUserId, Privacy.SHARED);
                 canShare = true;
             }
         }
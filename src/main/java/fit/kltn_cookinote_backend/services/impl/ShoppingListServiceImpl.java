@@ -14,22 +14,22 @@ import fit.kltn_cookinote_backend.entities.Recipe;
 import fit.kltn_cookinote_backend.entities.RecipeIngredient;
 import fit.kltn_cookinote_backend.entities.ShoppingList;
 import fit.kltn_cookinote_backend.entities.User;
-import fit.kltn_cookinote_backend.enums.IngredientType;
 import fit.kltn_cookinote_backend.enums.Privacy;
+import fit.kltn_cookinote_backend.exceptions.ServiceUnavailableException;
 import fit.kltn_cookinote_backend.repositories.RecipeIngredientRepository;
 import fit.kltn_cookinote_backend.repositories.RecipeRepository;
 import fit.kltn_cookinote_backend.repositories.ShoppingListRepository;
 import fit.kltn_cookinote_backend.repositories.UserRepository;
+import fit.kltn_cookinote_backend.search.IngredientMatch;
 import fit.kltn_cookinote_backend.services.IngredientCategoryService;
-import fit.kltn_cookinote_backend.services.IngredientClassificationService;
+import fit.kltn_cookinote_backend.services.IngredientDictionaryService;
 import fit.kltn_cookinote_backend.services.IngredientSynonymService;
+import fit.kltn_cookinote_backend.services.RecipeIngredientMatchService;
 import fit.kltn_cookinote_backend.services.ShoppingListService;
 import fit.kltn_cookinote_backend.utils.ShoppingListUtils;
 import jakarta.annotation.Nullable;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
@@ -45,17 +45,19 @@ import static fit.kltn_cookinote_backend.utils.ShoppingListUtils.*;
 @RequiredArgsConstructor
 public class ShoppingListServiceImpl implements ShoppingListService {
 
+    // Retry-After (giây) khi chỉ mục nguyên liệu chưa nạp xong
+    private static final int INDEX_RETRY_AFTER_SECONDS = 30;
+
     private final UserRepository userRepository;
     private final RecipeRepository recipeRepository;
     private final RecipeIngredientRepository ingredientRepository;
     private final ShoppingListRepository shoppingListRepository;
-    private final IngredientClassificationService ingredientClassificationService;
+    private final RecipeIngredientMatchService recipeIngredientMatchService;
     private final IngredientSynonymService synonymService;
+    private final IngredientDictionaryService ingredientDictionaryService;
 
     private final IngredientCategoryService ingredientCategoryService;
 
-    private static final int CANDIDATE_POOL_SIZE = 10;
-
     @Override
     @Transactional(readOnly = true)
     public List<GroupedShoppingListResponse> getAllShoppingLists(Long userId, String groupBy) {
@@ -334,6 +336,7 @@ public class ShoppingListServiceImpl implements ShoppingListService {
                         .user(user)
                         .recipe(recipe)
                         .ingredient(canonicalize(name))
+                        .canonicalIngredient(ingredientDictionaryService.resolve(name))
                         .quantity(qty)
                         .checked(Boolean.FALSE)
                         .isFromRecipe(Boolean.TRUE)
@@ -390,6 +393,7 @@ public class ShoppingListServiceImpl implements ShoppingListService {
                                 .user(user)
                                 .recipe(null)                  // lẻ loi
                                 .ingredient(name)              // canonicalized
+                                .canonicalIngredient(ingredientDictionaryService.resolve(name))
                                 .quantity(quantity)
                                 .checked(Boolean.FALSE)        // mặc định chưa tick
                                 .isFromRecipe(Boolean.FALSE)
@@ -445,6 +449,7 @@ public class ShoppingListServiceImpl implements ShoppingListService {
                                 .user(user)
                                 .recipe(recipe)
                                 .ingredient(name)              // canonicalized
+                                .canonicalIngredient(ingredientDictionaryService.resolve(name))
                                 .quantity(quantity)
                                 .checked(Boolean.FALSE)
                                 .isFromRecipe(isFromRecipeFlag) // Đặt cờ theo nguồn gốc
@@ -505,6 +510,7 @@ public class ShoppingListServiceImpl implements ShoppingListService {
                 target.setChecked(mergedChecked);
                 target.setQuantity(mergedQty);
                 target.setIngredient(nameNew); // canonicalized
+                target.setCanonicalIngredient(ingredientDictionaryService.resolve(nameNew));
 
                 // Khi merge do đổi tên thủ công, kết quả luôn là 'false'
                 target.setIsFromRecipe(Boolean.FALSE);
@@ -519,6 +525,7 @@ public class ShoppingListServiceImpl implements ShoppingListService {
 
         // Không cần merge -> cập nhật trực tiếp current
         current.setIngredient(nameNew); // canonicalized
+        current.setCanonicalIngredient(ingredientDictionaryService.resolve(nameNew));
         if (qtyNew != null) current.setQuantity(qtyNew);
         if (newCheckedOrNull != null) current.setChecked(newCheckedOrNull);
 
@@ -720,98 +727,46 @@ public class ShoppingListServiceImpl implements ShoppingListService {
             return new PageResult<>(pageable.getPageNumber(), pageable.getPageSize(), 0, 0, false, Collections.emptyList());
         }
 
-        // BƯỚC 2: LẤY ỨNG VIÊN TỪ DATABASE
-        // Khi query DB, chúng ta vẫn dùng normalize CƠ BẢN, vì DB chứa tên thô.
-        List<String> expandedKeys = ingredientNames.stream()
-                .map(name -> synonymService.getAllVariants(name))
-                .flatMap(List::stream)
-                .distinct()
-                .toList();
-
-        Pageable candidatesPageable = PageRequest.of(0, CANDIDATE_POOL_SIZE);
-
-        // Query DB bằng danh sách đã mở rộng
-        Page<Recipe> candidates = recipeRepository.findCandidateRecipesByIngredients(
-                expandedKeys,
-                candidatesPageable
-        );
-
-        if (candidates.isEmpty()) {
-            return new PageResult<>(pageable.getPageNumber(), pageable.getPageSize(), 0, 0, false, Collections.emptyList());
-        }
-
-        // BƯỚC 3: CHẤM ĐIỂM (LOGIC MỚI, THAY THẾ GEMINI)
-        List<RecipeSuggestionResponse> scoredSuggestions = new ArrayList<>();
-
-        for (Recipe recipe : candidates.getContent()) {
-            // 3.1. Lấy dữ liệu phân loại (ĐÃ ĐƯỢC CHUẨN HÓA ĐỒNG NGHĨA LÚC KHỞI ĐỘNG)
-            Map<String, IngredientType> classifications = ingredientClassificationService.getClassificationsForRecipe(recipe.getId());
-
-            if (classifications.isEmpty()) {
-                continue; // Bỏ qua nếu recipe này chưa được "train"
-            }
-
-            long totalMainInRecipe = classifications.values().stream().filter(t -> t == IngredientType.MAIN).count();
-            long totalSecondaryInRecipe = classifications.size() - totalMainInRecipe;
-
-            int mainMatchCount = 0;
-            int secondaryMatchCount = 0;
-
-            // 3.2. So khớp giỏ hàng (đã chuẩn hóa đồng nghĩa) với dữ liệu phân loại (đã chuẩn hóa đồng nghĩa)
-            for (String shoppingKey : shoppingListKeys) {
-                IngredientType type = classifications.get(shoppingKey);
-                if (type != null) {
-                    if (type == IngredientType.MAIN) {
-                        mainMatchCount++;
-                    } else {
-                        secondaryMatchCount++;
-                    }
-                }
-            }
-
-            // 3.3. Tính điểm (CHỈ LẤY CÔNG THỨC CÓ KHỚP NGUYÊN LIỆU CHÍNH)
-            if (mainMatchCount > 0) {
-                double mainScore = (totalMainInRecipe > 0)
-                        ? ((double) mainMatchCount / totalMainInRecipe) * 10.0
-                        : 0.0;
-
-                double overallScore = (!classifications.isEmpty())
-                        ? ((double) (mainMatchCount + secondaryMatchCount) / classifications.size()) * 10.0
-                        : 0.0;
-
-                String justification = String.format("Khớp %d/%d nguyên liệu chính và %d/%d nguyên liệu phụ.",
-                        mainMatchCount, totalMainInRecipe,
-                        secondaryMatchCount, totalSecondaryInRecipe);
-
-                scoredSuggestions.add(new RecipeSuggestionResponse(
-                        RecipeCardResponse.from(recipe),
-                        mainScore,
-                        overallScore,
-                        justification
-                ));
-            }
+        // BƯỚC 2: CHẤM ĐIỂM TOÀN BỘ CATALOG BẰNG BITMAP NGUYÊN LIỆU
+        // (dữ liệu phân loại đã chuẩn hóa đồng nghĩa lúc khởi động; chỉ lấy công thức có khớp nguyên liệu chính)
+        // Chỉ mục chưa nạp xong (vừa khởi động hoặc nạp lỗi, job định kỳ sẽ thử lại) -> 503 thay vì nạp trên luồng request
+        if (!recipeIngredientMatchService.isReady()) {
+            throw new ServiceUnavailableException("Gợi ý công thức đang được khởi tạo, vui lòng thử lại sau.", INDEX_RETRY_AFTER_SECONDS);
         }
+        List<IngredientMatch> matches = recipeIngredientMatchService.match(shoppingListKeys);
 
-        // BƯỚC 4: SẮP XẾP (IN-MEMORY)
-        scoredSuggestions.sort(
-                Comparator.comparing(RecipeSuggestionResponse::mainIngredientMatchScore)
-                        .thenComparing(RecipeSuggestionResponse::overallMatchScore)
-                        .reversed()
-        );
-
-        // BƯỚC 5: PHÂN TRANG (IN-MEMORY)
+        // BƯỚC 3: PHÂN TRANG (kết quả đã được sắp theo điểm nguyên liệu chính, rồi điểm tổng)
         int pageSize = pageable.getPageSize();
         int currentPage = pageable.getPageNumber();
         int startItem = currentPage * pageSize;
-        int totalItems = scoredSuggestions.size();
-
-        List<RecipeSuggestionResponse> paginatedList;
-
-        if (startItem < totalItems) {
-            int toIndex = Math.min(startItem + pageSize, totalItems);
-            paginatedList = scoredSuggestions.subList(startItem, toIndex).stream().limit(3).toList();
-        } else {
-            paginatedList = Collections.emptyList();
+        int totalItems = matches.size();
+
+        List<IngredientMatch> pageMatches = startItem < totalItems
+                ? matches.subList(startItem, Math.min(startItem + pageSize, totalItems)).stream().limit(3).toList()
+                : Collections.emptyList();
+
+        // BƯỚC 4: CHỈ TẢI CÁC RECIPE CỦA TRANG HIỆN TẠI
+        Map<Long, Recipe> recipesById = pageMatches.isEmpty() ? Map.of()
+                : recipeRepository.findAllDetailsByIds(pageMatches.stream().map(IngredientMatch::recipeId).toList())
+                .stream()
+                .collect(Collectors.toMap(Recipe::getId, Function.identity()));
+
+        // BƯỚC 5: DỰNG KẾT QUẢ (GIỮ THỨ TỰ XẾP HẠNG)
+        List<RecipeSuggestionResponse> paginatedList = new ArrayList<>(pageMatches.size());
+        for (IngredientMatch match : pageMatches) {
+            Recipe recipe = recipesById.get(match.recipeId());
+            if (recipe == null) continue;
+
+            String justification = String.format("Khớp %d/%d nguyên liệu chính và %d/%d nguyên liệu phụ.",
+                    match.mainMatched(), match.mainTotal(),
+                    match.secondaryMatched(), match.secondaryTotal());
+
+            paginatedList.add(new RecipeSuggestionResponse(
+                    RecipeCardResponse.from(recipe),
+                    match.mainScore(),
+                    match.overallScore(),
+                    justification
+            ));
         }
 
         int totalPages = (int) Math.ceil((double) totalItems / (double) pageSize);
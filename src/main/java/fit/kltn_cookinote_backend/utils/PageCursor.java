@@ -0,0 +1,112 @@
+/*
+ * @ (#) PageCursor.java    1.0    30/12/2025
+ * Copyright (c) 2025 IUH. All rights reserved.
+ */
+package fit.kltn_cookinote_backend.utils;/*
+ * @description:
+ * @author: Bao Thong
+ * @date: 30/12/2025
+ * @version: 1.0
+ */
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Cursor mờ (opaque) cho phân trang keyset: mã hóa khóa sắp xếp của phần tử cuối trang
+ * (createdAt, id) hoặc (view, id) thành chuỗi base64url. Client chỉ cần gửi lại nguyên văn.
+ */
+public final class PageCursor {
+
+    private static final String CREATED_AT = "t";
+    private static final String VIEW = "v";
+    private static final String SEPARATOR = "|";
+
+    private PageCursor() {
+    }
+
+    public record CreatedAtKey(LocalDateTime createdAt, long id) {
+        // Trang đầu: mọi bản ghi đều "nhỏ hơn" mốc này
+        public static final CreatedAtKey FIRST = new CreatedAtKey(LocalDateTime.of(9999, 12, 31, 0, 0), Long.MAX_VALUE);
+        // Trang đầu khi sắp tăng dần (cũ nhất trước): mọi bản ghi đều "lớn hơn" mốc này
+        public static final CreatedAtKey FIRST_ASC = new CreatedAtKey(LocalDateTime.of(1970, 1, 1, 0, 0), 0L);
+    }
+
+    public record ViewKey(long view, long id) {
+        public static final ViewKey FIRST = new ViewKey(Long.MAX_VALUE, Long.MAX_VALUE);
+    }
+
+    public static String encode(CreatedAtKey key) {
+        return encode(CREATED_AT, key.createdAt().toString(), key.id());
+    }
+
+    public static String encode(ViewKey key) {
+        return encode(VIEW, Long.toString(key.view()), key.id());
+    }
+
+    /**
+     * Giải mã cursor theo (createdAt, id); cursor rỗng nghĩa là trang đầu.
+     *
+     * @throws IllegalArgumentException nếu cursor không hợp lệ
+     */
+    public static CreatedAtKey decodeCreatedAt(String cursor) {
+        return decodeCreatedAt(cursor, CreatedAtKey.FIRST);
+    }
+
+    /**
+     * Như decodeCreatedAt nhưng cho danh sách sắp tăng dần (cũ nhất trước); cursor rỗng nghĩa là trang đầu.
+     *
+     * @throws IllegalArgumentException nếu cursor không hợp lệ
+     */
+    public static CreatedAtKey decodeCreatedAtAsc(String cursor) {
+        return decodeCreatedAt(cursor, CreatedAtKey.FIRST_ASC);
+    }
+
+    /**
+     * Giải mã cursor theo (view, id); cursor rỗng nghĩa là trang đầu.
+     *
+     * @throws IllegalArgumentException nếu cursor không hợp lệ
+     */
+    public static ViewKey decodeView(String cursor) {
+        if (cursor == null || cursor.isBlank()) return ViewKey.FIRST;
+        String[] parts = decode(cursor, VIEW);
+        try {
+            return new ViewKey(Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Cursor không hợp lệ.");
+        }
+    }
+
+    // --- Helpers ---
+
+    private static CreatedAtKey decodeCreatedAt(String cursor, CreatedAtKey first) {
+        if (cursor == null || cursor.isBlank()) return first;
+        String[] parts = decode(cursor, CREATED_AT);
+        try {
+            return new CreatedAtKey(LocalDateTime.parse(parts[1]), Long.parseLong(parts[2]));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException("Cursor không hợp lệ.");
+        }
+    }
+
+    private static String encode(String kind, String value, long id) {
+        String raw = kind + SEPARATOR + value + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decode(String cursor, String expectedKind) {
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Cursor không hợp lệ.");
+        }
+        String[] parts = raw.split("\\" + SEPARATOR, -1);
+        if (parts.length != 3 || !expectedKind.equals(parts[0])) {
+            throw new IllegalArgumentException("Cursor không hợp lệ.");
+        }
+        return parts;
+    }
+}
@@ -47,15 +47,24 @@ public class ShoppingListUtils {
         // "tép đồng nhỏ" -> "tép đồng"
         cleaned = SUFFIX_WORDS_PATTERN.matcher(cleaned).replaceAll(""); //
 
-        // 3. Chuyển về chữ thường
-        cleaned = cleaned.toLowerCase(Locale.ROOT);
+        // 3 + 4. Chữ thường và bỏ dấu
+        return fold(cleaned).trim();
+    }
 
-        // 4. Bỏ dấu (ví dụ: "bột mì đa dụng" -> "bot mi da dung")
-        String normalized = Normalizer.normalize(cleaned, Normalizer.Form.NFD);
-        normalized = DIACRITICS_PATTERN.matcher(normalized).replaceAll("");
-        normalized = normalized.replaceAll("[đĐ]", "d"); // Xử lý chữ 'đ'
+    /**
+     * Gấp chữ: lowercase + bỏ dấu tiếng Việt (kể cả 'đ'), giữ nguyên các ký tự khác.
+     * Ví dụ: "Phở Bò Tái" -> "pho bo tai"
+     */
+    public static String fold(String s) {
+        if (s == null) return "";
+
+        // Chuyển về chữ thường
+        String lower = s.toLowerCase(Locale.ROOT);
 
-        return normalized.trim();
+        // Bỏ dấu (ví dụ: "bột mì đa dụng" -> "bot mi da dung")
+        String normalized = Normalizer.normalize(lower, Normalizer.Form.NFD);
+        normalized = DIACRITICS_PATTERN.matcher(normalized).replaceAll("");
+        return normalized.replaceAll("[đĐ]", "d"); // Xử lý chữ 'đ'
     }
 
     public static String canonicalize(String s) {
@@ -0,0 +1,315 @@
+/*
+ * @ (#) FlatVectorIndex.java    1.0    22/12/2025
+ * Copyright (c) 2025 IUH. All rights reserved.
+ */
+package fit.kltn_cookinote_backend.vectors;/*
+ * @description:
+ * @author: Bao Thong
+ * @date: 22/12/2025
+ * @version: 1.0
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Chỉ mục vector phẳng (brute-force) lưu trong bộ nhớ.
+ * - Các vector được chuẩn hóa (L2 = 1) khi thêm vào, nên cosine = tích vô hướng.
+ * - Dữ liệu nằm liên tiếp trong một mảng float[] (row-major) để quét thân thiện với cache CPU.
+ * - Owner và quyền riêng tư được đóng gói chung vào một long cho mỗi dòng: (ownerId << 1) | isPublic.
+ * - Top-k dùng min-heap giới hạn k phần tử thay vì sắp xếp toàn bộ điểm số.
+ * Kết quả luôn chính xác, nên đây cũng là chế độ dự phòng/chuẩn đối chiếu cho chỉ mục xấp xỉ.
+ */
+public class FlatVectorIndex implements VectorIndex {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Key: recipeId, Value: vị trí dòng trong mảng dữ liệu
+    private final Map<Long, Integer> rowOf = new HashMap<>();
+
+    private int dimension; // 0 = chưa xác định (lấy theo vector đầu tiên)
+    private int size;
+    private long[] ids = new long[0];
+    private long[] meta = new long[0];
+    private float[] data = new float[0];
+
+    public FlatVectorIndex() {
+        this(0);
+    }
+
+    public FlatVectorIndex(int dimension) {
+        this.dimension = dimension;
+    }
+
+    @Override
+    public boolean upsert(long recipeId, long ownerId, boolean isPublic, float[] vector) {
+        if (vector == null || vector.length == 0) return false;
+
+        lock.writeLock().lock();
+        try {
+            if (dimension == 0) {
+                dimension = vector.length;
+            } else if (vector.length != dimension) {
+                return false;
+            }
+
+            Integer existing = rowOf.get(recipeId);
+            int row;
+            if (existing != null) {
+                row = existing;
+            } else {
+                ensureCapacity(size + 1);
+                row = size++;
+                ids[row] = recipeId;
+                rowOf.put(recipeId, row);
+            }
+
+            if (!VectorMath.writeNormalized(vector, data, row * dimension)) {
+                // Vector toàn 0 -> không có hướng, loại khỏi chỉ mục
+                removeRow(row);
+                return false;
+            }
+            meta[row] = VectorMath.packMeta(ownerId, isPublic);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void updateAccess(long recipeId, long ownerId, boolean isPublic) {
+        lock.writeLock().lock();
+        try {
+            Integer row = rowOf.get(recipeId);
+            if (row != null) {
+                meta[row] = VectorMath.packMeta(ownerId, isPublic);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(long recipeId) {
+        lock.writeLock().lock();
+        try {
+            Integer row = rowOf.get(recipeId);
+            if (row == null) return false;
+            removeRow(row);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean contains(long recipeId) {
+        lock.readLock().lock();
+        try {
+            return rowOf.containsKey(recipeId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int dimension() {
+        lock.readLock().lock();
+        try {
+            return dimension;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<VectorMatch> search(float[] query, int k, Long viewerId) {
+        if (query == null || k <= 0) return List.of();
+
+        lock.readLock().lock();
+        try {
+            if (size == 0 || query.length != dimension) return List.of();
+
+            float[] q = new float[dimension];
+            if (!VectorMath.writeNormalized(query, q, 0)) return List.of();
+
+            long viewerMeta = VectorMath.viewerMeta(viewerId);
+            TopK top = new TopK(Math.min(k, size));
+            final int dim = dimension;
+            final float[] d = data;
+
+            for (int row = 0, offset = 0; row < size; row++, offset += dim) {
+                if (!VectorMath.isVisible(meta[row], viewerMeta)) continue;
+
+                float dot = 0f;
+                for (int i = 0; i < dim; i++) {
+                    dot += q[i] * d[offset + i];
+                }
+                top.offer(ids[row], dot);
+            }
+            return top.drainDescending();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<VectorMatch> exactSearch(float[] query, int k, Long viewerId) {
+        return search(query, k, viewerId);
+    }
+
+    @Override
+    public float[] vectorOf(long recipeId) {
+        lock.readLock().lock();
+        try {
+            Integer row = rowOf.get(recipeId);
+            if (row == null) return null;
+            return Arrays.copyOfRange(data, row * dimension, (row + 1) * dimension);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long[] recipeIds() {
+        lock.readLock().lock();
+        try {
+            return Arrays.copyOf(ids, size);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void forEach(EntryVisitor visitor) {
+        lock.readLock().lock();
+        try {
+            float[] row = new float[dimension];
+            for (int r = 0; r < size; r++) {
+                System.arraycopy(data, r * dimension, row, 0, dimension);
+                visitor.visit(ids[r], VectorMath.ownerOf(meta[r]), VectorMath.isPublic(meta[r]), row);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // --- Helpers ---
+
+    /**
+     * Xóa dòng bằng cách chuyển dòng cuối cùng vào vị trí trống (swap-remove), giữ dữ liệu liên tiếp.
+     */
+    private void removeRow(int row) {
+        int last = size - 1;
+        rowOf.remove(ids[row]);
+        if (row != last) {
+            ids[row] = ids[last];
+            meta[row] = meta[last];
+            System.arraycopy(data, last * dimension, data, row * dimension, dimension);
+            rowOf.put(ids[row], row);
+        }
+        size--;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= ids.length) return;
+        int newCapacity = Math.max(INITIAL_CAPACITY, ids.length);
+        while (newCapacity < required) {
+            newCapacity = newCapacity << 1;
+        }
+        ids = Arrays.copyOf(ids, newCapacity);
+        meta = Arrays.copyOf(meta, newCapacity);
+        data = Arrays.copyOf(data, newCapacity * dimension);
+    }
+
+    /**
+     * Min-heap giới hạn k phần tử trên hai mảng nguyên thủy (không boxing).
+     * Gốc heap luôn là điểm thấp nhất trong top-k hiện tại.
+     */
+    static final class TopK {
+        private final long[] heapIds;
+        private final float[] heapScores;
+        private int count;
+
+        TopK(int k) {
+            this.heapIds = new long[k];
+            this.heapScores = new float[k];
+        }
+
+        void offer(long id, float score) {
+            int k = heapIds.length;
+            if (k == 0) return;
+            if (count < k) {
+                heapIds[count] = id;
+                heapScores[count] = score;
+                siftUp(count++);
+            } else if (score > heapScores[0]) {
+                heapIds[0] = id;
+                heapScores[0] = score;
+                siftDown(0);
+            }
+        }
+
+        List<VectorMatch> drainDescending() {
+            // Lấy dần phần tử nhỏ nhất ra và đặt từ cuối mảng lên -> mảng kết quả giảm dần
+            VectorMatch[] out = new VectorMatch[count];
+            while (count > 0) {
+                out[count - 1] = new VectorMatch(heapIds[0], heapScores[0]);
+                count--;
+                if (count > 0) {
+                    heapIds[0] = heapIds[count];
+                    heapScores[0] = heapScores[count];
+                    siftDown(0);
+                }
+            }
+            return new ArrayList<>(Arrays.asList(out));
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (heapScores[i] >= heapScores[parent]) break;
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int left = (i << 1) + 1;
+                if (left >= count) break;
+                int smallest = left;
+                int right = left + 1;
+                if (right < count && heapScores[right] < heapScores[left]) smallest = right;
+                if (heapScores[i] <= heapScores[smallest]) break;
+                swap(i, smallest);
+                i = smallest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            long id = heapIds[a];
+            heapIds[a] = heapIds[b];
+            heapIds[b] = id;
+            float s = heapScores[a];
+            heapScores[a] = heapScores[b];
+            heapScores[b] = s;
+        }
+    }
+}
@@ -0,0 +1,667 @@
+/*
+ * @ (#) HnswVectorIndex.java    1.0    24/12/2025
+ * Copyright (c) 2025 IUH. All rights reserved.
+ */
+package fit.kltn_cookinote_backend.vectors;/*
+ * @description:
+ * @author: Bao Thong
+ * @date: 24/12/2025
+ * @version: 1.0
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Chỉ mục láng giềng gần nhất xấp xỉ theo thuật toán HNSW (Hierarchical Navigable Small World).
+ * - Vector được chuẩn hóa L2 khi thêm vào, độ tương đồng = tích vô hướng (cosine).
+ * - m: số liên kết mỗi nút ở các tầng trên (tầng 0 dùng 2*m).
+ * - efConstruction: độ rộng tìm kiếm khi chèn nút (càng lớn đồ thị càng tốt, chèn càng chậm).
+ * - efSearch: độ rộng tìm kiếm khi truy vấn (đánh đổi recall/độ trễ).
+ * - Xóa dùng tombstone: nút vẫn làm cầu nối khi duyệt đồ thị nhưng không bao giờ được trả về.
+ * Khi số tombstone quá lớn, job nền gọi compactIfNeeded(): đồ thị mới được dựng ngoài khóa từ bản chụp các nút
+ * còn sống, các thay đổi xen giữa được ghi lại rồi áp dụng trước khi hoán đổi dưới write lock (truy vấn không bị chặn
+ * trong lúc dựng).
+ * - Lọc quyền riêng tư ngay trong lúc duyệt tầng 0: nút không được phép xem vẫn được đi qua
+ * nhưng không chiếm chỗ trong tập kết quả.
+ */
+public class HnswVectorIndex implements VectorIndex {
+
+    private static final int INITIAL_CAPACITY = 256;
+    private static final int MAX_LEVEL = 16;
+    private static final int COMPACTION_MIN_DELETED = 1000;
+    private static final double COMPACTION_RATIO = 0.3;
+
+    // Chế độ chấp nhận nút vào tập kết quả khi duyệt một tầng
+    private static final int ACCEPT_LIVE = 1;
+    private static final int ACCEPT_VISIBLE = 2;
+
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final int efSearch;
+    private final double levelMultiplier;
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object compactionLock = new Object();
+    // Khác null khi đang dựng đồ thị nén: thay đổi ghi dưới write lock được chép lại để áp dụng lên đồ thị mới
+    private List<Consumer<HnswVectorIndex>> compactionJournal;
+
+    // Key: recipeId, Value: nút còn sống tương ứng
+    private final Map<Long, Integer> nodeOf = new HashMap<>();
+    private final BitSet deleted = new BitSet();
+
+    private int dimension; // 0 = chưa xác định (lấy theo vector đầu tiên)
+    private int count;     // Tổng số nút, kể cả tombstone
+    private int deletedCount;
+    private long[] ids = new long[0];
+    private long[] meta = new long[0];
+    private float[] data = new float[0];
+    // links[node][level] = {số liên kết, n1, n2, ...}
+    private int[][][] links = new int[0][][];
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    public HnswVectorIndex(int m, int efConstruction, int efSearch) {
+        if (m < 2) throw new IllegalArgumentException("m phải >= 2");
+        this.m = m;
+        this.maxM0 = m * 2;
+        this.efConstruction = Math.max(efConstruction, m);
+        this.efSearch = Math.max(efSearch, 1);
+        this.levelMultiplier = 1.0 / Math.log(m);
+    }
+
+    @Override
+    public boolean upsert(long recipeId, long ownerId, boolean isPublic, float[] vector) {
+        if (vector == null || vector.length == 0) return false;
+
+        lock.writeLock().lock();
+        try {
+            if (dimension == 0) {
+                dimension = vector.length;
+            } else if (vector.length != dimension) {
+                return false;
+            }
+
+            if (compactionJournal != null) {
+                float[] copy = vector.clone();
+                compactionJournal.add(idx -> idx.upsert(recipeId, ownerId, isPublic, copy));
+            }
+
+            float[] normalized = new float[dimension];
+            Integer existing = nodeOf.get(recipeId);
+            if (!VectorMath.writeNormalized(vector, normalized, 0)) {
+                // Vector toàn 0 -> không có hướng, loại khỏi chỉ mục
+                if (existing != null) markDeleted(existing);
+                return false;
+            }
+
+            long packed = VectorMath.packMeta(ownerId, isPublic);
+            if (existing != null) {
+                if (sameVector(existing, normalized)) {
+                    meta[existing] = packed;
+                    return true;
+                }
+                // Vector thay đổi -> bỏ nút cũ, chèn nút mới
+                markDeleted(existing);
+            }
+
+            insertNode(recipeId, packed, normalized);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void updateAccess(long recipeId, long ownerId, boolean isPublic) {
+        lock.writeLock().lock();
+        try {
+            if (compactionJournal != null) {
+                compactionJournal.add(idx -> idx.updateAccess(recipeId, ownerId, isPublic));
+            }
+            Integer node = nodeOf.get(recipeId);
+            if (node != null) {
+                meta[node] = VectorMath.packMeta(ownerId, isPublic);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(long recipeId) {
+        lock.writeLock().lock();
+        try {
+            if (compactionJournal != null) {
+                compactionJournal.add(idx -> idx.remove(recipeId));
+            }
+            Integer node = nodeOf.get(recipeId);
+            if (node == null) return false;
+            markDeleted(node);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean contains(long recipeId) {
+        lock.readLock().lock();
+        try {
+            return nodeOf.containsKey(recipeId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return nodeOf.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int dimension() {
+        lock.readLock().lock();
+        try {
+            return dimension;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<VectorMatch> search(float[] query, int k, Long viewerId) {
+        if (query == null || k <= 0) return List.of();
+
+        lock.readLock().lock();
+        try {
+            if (nodeOf.isEmpty() || query.length != dimension) return List.of();
+
+            float[] q = new float[dimension];
+            if (!VectorMath.writeNormalized(query, q, 0)) return List.of();
+
+            // 1. Đi tham lam từ tầng cao nhất xuống tầng 1 để tìm điểm vào tốt
+            int ep = entryPoint;
+            for (int level = maxLevel; level > 0; level--) {
+                ep = greedyClosest(q, ep, level);
+            }
+
+            // 2. Tìm kiếm beam ở tầng 0, chỉ giữ các nút viewer được phép xem
+            NodeHeap results = searchLayer(q, ep, Math.max(efSearch, k), 0,
+                    ACCEPT_VISIBLE, VectorMath.viewerMeta(viewerId));
+
+            FlatVectorIndex.TopK top = new FlatVectorIndex.TopK(Math.min(k, results.size()));
+            while (!results.isEmpty()) {
+                float score = results.peekKey();
+                int node = results.pop();
+                top.offer(ids[node], score);
+            }
+            return top.drainDescending();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<VectorMatch> exactSearch(float[] query, int k, Long viewerId) {
+        if (query == null || k <= 0) return List.of();
+
+        lock.readLock().lock();
+        try {
+            if (nodeOf.isEmpty() || query.length != dimension) return List.of();
+
+            float[] q = new float[dimension];
+            if (!VectorMath.writeNormalized(query, q, 0)) return List.of();
+
+            long viewerMeta = VectorMath.viewerMeta(viewerId);
+            FlatVectorIndex.TopK top = new FlatVectorIndex.TopK(Math.min(k, nodeOf.size()));
+            for (int node = 0; node < count; node++) {
+                if (deleted.get(node) || !VectorMath.isVisible(meta[node], viewerMeta)) continue;
+                top.offer(ids[node], VectorMath.dot(q, 0, data, node * dimension, dimension));
+            }
+            return top.drainDescending();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public float[] vectorOf(long recipeId) {
+        lock.readLock().lock();
+        try {
+            Integer node = nodeOf.get(recipeId);
+            if (node == null) return null;
+            return Arrays.copyOfRange(data, node * dimension, (node + 1) * dimension);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long[] recipeIds() {
+        lock.readLock().lock();
+        try {
+            long[] result = new long[nodeOf.size()];
+            int i = 0;
+            for (Long id : nodeOf.keySet()) {
+                result[i++] = id;
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void forEach(EntryVisitor visitor) {
+        lock.readLock().lock();
+        try {
+            float[] row = new float[dimension];
+            for (int node = 0; node < count; node++) {
+                if (deleted.get(node)) continue;
+                System.arraycopy(data, node * dimension, row, 0, dimension);
+                visitor.visit(ids[node], VectorMath.ownerOf(meta[node]), VectorMath.isPublic(meta[node]), row);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Dựng lại đồ thị từ các nút còn sống khi tombstone chiếm tỉ lệ quá lớn.
+     * Chỉ giữ write lock trong thời gian ngắn: lúc chụp các nút còn sống và lúc áp dụng thay đổi xen giữa rồi hoán đổi;
+     * phần chèn lại toàn bộ nút (tốn thời gian nhất) chạy ngoài khóa của chỉ mục.
+     */
+    @Override
+    public boolean compactIfNeeded() {
+        synchronized (compactionLock) {
+            long[] liveIds;
+            long[] liveMeta;
+            float[] liveData;
+            int dim;
+            lock.writeLock().lock();
+            try {
+                if (deletedCount < COMPACTION_MIN_DELETED || deletedCount < count * COMPACTION_RATIO) return false;
+                dim = dimension;
+                int live = nodeOf.size();
+                liveIds = new long[live];
+                liveMeta = new long[live];
+                liveData = new float[live * dim];
+                int i = 0;
+                for (int node = 0; node < count; node++) {
+                    if (deleted.get(node)) continue;
+                    liveIds[i] = ids[node];
+                    liveMeta[i] = meta[node];
+                    System.arraycopy(data, node * dim, liveData, i * dim, dim);
+                    i++;
+                }
+                compactionJournal = new ArrayList<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            HnswVectorIndex fresh = new HnswVectorIndex(m, efConstruction, efSearch);
+            try {
+                float[] row = new float[dim];
+                for (int i = 0; i < liveIds.length; i++) {
+                    System.arraycopy(liveData, i * dim, row, 0, dim);
+                    fresh.upsert(liveIds[i], VectorMath.ownerOf(liveMeta[i]), VectorMath.isPublic(liveMeta[i]), row);
+                }
+            } catch (RuntimeException e) {
+                lock.writeLock().lock();
+                try {
+                    compactionJournal = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                throw e;
+            }
+
+            lock.writeLock().lock();
+            try {
+                compactionJournal.forEach(op -> op.accept(fresh));
+                compactionJournal = null;
+                adopt(fresh);
+                return true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    // --- Dựng đồ thị ---
+
+    private void insertNode(long recipeId, long packedMeta, float[] normalized) {
+        ensureCapacity(count + 1);
+        int node = count++;
+        ids[node] = recipeId;
+        meta[node] = packedMeta;
+        System.arraycopy(normalized, 0, data, node * dimension, dimension);
+        nodeOf.put(recipeId, node);
+
+        int level = randomLevel();
+        links[node] = new int[level + 1][];
+        for (int l = 0; l <= level; l++) {
+            links[node][l] = new int[maxConnections(l) + 1];
+        }
+
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return;
+        }
+
+        int ep = entryPoint;
+        for (int l = maxLevel; l > level; l--) {
+            ep = greedyClosest(normalized, ep, l);
+        }
+
+        int[] candidates = new int[efConstruction];
+        float[] scores = new float[efConstruction];
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            NodeHeap found = searchLayer(normalized, ep, efConstruction, l, ACCEPT_LIVE, -1L);
+            int n = found.drainDescending(candidates, scores);
+            if (n == 0) continue;
+
+            int[] selected = selectNeighbors(candidates, scores, n, m);
+            int[] own = links[node][l];
+            own[0] = selected.length;
+            System.arraycopy(selected, 0, own, 1, selected.length);
+            for (int neighbor : selected) {
+                addLink(neighbor, node, l);
+            }
+            ep = candidates[0];
+        }
+
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = node;
+        }
+    }
+
+    /**
+     * Thêm liên kết from -> to. Nếu danh sách đầy, chọn lại bằng heuristic để giữ đồ thị đa dạng hướng.
+     */
+    private void addLink(int from, int to, int level) {
+        int[] list = links[from][level];
+        int n = list[0];
+        int max = maxConnections(level);
+        if (n < max) {
+            list[n + 1] = to;
+            list[0] = n + 1;
+            return;
+        }
+
+        int[] candidates = new int[n + 1];
+        float[] scores = new float[n + 1];
+        int base = from * dimension;
+        for (int i = 0; i < n; i++) {
+            candidates[i] = list[i + 1];
+            scores[i] = VectorMath.dot(data, base, data, list[i + 1] * dimension, dimension);
+        }
+        candidates[n] = to;
+        scores[n] = VectorMath.dot(data, base, data, to * dimension, dimension);
+        sortDescending(candidates, scores, n + 1);
+
+        int[] selected = selectNeighbors(candidates, scores, n + 1, max);
+        list[0] = selected.length;
+        System.arraycopy(selected, 0, list, 1, selected.length);
+    }
+
+    /**
+     * Heuristic chọn láng giềng của HNSW: chỉ giữ ứng viên gần điểm gốc hơn so với mọi láng giềng đã chọn.
+     * Ứng viên phải được sắp xếp theo điểm giảm dần.
+     */
+    private int[] selectNeighbors(int[] candidates, float[] scores, int n, int max) {
+        int[] selected = new int[Math.min(n, max)];
+        int count = 0;
+        for (int i = 0; i < n && count < selected.length; i++) {
+            int c = candidates[i];
+            int cOffset = c * dimension;
+            boolean keep = true;
+            for (int j = 0; j < count; j++) {
+                if (VectorMath.dot(data, cOffset, data, selected[j] * dimension, dimension) > scores[i]) {
+                    keep = false;
+                    break;
+                }
+            }
+            if (keep) selected[count++] = c;
+        }
+        return count == selected.length ? selected : Arrays.copyOf(selected, count);
+    }
+
+    // --- Duyệt đồ thị ---
+
+    private int greedyClosest(float[] q, int ep, int level) {
+        int current = ep;
+        float best = VectorMath.dot(q, 0, data, current * dimension, dimension);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            int[] list = links[current][level];
+            for (int i = 1; i <= list[0]; i++) {
+                int candidate = list[i];
+                float score = VectorMath.dot(q, 0, data, candidate * dimension, dimension);
+                if (score > best) {
+                    best = score;
+                    current = candidate;
+                    changed = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Tìm kiếm beam trên một tầng.
+     *
+     * @return Min-heap (gốc là điểm thấp nhất) chứa tối đa ef nút thỏa điều kiện accept.
+     */
+    private NodeHeap searchLayer(float[] q, int ep, int ef, int level, int accept, long viewerMeta) {
+        BitSet visited = new BitSet(count);
+        NodeHeap candidates = new NodeHeap(ef); // Lưu -score để lấy nút tốt nhất trước
+        NodeHeap results = new NodeHeap(ef + 1);
+
+        float epScore = VectorMath.dot(q, 0, data, ep * dimension, dimension);
+        visited.set(ep);
+        candidates.push(ep, -epScore);
+        if (accepts(ep, accept, viewerMeta)) results.push(ep, epScore);
+
+        while (!candidates.isEmpty()) {
+            float candidateScore = -candidates.peekKey();
+            if (results.size() >= ef && candidateScore < results.peekKey()) break;
+            int current = candidates.pop();
+
+            int[] list = links[current][level];
+            for (int i = 1; i <= list[0]; i++) {
+                int neighbor = list[i];
+                if (visited.get(neighbor)) continue;
+                visited.set(neighbor);
+
+                float score = VectorMath.dot(q, 0, data, neighbor * dimension, dimension);
+                if (results.size() < ef || score > results.peekKey()) {
+                    candidates.push(neighbor, -score);
+                    if (accepts(neighbor, accept, viewerMeta)) {
+                        results.push(neighbor, score);
+                        if (results.size() > ef) results.pop();
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    private boolean accepts(int node, int accept, long viewerMeta) {
+        if (deleted.get(node)) return false;
+        return accept == ACCEPT_LIVE || VectorMath.isVisible(meta[node], viewerMeta);
+    }
+
+    // --- Helpers ---
+
+    private int maxConnections(int level) {
+        return level == 0 ? maxM0 : m;
+    }
+
+    private int randomLevel() {
+        double r = 1.0 - random.nextDouble(); // (0, 1]
+        return Math.min((int) (-Math.log(r) * levelMultiplier), MAX_LEVEL);
+    }
+
+    private boolean sameVector(int node, float[] normalized) {
+        int offset = node * dimension;
+        for (int i = 0; i < dimension; i++) {
+            if (data[offset + i] != normalized[i]) return false;
+        }
+        return true;
+    }
+
+    private void markDeleted(int node) {
+        if (deleted.get(node)) return;
+        deleted.set(node);
+        nodeOf.remove(ids[node]);
+        deletedCount++;
+    }
+
+    /**
+     * Nhận toàn bộ trạng thái của đồ thị vừa dựng (gọi dưới write lock của chỉ mục này).
+     */
+    private void adopt(HnswVectorIndex fresh) {
+        nodeOf.clear();
+        nodeOf.putAll(fresh.nodeOf);
+        deleted.clear();
+        deleted.or(fresh.deleted);
+        if (fresh.dimension != 0) dimension = fresh.dimension;
+        count = fresh.count;
+        deletedCount = fresh.deletedCount;
+        ids = fresh.ids;
+        meta = fresh.meta;
+        data = fresh.data;
+        links = fresh.links;
+        entryPoint = fresh.entryPoint;
+        maxLevel = fresh.maxLevel;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= ids.length) return;
+        int newCapacity = Math.max(INITIAL_CAPACITY, ids.length);
+        while (newCapacity < required) {
+            newCapacity = newCapacity << 1;
+        }
+        ids = Arrays.copyOf(ids, newCapacity);
+        meta = Arrays.copyOf(meta, newCapacity);
+        data = Arrays.copyOf(data, newCapacity * dimension);
+        links = Arrays.copyOf(links, newCapacity);
+    }
+
+    private static void sortDescending(int[] nodes, float[] scores, int n) {
+        // Insertion sort: danh sách láng giềng rất ngắn (<= 2*m + 1)
+        for (int i = 1; i < n; i++) {
+            int node = nodes[i];
+            float score = scores[i];
+            int j = i - 1;
+            while (j >= 0 && scores[j] < score) {
+                nodes[j + 1] = nodes[j];
+                scores[j + 1] = scores[j];
+                j--;
+            }
+            nodes[j + 1] = node;
+            scores[j + 1] = score;
+        }
+    }
+
+    /**
+     * Min-heap tự giãn trên hai mảng nguyên thủy (nút, khóa).
+     */
+    static final class NodeHeap {
+        private int[] nodes;
+        private float[] keys;
+        private int size;
+
+        NodeHeap(int initialCapacity) {
+            int capacity = Math.max(initialCapacity, 4);
+            this.nodes = new int[capacity];
+            this.keys = new float[capacity];
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        float peekKey() {
+            return keys[0];
+        }
+
+        void push(int node, float key) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size << 1);
+                keys = Arrays.copyOf(keys, size << 1);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (keys[parent] <= key) break;
+                nodes[i] = nodes[parent];
+                keys[i] = keys[parent];
+                i = parent;
+            }
+            nodes[i] = node;
+            keys[i] = key;
+        }
+
+        int pop() {
+            int top = nodes[0];
+            size--;
+            if (size > 0) {
+                int node = nodes[size];
+                float key = keys[size];
+                int i = 0;
+                while (true) {
+                    int child = (i << 1) + 1;
+                    if (child >= size) break;
+                    if (child + 1 < size && keys[child + 1] < keys[child]) child++;
+                    if (key <= keys[child]) break;
+                    nodes[i] = nodes[child];
+                    keys[i] = keys[child];
+                    i = child;
+                }
+                nodes[i] = node;
+                keys[i] = key;
+            }
+            return top;
+        }
+
+        /**
+         * Lấy hết phần tử ra theo khóa giảm dần.
+         *
+         * @return Số phần tử đã ghi vào outNodes/outKeys
+         */
+        int drainDescending(int[] outNodes, float[] outKeys) {
+            int n = Math.min(size, outNodes.length);
+            // Bỏ bớt các phần tử nhỏ nhất nếu mảng đích không đủ chỗ
+            while (size > n) pop();
+            for (int i = n - 1; i >= 0; i--) {
+                outKeys[i] = peekKey();
+                outNodes[i] = pop();
+            }
+            return n;
+        }
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * @ (#) MappedFlatVectorIndex.java    1.0    26/12/2025
+ * Copyright (c) 2025 IUH. All rights reserved.
+ */
+package fit.kltn_cookinote_backend.vectors;/*
+ * @description:
+ * @author: Bao Thong
+ * @date: 26/12/2025
+ * @version: 1.0
+ */
+
+import java.nio.FloatBuffer;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Chỉ mục phẳng (tìm kiếm chính xác) gồm hai phần:
+ * - Phần nền: vector đọc thẳng từ snapshot đã mmap (ngoài Java heap), chỉ đọc.
+ * - Phần delta: FlatVectorIndex trên heap cho các vector thêm/sửa sau khi mở snapshot.
+ * Vector nền bị sửa hoặc xóa được đánh dấu trong bitset, bản mới (nếu có) nằm ở delta.
+ */
+public class MappedFlatVectorIndex implements VectorIndex {
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final VectorSnapshot snapshot;
+    private final FloatBuffer vectors;
+    private final int dimension;
+    private final int baseCount;
+    private final long[] baseIds;
+    private final long[] baseMeta;
+    private final Map<Long, Integer> baseRowOf;
+    private final BitSet removed = new BitSet();
+    private int removedCount;
+
+    private final FlatVectorIndex delta;
+
+    public MappedFlatVectorIndex(VectorSnapshot snapshot) {
+        this.snapshot = snapshot;
+        this.vectors = snapshot.floatView();
+        this.dimension = snapshot.dimension();
+        this.baseCount = snapshot.count();
+        this.baseIds = new long[baseCount];
+        this.baseMeta = new long[baseCount];
+        this.baseRowOf = new HashMap<>(Math.max(16, (int) (baseCount / 0.75f) + 1));
+        for (int row = 0; row < baseCount; row++) {
+            baseIds[row] = snapshot.recipeIdAt(row);
+            baseMeta[row] = snapshot.metaAt(row);
+            baseRowOf.put(baseIds[row], row);
+        }
+        this.delta = new FlatVectorIndex(dimension);
+    }
+
+    public long watermarkEpochMillis() {
+        return snapshot.watermarkEpochMillis();
+    }
+
+    @Override
+    public boolean upsert(long recipeId, long ownerId, boolean isPublic, float[] vector) {
+        if (vector == null || vector.length != dimension) return false;
+
+        lock.writeLock().lock();
+        try {
+            removeBase(recipeId);
+            return delta.upsert(recipeId, ownerId, isPublic, vector);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void updateAccess(long recipeId, long ownerId, boolean isPublic) {
+        lock.writeLock().lock();
+        try {
+            Integer row = baseRowOf.get(recipeId);
+            if (row != null && !removed.get(row)) {
+                baseMeta[row] = VectorMath.packMeta(ownerId, isPublic);
+            } else {
+                delta.updateAccess(recipeId, ownerId, isPublic);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(long recipeId) {
+        lock.writeLock().lock();
+        try {
+            boolean removedFromBase = removeBase(recipeId);
+            return delta.remove(recipeId) || removedFromBase;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean contains(long recipeId) {
+        lock.readLock().lock();
+        try {
+            Integer row = baseRowOf.get(recipeId);
+            return (row != null && !removed.get(row)) || delta.contains(recipeId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return baseCount - removedCount + delta.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    @Override
+    public List<VectorMatch> search(float[] query, int k, Long viewerId) {
+        if (query == null || k <= 0 || query.length != dimension) return List.of();
+
+        lock.readLock().lock();
+        try {
+            float[] q = new float[dimension];
+            if (!VectorMath.writeNormalized(query, q, 0)) return List.of();
+
+            long viewerMeta = VectorMath.viewerMeta(viewerId);
+            FlatVectorIndex.TopK top = new FlatVectorIndex.TopK(k);
+
+            // 1. Quét phần nền: chép từng dòng từ vùng mmap vào bộ đệm rồi tính tích vô hướng
+            float[] row = new float[dimension];
+            for (int r = 0; r < baseCount; r++) {
+                if (removed.get(r) || !VectorMath.isVisible(baseMeta[r], viewerMeta)) continue;
+                vectors.get(snapshot.vectorFloatIndex(r), row, 0, dimension);
+                top.offer(baseIds[r], VectorMath.dot(q, 0, row, 0, dimension));
+            }
+
+            // 2. Gộp kết quả của phần delta
+            for (VectorMatch match : delta.search(q, k, viewerId)) {
+                top.offer(match.recipeId(), match.score());
+            }
+            return top.drainDescending();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<VectorMatch> exactSearch(float[] query, int k, Long viewerId) {
+        return search(query, k, viewerId);
+    }
+
+    @Override
+    public float[] vectorOf(long recipeId) {
+        lock.readLock().lock();
+        try {
+            Integer row = baseRowOf.get(recipeId);
+            if (row != null && !removed.get(row)) {
+                float[] result = new float[dimension];
+                vectors.get(snapshot.vectorFloatIndex(row), result, 0, dimension);
+                return result;
+            }
+            return delta.vectorOf(recipeId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long[] recipeIds() {
+        lock.readLock().lock();
+        try {
+            long[] deltaIds = delta.recipeIds();
+            long[] result = new long[baseCount - removedCount + deltaIds.length];
+            int n = 0;
+            for (int r = 0; r < baseCount; r++) {
+                if (!removed.get(r)) result[n++] = baseIds[r];
+            }
+            System.arraycopy(deltaIds, 0, result, n, deltaIds.length);
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void forEach(EntryVisitor visitor) {
+        lock.readLock().lock();
+        try {
+            float[] row = new float[dimension];
+            for (int r = 0; r < baseCount; r++) {
+                if (removed.get(r)) continue;
+                vectors.get(snapshot.vectorFloatIndex(r), row, 0, dimension);
+                visitor.visit(baseIds[r], VectorMath.ownerOf(baseMeta[r]), VectorMath.isPublic(baseMeta[r]), row);
+            }
+            delta.forEach(visitor);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // --- Helpers ---
+
+    private boolean removeBase(long recipeId) {
+        Integer row = baseRowOf.get(recipeId);
+        if (row == null || removed.get(row)) return false;
+        removed.set(row);
+        removedCount++;
+        return true;
+    }
+}
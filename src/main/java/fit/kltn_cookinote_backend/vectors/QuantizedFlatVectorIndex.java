@@ -0,0 +1,362 @@
+/*
+ * @ (#) QuantizedFlatVectorIndex.java    1.0    27/12/2025
+ * Copyright (c) 2025 IUH. All rights reserved.
+ */
+package fit.kltn_cookinote_backend.vectors;/*
+ * @description:
+ * @author: Bao Thong
+ * @date: 27/12/2025
+ * @version: 1.0
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Chỉ mục phẳng lượng tử hóa int8 với bước xếp hạng lại chính xác.
+ * - Mỗi vector (đã chuẩn hóa) được lượng tử hóa riêng: v[i] ~= offset + scale * (code[i] + 128),
+ * với offset = min, scale = (max - min) / 255.
+ * - Khi tìm kiếm chỉ quét mảng byte (1 byte/chiều thay vì 4), lấy k * rerankFactor ứng viên,
+ * rồi tính lại điểm chính xác bằng vector float32 gốc cho riêng các ứng viên đó.
+ * - Tích vô hướng với vector lượng tử: dot(q, v) = offset * sum(q) + scale * (dot(q, code) + 128 * sum(q)).
+ * Query cũng được lượng tử đối xứng (q[i] ~= qScale * qCode[i]) nên vòng lặp chính chỉ là
+ * tích byte * byte cộng dồn số nguyên (JIT vector hóa tốt hơn nhiều so với float * byte).
+ */
+public class QuantizedFlatVectorIndex implements VectorIndex {
+
+    private static final int INITIAL_CAPACITY = 256;
+    private static final float CODE_LEVELS = 255f;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final int rerankFactor;
+
+    // Key: recipeId, Value: vị trí dòng
+    private final Map<Long, Integer> rowOf = new HashMap<>();
+
+    private int dimension; // 0 = chưa xác định (lấy theo vector đầu tiên)
+    private int size;
+    private long[] ids = new long[0];
+    private long[] meta = new long[0];
+    private byte[] codes = new byte[0];      // Vector lượng tử, dùng khi quét
+    private float[] scales = new float[0];
+    private float[] offsets = new float[0];
+    private float[] data = new float[0];     // Vector float32 đã chuẩn hóa, chỉ dùng khi xếp hạng lại
+
+    public QuantizedFlatVectorIndex(int rerankFactor) {
+        this.rerankFactor = Math.max(rerankFactor, 1);
+    }
+
+    @Override
+    public boolean upsert(long recipeId, long ownerId, boolean isPublic, float[] vector) {
+        if (vector == null || vector.length == 0) return false;
+
+        lock.writeLock().lock();
+        try {
+            if (dimension == 0) {
+                dimension = vector.length;
+            } else if (vector.length != dimension) {
+                return false;
+            }
+
+            Integer existing = rowOf.get(recipeId);
+            int row;
+            if (existing != null) {
+                row = existing;
+            } else {
+                ensureCapacity(size + 1);
+                row = size++;
+                ids[row] = recipeId;
+                rowOf.put(recipeId, row);
+            }
+
+            if (!VectorMath.writeNormalized(vector, data, row * dimension)) {
+                // Vector toàn 0 -> không có hướng, loại khỏi chỉ mục
+                removeRow(row);
+                return false;
+            }
+            quantizeRow(row);
+            meta[row] = VectorMath.packMeta(ownerId, isPublic);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void updateAccess(long recipeId, long ownerId, boolean isPublic) {
+        lock.writeLock().lock();
+        try {
+            Integer row = rowOf.get(recipeId);
+            if (row != null) {
+                meta[row] = VectorMath.packMeta(ownerId, isPublic);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(long recipeId) {
+        lock.writeLock().lock();
+        try {
+            Integer row = rowOf.get(recipeId);
+            if (row == null) return false;
+            removeRow(row);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean contains(long recipeId) {
+        lock.readLock().lock();
+        try {
+            return rowOf.containsKey(recipeId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int dimension() {
+        lock.readLock().lock();
+        try {
+            return dimension;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Quét int8 lấy k * rerankFactor ứng viên rồi xếp hạng lại bằng điểm chính xác.
+     */
+    @Override
+    public List<VectorMatch> search(float[] query, int k, Long viewerId) {
+        if (query == null || k <= 0) return List.of();
+
+        lock.readLock().lock();
+        try {
+            if (size == 0 || query.length != dimension) return List.of();
+
+            float[] q = new float[dimension];
+            if (!VectorMath.writeNormalized(query, q, 0)) return List.of();
+
+            int[] candidates = scanQuantized(q, Math.min(k * rerankFactor, size), viewerId);
+
+            FlatVectorIndex.TopK top = new FlatVectorIndex.TopK(Math.min(k, candidates.length));
+            for (int row : candidates) {
+                top.offer(ids[row], VectorMath.dot(q, 0, data, row * dimension, dimension));
+            }
+            return top.drainDescending();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Chỉ quét int8, không xếp hạng lại (điểm trả về là điểm xấp xỉ). Dùng để đo recall của riêng bước lượng tử.
+     */
+    public List<VectorMatch> searchQuantizedOnly(float[] query, int k, Long viewerId) {
+        if (query == null || k <= 0) return List.of();
+
+        lock.readLock().lock();
+        try {
+            if (size == 0 || query.length != dimension) return List.of();
+
+            float[] q = new float[dimension];
+            if (!VectorMath.writeNormalized(query, q, 0)) return List.of();
+
+            QuantizedQuery qq = new QuantizedQuery(q);
+            List<VectorMatch> result = new ArrayList<>();
+            for (int row : scanQuantized(q, Math.min(k, size), viewerId)) {
+                result.add(new VectorMatch(ids[row], quantizedScore(qq, row)));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<VectorMatch> exactSearch(float[] query, int k, Long viewerId) {
+        if (query == null || k <= 0) return List.of();
+
+        lock.readLock().lock();
+        try {
+            if (size == 0 || query.length != dimension) return List.of();
+
+            float[] q = new float[dimension];
+            if (!VectorMath.writeNormalized(query, q, 0)) return List.of();
+
+            long viewerMeta = VectorMath.viewerMeta(viewerId);
+            FlatVectorIndex.TopK top = new FlatVectorIndex.TopK(Math.min(k, size));
+            for (int row = 0; row < size; row++) {
+                if (!VectorMath.isVisible(meta[row], viewerMeta)) continue;
+                top.offer(ids[row], VectorMath.dot(q, 0, data, row * dimension, dimension));
+            }
+            return top.drainDescending();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public float[] vectorOf(long recipeId) {
+        lock.readLock().lock();
+        try {
+            Integer row = rowOf.get(recipeId);
+            if (row == null) return null;
+            return Arrays.copyOfRange(data, row * dimension, (row + 1) * dimension);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long[] recipeIds() {
+        lock.readLock().lock();
+        try {
+            return Arrays.copyOf(ids, size);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void forEach(EntryVisitor visitor) {
+        lock.readLock().lock();
+        try {
+            float[] row = new float[dimension];
+            for (int r = 0; r < size; r++) {
+                System.arraycopy(data, r * dimension, row, 0, dimension);
+                visitor.visit(ids[r], VectorMath.ownerOf(meta[r]), VectorMath.isPublic(meta[r]), row);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // --- Helpers ---
+
+    /**
+     * Quét toàn bộ vector lượng tử, trả về các dòng có điểm xấp xỉ cao nhất (không theo thứ tự).
+     */
+    private int[] scanQuantized(float[] q, int limit, Long viewerId) {
+        long viewerMeta = VectorMath.viewerMeta(viewerId);
+        QuantizedQuery qq = new QuantizedQuery(q);
+        FlatVectorIndex.TopK top = new FlatVectorIndex.TopK(limit);
+        for (int row = 0; row < size; row++) {
+            if (!VectorMath.isVisible(meta[row], viewerMeta)) continue;
+            // Dùng số dòng làm "id" tạm trong heap top-k
+            top.offer(row, quantizedScore(qq, row));
+        }
+        List<VectorMatch> best = top.drainDescending();
+        int[] rows = new int[best.size()];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = (int) best.get(i).recipeId();
+        }
+        return rows;
+    }
+
+    private float quantizedScore(QuantizedQuery qq, int row) {
+        final byte[] c = codes;
+        final byte[] qc = qq.codes;
+        final int offset = row * dimension;
+        int dot = 0;
+        for (int i = 0; i < dimension; i++) {
+            dot += qc[i] * c[offset + i];
+        }
+        return offsets[row] * qq.sum + scales[row] * (qq.scale * dot + 128f * qq.sum);
+    }
+
+    private void quantizeRow(int row) {
+        int offset = row * dimension;
+        float min = Float.MAX_VALUE;
+        float max = -Float.MAX_VALUE;
+        for (int i = 0; i < dimension; i++) {
+            float v = data[offset + i];
+            if (v < min) min = v;
+            if (v > max) max = v;
+        }
+        float scale = (max - min) / CODE_LEVELS;
+        if (scale == 0f) scale = 1f; // Mọi thành phần bằng nhau -> code luôn 0
+
+        for (int i = 0; i < dimension; i++) {
+            int code = Math.round((data[offset + i] - min) / scale) - 128;
+            codes[offset + i] = (byte) Math.max(-128, Math.min(127, code));
+        }
+        scales[row] = scale;
+        offsets[row] = min;
+    }
+
+    /**
+     * Xóa dòng bằng cách chuyển dòng cuối cùng vào vị trí trống (swap-remove).
+     */
+    private void removeRow(int row) {
+        int last = size - 1;
+        rowOf.remove(ids[row]);
+        if (row != last) {
+            ids[row] = ids[last];
+            meta[row] = meta[last];
+            scales[row] = scales[last];
+            offsets[row] = offsets[last];
+            System.arraycopy(codes, last * dimension, codes, row * dimension, dimension);
+            System.arraycopy(data, last * dimension, data, row * dimension, dimension);
+            rowOf.put(ids[row], row);
+        }
+        size--;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= ids.length) return;
+        int newCapacity = Math.max(INITIAL_CAPACITY, ids.length);
+        while (newCapacity < required) {
+            newCapacity = newCapacity << 1;
+        }
+        ids = Arrays.copyOf(ids, newCapacity);
+        meta = Arrays.copyOf(meta, newCapacity);
+        scales = Arrays.copyOf(scales, newCapacity);
+        offsets = Arrays.copyOf(offsets, newCapacity);
+        codes = Arrays.copyOf(codes, newCapacity * dimension);
+        data = Arrays.copyOf(data, newCapacity * dimension);
+    }
+
+    /**
+     * Query lượng tử đối xứng: q[i] ~= scale * codes[i], codes trong [-127, 127].
+     */
+    private static final class QuantizedQuery {
+        final byte[] codes;
+        final float scale;
+        final float sum;
+
+        QuantizedQuery(float[] q) {
+            float maxAbs = 0f;
+            float total = 0f;
+            for (float v : q) {
+                maxAbs = Math.max(maxAbs, Math.abs(v));
+                total += v;
+            }
+            this.sum = total;
+            this.scale = maxAbs == 0f ? 1f : maxAbs / 127f;
+            this.codes = new byte[q.length];
+            for (int i = 0; i < q.length; i++) {
+                codes[i] = (byte) Math.round(q[i] / scale);
+            }
+        }
+    }
+}
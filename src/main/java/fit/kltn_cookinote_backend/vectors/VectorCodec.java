@@ -0,0 +1,109 @@
+/*
+ * @ (#) VectorCodec.java    1.0    22/12/2025
+ * Copyright (c) 2025 IUH. All rights reserved.
+ */
+package fit.kltn_cookinote_backend.vectors;/*
+ * @description:
+ * @author: Bao Thong
+ * @date: 22/12/2025
+ * @version: 1.0
+ */
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Mã hóa/giải mã embedding dạng nhị phân float32 little-endian.
+ * Định dạng (header 8 byte + dữ liệu):
+ * [0]    phiên bản định dạng (FORMAT_VERSION)
+ * [1]    kiểu phần tử (TYPE_FLOAT32)
+ * [2..3] dự phòng (0)
+ * [4..7] số chiều (int32 LE)
+ * [8..]  dimension * 4 byte float32 LE
+ */
+public final class VectorCodec {
+
+    public static final byte FORMAT_VERSION = 1;
+    public static final byte TYPE_FLOAT32 = 1;
+    public static final int HEADER_BYTES = 8;
+
+    private VectorCodec() {
+    }
+
+    public static byte[] encode(float[] vector) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + vector.length * Float.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(FORMAT_VERSION);
+        buffer.put(TYPE_FLOAT32);
+        buffer.putShort((short) 0);
+        buffer.putInt(vector.length);
+        buffer.asFloatBuffer().put(vector);
+        return buffer.array();
+    }
+
+    public static byte[] encode(List<Double> vector) {
+        float[] values = new float[vector.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = vector.get(i).floatValue();
+        }
+        return encode(values);
+    }
+
+    /**
+     * Giải mã thẳng vào float[] (không qua chuỗi, không boxing).
+     *
+     * @return Mảng rỗng nếu dữ liệu null hoặc không đúng định dạng.
+     */
+    public static float[] decode(byte[] bytes) {
+        if (bytes == null || bytes.length < HEADER_BYTES) return new float[0];
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        byte version = buffer.get();
+        byte type = buffer.get();
+        buffer.getShort();
+        int dimension = buffer.getInt();
+
+        if (version != FORMAT_VERSION || type != TYPE_FLOAT32 || dimension < 0
+                || bytes.length != HEADER_BYTES + (long) dimension * Float.BYTES) {
+            return new float[0];
+        }
+
+        float[] values = new float[dimension];
+        buffer.asFloatBuffer().get(values);
+        return values;
+    }
+
+    /**
+     * Parse chuỗi JSON "[0.123, -0.456, ...]" (định dạng cũ) thẳng vào float[].
+     * Chỉ dùng cho dữ liệu chưa được chuyển đổi sang nhị phân.
+     */
+    public static float[] fromJson(String json) {
+        if (json == null) return new float[0];
+
+        int start = json.indexOf('[') + 1;
+        int end = json.lastIndexOf(']');
+        if (start <= 0 || end <= start) return new float[0];
+
+        int count = 1;
+        for (int i = start; i < end; i++) {
+            if (json.charAt(i) == ',') count++;
+        }
+
+        float[] values = new float[count];
+        int n = 0;
+        try {
+            int tokenStart = start;
+            for (int i = start; i <= end; i++) {
+                if (i == end || json.charAt(i) == ',') {
+                    values[n++] = Float.parseFloat(json.substring(tokenStart, i).trim());
+                    tokenStart = i + 1;
+                }
+            }
+        } catch (NumberFormatException e) {
+            return new float[0];
+        }
+        return n == count ? values : Arrays.copyOf(values, n);
+    }
+}
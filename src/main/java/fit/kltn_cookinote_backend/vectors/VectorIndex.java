@@ -0,0 +1,84 @@
+/*
+ * @ (#) VectorIndex.java    1.0    24/12/2025
+ * Copyright (c) 2025 IUH. All rights reserved.
+ */
+package fit.kltn_cookinote_backend.vectors;/*
+ * @description:
+ * @author: Bao Thong
+ * @date: 24/12/2025
+ * @version: 1.0
+ */
+
+import java.util.List;
+
+/**
+ * Chỉ mục vector trong bộ nhớ phục vụ tìm kiếm láng giềng gần nhất (cosine) có lọc quyền riêng tư.
+ * Một recipe được trả về khi nó PUBLIC hoặc viewer chính là chủ sở hữu.
+ */
+public interface VectorIndex {
+
+    /**
+     * Thêm mới hoặc ghi đè vector của một công thức.
+     *
+     * @return false nếu vector rỗng, toàn 0 hoặc sai số chiều so với chỉ mục.
+     */
+    boolean upsert(long recipeId, long ownerId, boolean isPublic, float[] vector);
+
+    /**
+     * Cập nhật owner/quyền riêng tư mà không đụng tới vector.
+     */
+    void updateAccess(long recipeId, long ownerId, boolean isPublic);
+
+    boolean remove(long recipeId);
+
+    boolean contains(long recipeId);
+
+    int size();
+
+    int dimension();
+
+    /**
+     * Tìm k công thức gần nhất với query mà viewer được phép thấy.
+     *
+     * @param query    Vector truy vấn (không cần chuẩn hóa trước)
+     * @param k        Số kết quả tối đa
+     * @param viewerId ID người xem (null = khách)
+     * @return Danh sách kết quả theo điểm cosine giảm dần
+     */
+    List<VectorMatch> search(float[] query, int k, Long viewerId);
+
+    /**
+     * Tìm kiếm chính xác (quét toàn bộ). Dùng làm chuẩn để đo recall của chỉ mục xấp xỉ.
+     */
+    List<VectorMatch> exactSearch(float[] query, int k, Long viewerId);
+
+    /**
+     * @return Bản sao vector đã chuẩn hóa của recipe, hoặc null nếu không có trong chỉ mục.
+     */
+    float[] vectorOf(long recipeId);
+
+    /**
+     * @return ID của tất cả recipe đang có trong chỉ mục.
+     */
+    long[] recipeIds();
+
+    /**
+     * Duyệt toàn bộ phần tử trong chỉ mục (dùng để ghi snapshot hoặc dựng chỉ mục khác).
+     * Mảng vector truyền cho visitor là bộ đệm dùng lại, đã chuẩn hóa; không được giữ tham chiếu.
+     */
+    void forEach(EntryVisitor visitor);
+
+    /**
+     * Dọn phần tử đã xóa nếu chỉ mục cần (gọi từ job nền, không gọi trên luồng request).
+     *
+     * @return true nếu đã dọn
+     */
+    default boolean compactIfNeeded() {
+        return false;
+    }
+
+    @FunctionalInterface
+    interface EntryVisitor {
+        void visit(long recipeId, long ownerId, boolean isPublic, float[] vector);
+    }
+}
@@ -0,0 +1,16 @@
+/*
+ * @ (#) VectorMatch.java    1.0    22/12/2025
+ * Copyright (c) 2025 IUH. All rights reserved.
+ */
+package fit.kltn_cookinote_backend.vectors;/*
+ * @description:
+ * @author: Bao Thong
+ * @date: 22/12/2025
+ * @version: 1.0
+ */
+
+/**
+ * Một kết quả tìm kiếm vector: ID công thức và điểm cosine.
+ */
+public record VectorMatch(long recipeId, float score) {
+}
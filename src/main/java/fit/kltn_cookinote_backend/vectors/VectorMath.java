@@ -0,0 +1,72 @@
+/*
+ * @ (#) VectorMath.java    1.0    24/12/2025
+ * Copyright (c) 2025 IUH. All rights reserved.
+ */
+package fit.kltn_cookinote_backend.vectors;/*
+ * @description:
+ * @author: Bao Thong
+ * @date: 24/12/2025
+ * @version: 1.0
+ */
+
+/**
+ * Các phép toán dùng chung cho những cài đặt VectorIndex.
+ */
+final class VectorMath {
+
+    private VectorMath() {
+    }
+
+    /**
+     * Đóng gói owner và quyền riêng tư vào một long: (ownerId << 1) | isPublic.
+     */
+    static long packMeta(long ownerId, boolean isPublic) {
+        return (ownerId << 1) | (isPublic ? 1L : 0L);
+    }
+
+    static long ownerOf(long meta) {
+        return meta >> 1;
+    }
+
+    static boolean isPublic(long meta) {
+        return (meta & 1L) == 1L;
+    }
+
+    /**
+     * @param viewerMeta packMeta(viewerId, false), hoặc -1 nếu là khách
+     */
+    static boolean isVisible(long meta, long viewerMeta) {
+        // Bit cuối = 1 -> PUBLIC; ngược lại phải đúng chủ sở hữu
+        return (meta & 1L) == 1L || meta == viewerMeta;
+    }
+
+    static long viewerMeta(Long viewerId) {
+        return viewerId != null ? packMeta(viewerId, false) : -1L;
+    }
+
+    /**
+     * Ghi vector đã chuẩn hóa L2 vào dest tại offset.
+     *
+     * @return false nếu vector có độ dài 0.
+     */
+    static boolean writeNormalized(float[] src, float[] dest, int offset) {
+        double norm = 0.0;
+        for (float v : src) {
+            norm += (double) v * v;
+        }
+        if (norm == 0.0 || Double.isNaN(norm)) return false;
+        float inv = (float) (1.0 / Math.sqrt(norm));
+        for (int i = 0; i < src.length; i++) {
+            dest[offset + i] = src[i] * inv;
+        }
+        return true;
+    }
+
+    static float dot(float[] a, int aOffset, float[] b, int bOffset, int dimension) {
+        float sum = 0f;
+        for (int i = 0; i < dimension; i++) {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * @ (#) VectorSnapshot.java    1.0    26/12/2025
+ * Copyright (c) 2025 IUH. All rights reserved.
+ */
+package fit.kltn_cookinote_backend.vectors;/*
+ * @description:
+ * @author: Bao Thong
+ * @date: 26/12/2025
+ * @version: 1.0
+ */
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * File snapshot của chỉ mục vector, được mở bằng FileChannel.map (dữ liệu nằm ngoài Java heap).
+ * Định dạng (little-endian):
+ * [0..3]   MAGIC "CNVS"
+ * [4..7]   phiên bản định dạng
+ * [8..11]  số chiều
+ * [12..15] số bản ghi
+ * [16..23] watermark (epoch millis) - mọi thay đổi embedding trước mốc này đã có trong snapshot
+ * [24..31] dự phòng
+ * [32..]   count bản ghi, mỗi bản ghi: recipeId (long), meta (long), dimension float32 đã chuẩn hóa
+ * Một mapping tối đa 2GB (~700 nghìn vector 768 chiều).
+ */
+public final class VectorSnapshot {
+
+    static final int MAGIC = 0x53564E43; // "CNVS" khi đọc little-endian
+    static final int FORMAT_VERSION = 1;
+    static final int HEADER_BYTES = 32;
+    private static final int RECORD_HEADER_BYTES = 2 * Long.BYTES;
+    private static final int WRITE_BUFFER_BYTES = 1 << 20;
+
+    private final MappedByteBuffer buffer;
+    private final int dimension;
+    private final int count;
+    private final long watermarkEpochMillis;
+
+    private VectorSnapshot(MappedByteBuffer buffer, int dimension, int count, long watermarkEpochMillis) {
+        this.buffer = buffer;
+        this.dimension = dimension;
+        this.count = count;
+        this.watermarkEpochMillis = watermarkEpochMillis;
+    }
+
+    public int dimension() {
+        return dimension;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public long watermarkEpochMillis() {
+        return watermarkEpochMillis;
+    }
+
+    long recipeIdAt(int row) {
+        return buffer.getLong(recordOffset(row));
+    }
+
+    long metaAt(int row) {
+        return buffer.getLong(recordOffset(row) + Long.BYTES);
+    }
+
+    /**
+     * View float trên toàn bộ file; vector của dòng row bắt đầu tại vectorFloatIndex(row).
+     */
+    FloatBuffer floatView() {
+        return buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN).position(0).asFloatBuffer();
+    }
+
+    int vectorFloatIndex(int row) {
+        return (recordOffset(row) + RECORD_HEADER_BYTES) / Float.BYTES;
+    }
+
+    private int recordOffset(int row) {
+        return HEADER_BYTES + row * recordBytes(dimension);
+    }
+
+    private static int recordBytes(int dimension) {
+        return RECORD_HEADER_BYTES + dimension * Float.BYTES;
+    }
+
+    /**
+     * Mở và kiểm tra file snapshot. Mapping vẫn hợp lệ sau khi đóng channel.
+     *
+     * @throws IOException nếu file hỏng, sai phiên bản hoặc vượt giới hạn kích thước.
+     */
+    public static VectorSnapshot open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("Kích thước snapshot không hợp lệ: " + size);
+            }
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+            int magic = buffer.getInt(0);
+            int version = buffer.getInt(4);
+            int dimension = buffer.getInt(8);
+            int count = buffer.getInt(12);
+            long watermark = buffer.getLong(16);
+
+            if (magic != MAGIC) throw new IOException("Sai định dạng snapshot vector");
+            if (version != FORMAT_VERSION) throw new IOException("Phiên bản snapshot không hỗ trợ: " + version);
+            if (dimension <= 0 || count < 0
+                    || size != HEADER_BYTES + (long) count * recordBytes(dimension)) {
+                throw new IOException("Snapshot vector bị hỏng (dimension=" + dimension + ", count=" + count + ")");
+            }
+            return new VectorSnapshot(buffer, dimension, count, watermark);
+        }
+    }
+
+    /**
+     * Ghi toàn bộ chỉ mục ra file tạm rồi đổi tên nguyên tử, để node khác/lần khởi động sau không đọc phải file dở dang.
+     *
+     * @return Số bản ghi đã ghi
+     */
+    public static int write(Path path, VectorIndex index, long watermarkEpochMillis) throws IOException {
+        int dimension = index.dimension();
+        if (dimension <= 0) return 0;
+
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+
+        int[] written = {0};
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(Math.max(WRITE_BUFFER_BYTES, recordBytes(dimension)))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            channel.position(HEADER_BYTES);
+
+            try {
+                index.forEach((recipeId, ownerId, isPublic, vector) -> {
+                    if (vector.length != dimension) return;
+                    if (buffer.remaining() < recordBytes(dimension)) flush(channel, buffer);
+                    buffer.putLong(recipeId);
+                    buffer.putLong(VectorMath.packMeta(ownerId, isPublic));
+                    for (float v : vector) {
+                        buffer.putFloat(v);
+                    }
+                    written[0]++;
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            flush(channel, buffer);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC);
+            header.putInt(FORMAT_VERSION);
+            header.putInt(dimension);
+            header.putInt(written[0]);
+            header.putLong(watermarkEpochMillis);
+            header.putLong(0L);
+            header.flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(true);
+        }
+
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return written[0];
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,119 @@
+package fit.kltn_cookinote_backend.repositories;
+
+import fit.kltn_cookinote_backend.dtos.response.RecipeResponse;
+import fit.kltn_cookinote_backend.entities.Category;
+import fit.kltn_cookinote_backend.entities.Recipe;
+import fit.kltn_cookinote_backend.entities.RecipeIngredient;
+import fit.kltn_cookinote_backend.entities.RecipeStep;
+import fit.kltn_cookinote_backend.entities.RecipeStepImage;
+import fit.kltn_cookinote_backend.entities.User;
+import fit.kltn_cookinote_backend.enums.AuthProvider;
+import fit.kltn_cookinote_backend.enums.Privacy;
+import fit.kltn_cookinote_backend.enums.Role;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.repository.config.BootstrapMode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// LAZY: chỉ tạo repository được dùng (một số query khác dùng hàm riêng của MySQL, H2 không kiểm tra được)
+@DataJpaTest(bootstrapMode = BootstrapMode.LAZY, properties = {
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.url=jdbc:h2:mem:fetchplan;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER,VALUE",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class RecipeRepositoryFetchPlanTest {
+
+    private static final int STEP_COUNT = 20;
+    private static final int IMAGES_PER_STEP = 5;
+    private static final int INGREDIENT_COUNT = 12;
+
+    @Autowired
+    private TestEntityManager em;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private RecipeRepository recipeRepository;
+
+    @Test
+    void detailGraphLoadsInThreeQueriesRegardlessOfStepCount() {
+        Long recipeId = persistRecipe();
+        em.flush();
+        em.clear();
+
+        Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+
+        Recipe recipe = recipeRepository.findDetailGraphById(recipeId).orElseThrow();
+        RecipeResponse response = RecipeResponse.from(recipe, false, null, List.of());
+
+        // recipe + owner + category + steps | step images | ingredients
+        assertEquals(3, stats.getPrepareStatementCount());
+        assertEquals(STEP_COUNT, response.steps().size());
+        // Ảnh cuối của mỗi bước bị tắt (active = false) nên không được trả về
+        response.steps().forEach(step -> assertEquals(IMAGES_PER_STEP - 1, step.images().size()));
+        assertEquals(INGREDIENT_COUNT, response.ingredients().size());
+        assertEquals("Đầu bếp", response.ownerName());
+    }
+
+    private Long persistRecipe() {
+        User owner = em.persist(User.builder()
+                .username("chef_test")
+                .email("chef@example.com")
+                .displayName("Đầu bếp")
+                .role(Role.USER)
+                .authProvider(AuthProvider.LOCAL)
+                .enabled(true)
+                .build());
+        Category category = em.persist(Category.builder().name("Món chính").build());
+
+        Recipe recipe = Recipe.builder()
+                .user(owner)
+                .category(category)
+                .title("Cơm tấm")
+                .privacy(Privacy.PUBLIC)
+                .view(0L)
+                .build();
+
+        for (int s = 1; s <= STEP_COUNT; s++) {
+            RecipeStep step = RecipeStep.builder()
+                    .recipe(recipe)
+                    .stepNo(s)
+                    .content("Bước " + s)
+                    .images(new ArrayList<>())
+                    .build();
+            for (int i = 1; i <= IMAGES_PER_STEP; i++) {
+                step.getImages().add(RecipeStepImage.builder()
+                        .step(step)
+                        .imageUrl("https://img.example.com/" + s + "/" + i + ".jpg")
+                        .active(i < IMAGES_PER_STEP)
+                        .build());
+            }
+            recipe.getSteps().add(step);
+        }
+        for (int i = 1; i <= INGREDIENT_COUNT; i++) {
+            recipe.getIngredients().add(RecipeIngredient.builder()
+                    .recipe(recipe)
+                    .name("Nguyên liệu " + i)
+                    .quantity(i + "g")
+                    .build());
+        }
+        return em.persistAndGetId(recipe, Long.class);
+    }
+}